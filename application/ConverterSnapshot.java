@@ -0,0 +1,42 @@
+package application;
+
+import controller.FilmeService;
+import controller.UsuarioService;
+import java.io.File;
+
+/**
+ * Converte os dados entre o formato texto ("filmes.txt" / "usuarios.txt") e a
+ * fotografia binária.
+ *
+ * Uso: {@code ConverterSnapshot exportar|importar filmes|usuarios <arquivo.bin>}
+ */
+public final class ConverterSnapshot {
+
+    private ConverterSnapshot() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.err.println("Uso: ConverterSnapshot exportar|importar filmes|usuarios <arquivo.bin>");
+            System.exit(2);
+        }
+
+        boolean exportar = "exportar".equalsIgnoreCase(args[0]);
+        boolean filmes = "filmes".equalsIgnoreCase(args[1]);
+        File arquivo = new File(args[2]);
+
+        long inicio = System.nanoTime();
+        if (filmes && exportar) {
+            FilmeService.getInstance().exportarSnapshot(arquivo);
+        } else if (filmes) {
+            FilmeService.getInstance().importarSnapshot(arquivo);
+        } else if (exportar) {
+            UsuarioService.getInstance().exportarSnapshot(arquivo);
+        } else {
+            UsuarioService.getInstance().importarSnapshot(arquivo);
+        }
+        long duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        System.out.println("Conversão concluída em " + duracaoMs + " ms.");
+    }
+}
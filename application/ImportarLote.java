@@ -0,0 +1,55 @@
+package application;
+
+import controller.FilmeService;
+import controller.RelatorioImportacao;
+import controller.UsuarioService;
+import java.io.File;
+
+/**
+ * Importa um CSV de filmes ou de clientes sem abrir as telas, gravando os
+ * arquivos de dados uma única vez no fim.
+ *
+ * Uso: {@code ImportarLote filmes|usuarios <arquivo.csv>}
+ *
+ * Colunas de filmes: código, título, gênero, classificação. Colunas de
+ * usuários: nome, CPF, telefone, endereço. O separador pode ser ';' ou ','.
+ */
+public final class ImportarLote {
+    private static final int REJEICOES_EXIBIDAS = 50;
+
+    private ImportarLote() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2 || !(args[0].equalsIgnoreCase("filmes") || args[0].equalsIgnoreCase("usuarios"))) {
+            System.err.println("Uso: ImportarLote filmes|usuarios <arquivo.csv>");
+            System.exit(2);
+        }
+
+        File arquivo = new File(args[1]);
+        if (!arquivo.isFile()) {
+            System.err.println("Arquivo não encontrado: " + arquivo);
+            System.exit(2);
+        }
+
+        long inicio = System.nanoTime();
+        RelatorioImportacao relatorio = args[0].equalsIgnoreCase("filmes")
+                ? FilmeService.getInstance().importarFilmes(arquivo)
+                : UsuarioService.getInstance().importarUsuarios(arquivo);
+        long duracaoMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        int exibidas = Math.min(relatorio.rejeitadas().size(), REJEICOES_EXIBIDAS);
+        for (RelatorioImportacao.Rejeicao rejeicao : relatorio.rejeitadas().subList(0, exibidas)) {
+            System.err.println(rejeicao);
+        }
+        if (relatorio.rejeitadas().size() > exibidas) {
+            System.err.println("... e mais " + (relatorio.rejeitadas().size() - exibidas) + " linhas recusadas.");
+        }
+
+        System.out.println("Importação concluída em " + duracaoMs + " ms: " + relatorio.importados()
+                + " importados, " + relatorio.rejeitadas().size() + " recusados.");
+        if (!relatorio.rejeitadas().isEmpty()) {
+            System.exit(1);
+        }
+    }
+}
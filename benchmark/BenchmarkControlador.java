@@ -0,0 +1,273 @@
+package benchmark;
+
+import controller.FilmeService;
+import controller.SnapshotBinario;
+import controller.UsuarioService;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import model.Cliente;
+import model.Filme;
+import model.Situacao;
+
+/**
+ * Benchmarks da camada de controle ({@link FilmeService} e
+ * {@link UsuarioService}) sobre bases sintéticas de 1 mil, 100 mil e 1 milhão
+ * de registros.
+ *
+ * Os serviços são singletons presos aos arquivos do diretório atual, então,
+ * como o JMH, cada tamanho de base roda em uma JVM filha própria, aberta no
+ * diretório temporário onde a base foi gerada. Cada operação tem iterações de
+ * aquecimento e de medição por tempo; o relatório mostra ns/op, bytes
+ * alocados por operação (como o profiler "gc" do JMH) e o número de coletas.
+ *
+ * Uso: {@code java [-Dlocadora.catalogo=compacto] benchmark.BenchmarkControlador [tamanho...]}
+ */
+public final class BenchmarkControlador {
+    private static final int[] TAMANHOS_PADRAO = {1_000, 100_000, 1_000_000};
+    private static final int ITERACOES_AQUECIMENTO = 3;
+    private static final int ITERACOES_MEDICAO = 5;
+    private static final long DURACAO_ITERACAO_NS = 500_000_000L;
+    private static final String ARGUMENTO_FILHO = "--executar";
+
+    /** Evita que o JIT elimine o trabalho medido. */
+    private static volatile Object sumidouro;
+
+    private BenchmarkControlador() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 2 && ARGUMENTO_FILHO.equals(args[0])) {
+            executarNaBase(Integer.parseInt(args[1]));
+            return;
+        }
+
+        int[] tamanhos = TAMANHOS_PADRAO;
+        if (args.length > 0) {
+            tamanhos = Stream.of(args).mapToInt(Integer::parseInt).toArray();
+        }
+
+        for (int tamanho : tamanhos) {
+            Path diretorio = Files.createTempDirectory("benchmark-locadora-");
+            try {
+                gerarBase(diretorio, tamanho);
+                executarJvmFilha(diretorio, tamanho);
+            } finally {
+                apagar(diretorio);
+            }
+        }
+    }
+
+    private static void executarJvmFilha(Path diretorio, int tamanho) throws IOException, InterruptedException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        // A base é gerada em UTF-8; a JVM filha precisa ler com o mesmo charset.
+        List<String> comando = new ArrayList<>(List.of(java, "-Xmx4g", "-Dfile.encoding=UTF-8"));
+        // Repassa a configuração dos serviços (por exemplo -Dlocadora.catalogo=compacto).
+        for (String propriedade : System.getProperties().stringPropertyNames()) {
+            if (propriedade.startsWith("locadora.")) {
+                comando.add("-D" + propriedade + "=" + System.getProperty(propriedade));
+            }
+        }
+        comando.addAll(List.of("-cp", System.getProperty("java.class.path")));
+        comando.addAll(List.of(BenchmarkControlador.class.getName(), ARGUMENTO_FILHO, String.valueOf(tamanho)));
+
+        Process processo = new ProcessBuilder(comando)
+                .directory(diretorio.toFile())
+                .inheritIO()
+                .start();
+
+        int codigoSaida = processo.waitFor();
+        if (codigoSaida != 0) {
+            throw new IllegalStateException("Benchmark com " + tamanho + " registros terminou com código " + codigoSaida);
+        }
+    }
+
+    private static void executarNaBase(int tamanho) throws IOException {
+        System.out.printf("%n=== Base com %,d registros ===%n", tamanho);
+        System.out.printf("%-40s %14s %14s %10s%n", "Operação", "ns/op", "bytes/op", "coletas");
+
+        long inicio = System.nanoTime();
+        FilmeService filmeService = FilmeService.getInstance();
+        UsuarioService usuarioService = UsuarioService.getInstance();
+        System.out.printf("%-40s %14.0f%n", "carga inicial (filmes + usuários)", (double) (System.nanoTime() - inicio));
+
+        Random aleatorio = new Random(42);
+        Cliente cliente = usuarioService.buscarClientePorId(1);
+        String[] cpfs = new String[1024];
+        for (int i = 0; i < cpfs.length; i++) {
+            cpfs[i] = cpf(aleatorio.nextInt(tamanho));
+        }
+        File snapshot = new File("filmes.bin");
+        File snapshotTexto = new File("filmes-fotografia.txt");
+
+        medir("buscarFilmePorCodigo", i -> filmeService.buscarFilmePorCodigo(aleatorio.nextInt(tamanho)));
+        medir("buscarClientePorCpf", i -> usuarioService.buscarClientePorCpf(cpfs[i & (cpfs.length - 1)]));
+        medir("alugarFilme + devolverFilme", i -> {
+            int codigo = aleatorio.nextInt(tamanho);
+            Filme filme = filmeService.alugarFilme(codigo, cliente);
+            filmeService.devolverFilme(codigo);
+            return filme;
+        });
+        filmeService.sincronizar().join();
+        medir("listarHistoricoAlugueisPorFilme", i ->
+                filmeService.listarHistoricoAlugueisPorFilme(aleatorio.nextInt(tamanho), usuarioService));
+        medir("pesquisarFilmes (título)", i -> filmeService.pesquisarFilmes("título 12"));
+        medir("pesquisarUsuarios (CPF)", i -> usuarioService.pesquisarUsuarios("123.4"));
+        medir("pesquisarUsuarios (nome)", i -> usuarioService.pesquisarUsuarios("maria"));
+        medir("exportar fotografia binária", i -> {
+            filmeService.exportarSnapshot(snapshot);
+            return snapshot;
+        });
+        medir("ler fotografia binária", i -> {
+            try {
+                return SnapshotBinario.lerFilmes(snapshot);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        medir("exportar fotografia texto", i -> {
+            gravarTexto(filmeService.getFilmes(), snapshotTexto);
+            return snapshotTexto;
+        });
+        medir("ler fotografia texto", i -> lerTexto(snapshotTexto));
+
+        filmeService.sincronizar().join();
+        System.exit(0);
+    }
+
+    /**
+     * Executa a operação em iterações de tempo fixo e imprime a média das
+     * iterações de medição.
+     */
+    private static void medir(String nome, IntFunction<Object> operacao) {
+        for (int i = 0; i < ITERACOES_AQUECIMENTO; i++) {
+            executarIteracao(operacao);
+        }
+
+        long operacoes = 0;
+        long duracao = 0;
+        long alocados = 0;
+        long coletasAntes = contarColetas();
+
+        for (int i = 0; i < ITERACOES_MEDICAO; i++) {
+            long alocadosAntes = bytesAlocados();
+            long inicio = System.nanoTime();
+            operacoes += executarIteracao(operacao);
+            duracao += System.nanoTime() - inicio;
+            alocados += bytesAlocados() - alocadosAntes;
+        }
+
+        System.out.printf("%-40s %14.1f %14.0f %10d%n",
+                nome,
+                (double) duracao / operacoes,
+                (double) alocados / operacoes,
+                contarColetas() - coletasAntes);
+    }
+
+    private static long executarIteracao(IntFunction<Object> operacao) {
+        long limite = System.nanoTime() + DURACAO_ITERACAO_NS;
+        long operacoes = 0;
+
+        do {
+            sumidouro = operacao.apply((int) operacoes);
+            operacoes++;
+        } while (System.nanoTime() < limite);
+
+        return operacoes;
+    }
+
+    /**
+     * Referência para a fotografia binária: o mesmo catálogo no formato de
+     * linhas de "filmes.txt", gravado e lido em uma única thread.
+     */
+    private static void gravarTexto(List<Filme> filmes, File destino) {
+        try (BufferedWriter saida = Files.newBufferedWriter(destino.toPath(), StandardCharsets.UTF_8)) {
+            for (Filme filme : filmes) {
+                saida.write(filme.getCodFilme() + ";" + filme.getTitulo() + ";" + filme.getGenero() + ";"
+                        + filme.getClassificacao() + ";" + filme.getSituacao().getTexto());
+                saida.newLine();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<Filme> lerTexto(File origem) {
+        List<Filme> filmes = new ArrayList<>();
+        try (BufferedReader entrada = Files.newBufferedReader(origem.toPath(), StandardCharsets.UTF_8)) {
+            String linha;
+            while ((linha = entrada.readLine()) != null) {
+                String[] partes = linha.split(";");
+                filmes.add(new Filme(Integer.parseInt(partes[0]), partes[1], partes[2],
+                        Integer.parseInt(partes[3]), Situacao.deTexto(partes[4])));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return filmes;
+    }
+
+    private static long bytesAlocados() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean threadsHotSpot) {
+            return threadsHotSpot.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static long contarColetas() {
+        long total = 0;
+        for (GarbageCollectorMXBean coletor : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, coletor.getCollectionCount());
+        }
+        return total;
+    }
+
+    /**
+     * Gera filmes.txt, usuarios.txt e alugueis.txt no formato usado pelos
+     * serviços, com um aluguel por registro.
+     */
+    private static void gerarBase(Path diretorio, int tamanho) throws IOException {
+        String[] generos = {"Ação", "Romance", "Drama", "Terror", "Ficção Científica"};
+        int[] classificacoes = {0, 10, 12, 14, 16, 18};
+        String[] nomes = {"Maria", "João", "Ana", "Pedro", "Mariana", "Lucas"};
+        Random aleatorio = new Random(7);
+
+        try (PrintWriter filmes = new PrintWriter(diretorio.resolve("filmes.txt").toFile(), StandardCharsets.UTF_8);
+                PrintWriter usuarios = new PrintWriter(diretorio.resolve("usuarios.txt").toFile(), StandardCharsets.UTF_8);
+                PrintWriter alugueis = new PrintWriter(diretorio.resolve("alugueis.txt").toFile(), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < tamanho; i++) {
+                filmes.println(i + ";Título " + i + ";" + generos[i % generos.length] + ";"
+                        + classificacoes[i % classificacoes.length] + ";disponível");
+                usuarios.println((i + 1) + ";" + cpf(i) + ";" + nomes[i % nomes.length] + " " + i
+                        + ";(11) 9" + (10_000_000 + i) + ";Rua " + i);
+                alugueis.println((aleatorio.nextInt(tamanho) + 1) + ";" + aleatorio.nextInt(tamanho) + ";Título");
+            }
+        }
+    }
+
+    private static String cpf(int indice) {
+        String digitos = String.format("%011d", indice);
+        return digitos.substring(0, 3) + "." + digitos.substring(3, 6) + "."
+                + digitos.substring(6, 9) + "-" + digitos.substring(9);
+    }
+
+    private static void apagar(Path diretorio) throws IOException {
+        try (Stream<Path> caminhos = Files.walk(diretorio)) {
+            caminhos.sorted(Comparator.reverseOrder()).forEach(caminho -> caminho.toFile().delete());
+        }
+    }
+}
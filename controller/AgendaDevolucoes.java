@@ -0,0 +1,178 @@
+package controller;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aluguéis em aberto por prazo de devolução, para achar os atrasados sem
+ * percorrer o catálogo.
+ *
+ * Os aluguéis ainda no prazo ficam numa fila de prioridade pelo prazo; uma
+ * tarefa agendada para o prazo do primeiro da fila dispara quando ele vence
+ * e passa para {@link #atrasados} todos os que venceram, em ordem de prazo.
+ * Assim a lista de atrasados já está pronta quando a tela a pede, e cada
+ * aluguel custa O(log n) para entrar e para vencer.
+ *
+ * Uma devolução tira o aluguel de {@link #emAberto} e dos atrasados, mas não
+ * da fila, onde a remoção custaria O(n): a entrada velha é descartada quando
+ * chega ao início da fila, e a fila é remontada se as entradas velhas
+ * passarem das válidas.
+ */
+final class AgendaDevolucoes {
+    private static final Comparator<EventoAluguel> POR_PRAZO =
+            Comparator.comparing(EventoAluguel::prazo).thenComparingInt(EventoAluguel::codFilme);
+
+    private final Metricas metricas;
+    private final ScheduledExecutorService relogio;
+    /** Aluguéis no prazo, com entradas velhas de filmes já devolvidos ou alugados de novo. */
+    private final PriorityQueue<EventoAluguel> noPrazo;
+    /** Aluguel em aberto de cada filme, no prazo ou atrasado. */
+    private final MapaInteiro<EventoAluguel> emAberto;
+    /** Aluguéis vencidos, na ordem em que venceram. */
+    private final MapaInteiro<EventoAluguel> atrasados;
+    private ScheduledFuture<?> disparo;
+    /** Prazo para o qual {@link #disparo} foi agendado, ou {@link Long#MAX_VALUE}. */
+    private long instanteDisparo;
+
+    AgendaDevolucoes(Metricas metricas) {
+        this.metricas = metricas;
+        this.relogio = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "prazos-alugueis");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.noPrazo = new PriorityQueue<>(POR_PRAZO);
+        this.emAberto = new MapaInteiro<>();
+        this.atrasados = new MapaInteiro<>();
+        this.instanteDisparo = Long.MAX_VALUE;
+    }
+
+    /**
+     * Acrescenta aluguéis com prazo; um aluguel de um filme que já estava na
+     * agenda substitui o anterior.
+     */
+    synchronized void registrar(List<EventoAluguel> alugueis) {
+        for (EventoAluguel aluguel : alugueis) {
+            if (aluguel.prazo() == null) {
+                throw new IllegalArgumentException("Aluguel sem prazo de devolução: filme " + aluguel.codFilme());
+            }
+            emAberto.inserir(aluguel.codFilme(), aluguel);
+            atrasados.remover(aluguel.codFilme());
+            noPrazo.add(aluguel);
+        }
+        vencer();
+    }
+
+    /**
+     * @return o aluguel em aberto do filme, ou {@code null} se não houver
+     */
+    synchronized EventoAluguel consultar(int codFilme) {
+        return emAberto.obter(codFilme);
+    }
+
+    /**
+     * @return o aluguel em aberto do filme, ou {@code null} se não houver
+     */
+    synchronized EventoAluguel remover(int codFilme) {
+        EventoAluguel aluguel = emAberto.remover(codFilme);
+        if (aluguel != null) {
+            atrasados.remover(codFilme);
+            if (noPrazo.size() > 2 * emAberto.tamanho() + 64) {
+                remontarFila();
+            }
+        }
+        return aluguel;
+    }
+
+    /**
+     * Troca o conteúdo da agenda, como na carga.
+     */
+    synchronized void substituir(List<EventoAluguel> alugueis) {
+        emAberto.limpar();
+        atrasados.limpar();
+        noPrazo.clear();
+        registrar(alugueis);
+    }
+
+    /**
+     * @return os aluguéis atrasados, do que venceu primeiro ao mais recente
+     */
+    synchronized List<EventoAluguel> listarAtrasados() {
+        List<EventoAluguel> lista = new ArrayList<>(atrasados.tamanho());
+        atrasados.paraCada(lista::add);
+        return lista;
+    }
+
+    synchronized int quantidadeAtrasados() {
+        return atrasados.tamanho();
+    }
+
+    synchronized int quantidadeEmAberto() {
+        return emAberto.tamanho();
+    }
+
+    /**
+     * Passa para os atrasados os aluguéis vencidos e agenda o próximo
+     * disparo para o prazo do primeiro que continua no prazo.
+     */
+    private synchronized void vencer() {
+        long agora = Instant.now().toEpochMilli();
+        int vencidos = 0;
+
+        EventoAluguel primeiro;
+        while ((primeiro = primeiroValido()) != null && primeiro.prazo().toEpochMilli() <= agora) {
+            noPrazo.poll();
+            atrasados.inserir(primeiro.codFilme(), primeiro);
+            vencidos++;
+        }
+        if (vencidos > 0) {
+            metricas.somar("alugueisVencidos", vencidos);
+        }
+
+        long proximo = primeiro == null ? Long.MAX_VALUE : primeiro.prazo().toEpochMilli();
+        // Um disparo agendado para antes do próximo prazo só reagenda ao rodar.
+        if (proximo < instanteDisparo) {
+            if (disparo != null) {
+                disparo.cancel(false);
+            }
+            disparo = relogio.schedule(this::disparar, proximo - agora, TimeUnit.MILLISECONDS);
+            instanteDisparo = proximo;
+        }
+    }
+
+    private synchronized void disparar() {
+        disparo = null;
+        instanteDisparo = Long.MAX_VALUE;
+        vencer();
+    }
+
+    /**
+     * Descarta do início da fila as entradas de aluguéis que não estão mais
+     * em aberto.
+     */
+    private EventoAluguel primeiroValido() {
+        EventoAluguel primeiro;
+        while ((primeiro = noPrazo.peek()) != null && emAberto.obter(primeiro.codFilme()) != primeiro) {
+            noPrazo.poll();
+        }
+        return primeiro;
+    }
+
+    private void remontarFila() {
+        List<EventoAluguel> validos = new ArrayList<>(emAberto.tamanho());
+        emAberto.paraCada(aluguel -> {
+            if (!atrasados.contem(aluguel.codFilme())) {
+                validos.add(aluguel);
+            }
+        });
+        noPrazo.clear();
+        noPrazo.addAll(validos);
+    }
+}
@@ -0,0 +1,87 @@
+package controller;
+
+import java.io.File;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Escolhe a persistência dos serviços pela propriedade de sistema
+ * {@value #PROPRIEDADE_ARMAZENAMENTO}: {@code arquivos} (padrão), com os
+ * arquivos texto, diários e segmentos em {@value #PROPRIEDADE_DIRETORIO}, ou
+ * {@code banco}, com um banco embutido pela URL JDBC de
+ * {@value #PROPRIEDADE_URL_BANCO}. Os repositórios de banco dos dois serviços
+ * compartilham uma única conexão.
+ *
+ * Trocar de armazenamento não copia os dados: o banco começa vazio e pode
+ * ser preenchido com as importações de fotografia dos serviços.
+ */
+final class Armazenamento {
+    static final String PROPRIEDADE_ARMAZENAMENTO = "locadora.armazenamento";
+    /** Diretório dos arquivos de dados (padrão: o diretório de trabalho). */
+    static final String PROPRIEDADE_DIRETORIO = "locadora.diretorio";
+    static final String PROPRIEDADE_URL_BANCO = "locadora.bancoUrl";
+    static final String URL_BANCO_PADRAO = "jdbc:h2:./locadora";
+
+    private static BancoEmbutido banco;
+
+    private Armazenamento() {
+    }
+
+    static RepositorioFilmes filmes(Metricas metricas) {
+        return usarBanco() ? new RepositorioFilmesBanco(banco())
+                : new RepositorioFilmesArquivo(arquivo("filmes.txt"), metricas);
+    }
+
+    static RepositorioUsuarios usuarios(Metricas metricas) {
+        return usarBanco() ? new RepositorioUsuariosBanco(banco())
+                : new RepositorioUsuariosArquivo(arquivo("usuarios.txt"), metricas);
+    }
+
+    /**
+     * @param idPorCpf usado pela migração do histórico antigo em arquivo
+     */
+    static RepositorioAlugueis alugueis(ToLongFunction<String> idPorCpf, Metricas metricas) {
+        return usarBanco() ? new RepositorioAlugueisBanco(banco())
+                : new RepositorioAlugueisArquivo(arquivo("alugueis.txt"), idPorCpf, metricas);
+    }
+
+    /**
+     * Roda as gravações de vários repositórios como uma só transação quando
+     * eles estão no banco. Nos arquivos, cada gravação continua valendo por
+     * conta própria.
+     *
+     * @param operacao nome da transação nas métricas do banco
+     */
+    static <T> T gravarJuntos(String operacao, Supplier<T> gravacoes) {
+        BancoEmbutido aberto;
+        synchronized (Armazenamento.class) {
+            aberto = banco;
+        }
+        // O banco só é aberto por um repositório que o usa.
+        return aberto == null ? gravacoes.get() : aberto.gravarJuntos(operacao, gravacoes);
+    }
+
+    private static boolean usarBanco() {
+        String configuracao = System.getProperty(PROPRIEDADE_ARMAZENAMENTO, "arquivos");
+        switch (configuracao.trim().toLowerCase()) {
+            case "arquivos":
+                return false;
+            case "banco":
+                return true;
+            default:
+                throw new IllegalArgumentException("Armazenamento inválido: " + configuracao);
+        }
+    }
+
+    private static File arquivo(String nome) {
+        String diretorio = System.getProperty(PROPRIEDADE_DIRETORIO);
+        return diretorio == null ? new File(nome) : new File(diretorio, nome);
+    }
+
+    private static synchronized BancoEmbutido banco() {
+        if (banco == null) {
+            banco = new BancoEmbutido(System.getProperty(PROPRIEDADE_URL_BANCO, URL_BANCO_PADRAO));
+        }
+        return banco;
+    }
+}
@@ -0,0 +1,87 @@
+package controller;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Troca o conteúdo de um arquivo sem deixar uma versão truncada no lugar
+ * da antiga: grava em "<arquivo>.tmp", força os dados no disco, renomeia
+ * atomicamente por cima do arquivo e força o diretório, para que a troca de
+ * nome também sobreviva a uma queda de energia.
+ *
+ * Qualquer falha de escrita vira {@link IOException}, e o arquivo antigo
+ * continua intacto; quem apaga outra cópia dos dados (um diário, o arquivo
+ * de uma selagem) só deve fazê-lo depois que a troca retornar.
+ */
+final class ArquivoDuravel {
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private ArquivoDuravel() {
+    }
+
+    static void substituir(File arquivo, Escrita escrita) throws IOException {
+        File temporario = new File(arquivo.getPath() + ".tmp");
+
+        try (FileChannel canal = FileChannel.open(temporario.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream saida = new BufferedOutputStream(Channels.newOutputStream(canal), TAMANHO_BUFFER);
+            escrita.escrever(saida);
+            saida.flush();
+            canal.force(true);
+        }
+
+        Files.move(temporario.toPath(), arquivo.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        sincronizarDiretorio(arquivo);
+    }
+
+    /**
+     * Grava as linhas no charset padrão, cada uma seguida do separador do
+     * sistema, como as demais gravações de texto.
+     */
+    static void substituirLinhas(File arquivo, List<String> linhas) throws IOException {
+        substituir(arquivo, saida -> {
+            Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, Charset.defaultCharset()));
+            for (String linha : linhas) {
+                escritor.write(linha);
+                escritor.write(System.lineSeparator());
+            }
+            escritor.flush();
+        });
+    }
+
+    private static void sincronizarDiretorio(File arquivo) throws IOException {
+        Path diretorio = arquivo.getAbsoluteFile().toPath().getParent();
+        FileChannel canal;
+        try {
+            canal = FileChannel.open(diretorio, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Sistemas que não abrem diretórios (Windows) já gravam a renomeação de forma durável.
+            return;
+        }
+        try (canal) {
+            canal.force(true);
+        }
+    }
+
+    /**
+     * Conteúdo do arquivo; a saída não deve ser fechada.
+     */
+    @FunctionalInterface
+    interface Escrita {
+        void escrever(OutputStream saida) throws IOException;
+    }
+}
@@ -0,0 +1,159 @@
+package controller;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.function.Supplier;
+
+/**
+ * Conexão com o banco embutido usado pelos repositórios
+ * {@code Repositorio*Banco}, com o esquema criado na abertura.
+ *
+ * Só usa {@code java.sql} e SQL comum a H2 e SQLite: o driver entra no
+ * classpath na execução e é escolhido pela URL
+ * ({@value Armazenamento#PROPRIEDADE_URL_BANCO}). Os ids são gerados pelos
+ * repositórios, sem colunas autoincremento, que cada banco escreve de um
+ * jeito.
+ *
+ * Há uma única conexão, usada por uma transação de cada vez: cada chamada
+ * de {@link #executar} roda sob o monitor do banco e é confirmada no fim,
+ * ou desfeita se falhar. Chamadas feitas dentro de {@link #gravarJuntos},
+ * mesmo de repositórios diferentes, entram na transação dela e só são
+ * confirmadas juntas. Isso vale também para as consultas, que esperam
+ * atrás das gravações: uma página de histórico pedida pela tela fica na fila
+ * de uma importação grande até ela terminar. Com os poucos balcões de uma
+ * locadora a espera é curta; leituras em paralelo pediriam conexões próprias
+ * só para consulta. A latência de cada transação vai para as
+ * {@link Metricas} do grupo "banco".
+ */
+final class BancoEmbutido {
+    /** Comandos enviados de uma vez nas inserções em massa. */
+    static final int LINHAS_POR_LOTE = 1000;
+
+    private static final String[] ESQUEMA = {
+        "CREATE TABLE IF NOT EXISTS filmes ("
+                + "codigo INT PRIMARY KEY, titulo VARCHAR(255) NOT NULL, genero VARCHAR(64) NOT NULL, "
+                + "classificacao INT NOT NULL, situacao VARCHAR(32) NOT NULL, ordem BIGINT NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS filmes_ordem ON filmes (ordem)",
+        "CREATE TABLE IF NOT EXISTS usuarios ("
+                + "id BIGINT PRIMARY KEY, cpf VARCHAR(32) NOT NULL, nome VARCHAR(255) NOT NULL, "
+                + "telefone VARCHAR(64) NOT NULL, endereco VARCHAR(255) NOT NULL)",
+        "CREATE TABLE IF NOT EXISTS alugueis ("
+                + "id BIGINT PRIMARY KEY, cliente_id BIGINT NOT NULL, cod_filme INT NOT NULL, "
+                + "titulo VARCHAR(255) NOT NULL)",
+        "CREATE INDEX IF NOT EXISTS alugueis_filme ON alugueis (cod_filme, id)",
+        "CREATE INDEX IF NOT EXISTS alugueis_cliente ON alugueis (cliente_id, id)",
+        "CREATE TABLE IF NOT EXISTS eventos_aluguel ("
+                + "id BIGINT PRIMARY KEY, instante BIGINT NOT NULL, tipo CHAR(1) NOT NULL, "
+                + "cliente_id BIGINT NOT NULL, cod_filme INT NOT NULL, prazo BIGINT)",
+        "CREATE INDEX IF NOT EXISTS eventos_instante ON eventos_aluguel (instante, id)",
+        "CREATE INDEX IF NOT EXISTS eventos_filme ON eventos_aluguel (cod_filme, id)"
+    };
+
+    private final String url;
+    private final Connection conexao;
+    private final Metricas metricas;
+    /** Se há uma transação aberta na conexão; só muda com o monitor do banco. */
+    private boolean transacaoAberta;
+
+    /**
+     * @throws IllegalStateException se o banco não abrir, por exemplo sem o
+     *                               driver da URL no classpath
+     */
+    BancoEmbutido(String url) {
+        this.url = url;
+        this.metricas = Metricas.grupo("banco");
+        try {
+            this.conexao = DriverManager.getConnection(url);
+            conexao.setAutoCommit(false);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Erro ao abrir o banco " + url + ": " + e.getMessage(), e);
+        }
+
+        executar("criarEsquema", c -> {
+            try (Statement comando = c.createStatement()) {
+                for (String sql : ESQUEMA) {
+                    comando.execute(sql);
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Roda a transação com a conexão e a confirma. Dentro de outra transação,
+     * só roda: quem confirma ou desfaz é a de fora.
+     *
+     * @param operacao nome da transação nas métricas
+     * @throws IllegalStateException se o banco recusar a transação; nada dela
+     *                               fica gravado
+     */
+    synchronized <T> T executar(String operacao, Transacao<T> transacao) {
+        return metricas.medir(operacao, () -> {
+            boolean externa = !transacaoAberta;
+            transacaoAberta = true;
+            try {
+                T resultado = transacao.executar(conexao);
+                if (externa) {
+                    conexao.commit();
+                }
+                return resultado;
+            } catch (SQLException e) {
+                if (externa) {
+                    desfazer(e);
+                }
+                throw new IllegalStateException("Erro no banco " + url + ": " + e.getMessage(), e);
+            } catch (RuntimeException e) {
+                if (externa) {
+                    desfazer(e);
+                }
+                throw e;
+            } finally {
+                if (externa) {
+                    transacaoAberta = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Roda as gravações de um ou mais repositórios numa só transação: ou
+     * todas ficam gravadas, ou nenhuma.
+     *
+     * @param operacao nome da transação nas métricas
+     * @throws IllegalStateException se o banco recusar alguma das gravações
+     */
+    <T> T gravarJuntos(String operacao, Supplier<T> gravacoes) {
+        return executar(operacao, c -> gravacoes.get());
+    }
+
+    /**
+     * Uma falha ao desfazer segue junto do erro que fez a transação falhar.
+     */
+    private void desfazer(Exception causa) {
+        try {
+            conexao.rollback();
+        } catch (SQLException e) {
+            causa.addSuppressed(e);
+        }
+    }
+
+    /**
+     * @return o maior valor da coluna, ou 0 com a tabela vazia
+     */
+    static long maximo(Connection conexao, String tabela, String coluna) throws SQLException {
+        try (PreparedStatement consulta = conexao.prepareStatement(
+                "SELECT MAX(" + coluna + ") FROM " + tabela);
+             ResultSet linhas = consulta.executeQuery()) {
+            return linhas.next() ? linhas.getLong(1) : 0L;
+        }
+    }
+
+    @FunctionalInterface
+    interface Transacao<T> {
+        T executar(Connection conexao) throws SQLException;
+    }
+}
@@ -0,0 +1,67 @@
+package controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Cache limitado que descarta o item usado há mais tempo, sobre um
+ * {@link LinkedHashMap} em ordem de acesso.
+ *
+ * O valor é calculado fora da trava, então duas threads podem calcular o
+ * mesmo item ao mesmo tempo. Para que um valor calculado antes de uma
+ * invalidação não volte ao cache depois dela, cada invalidação avança uma
+ * geração e só entra no cache o valor cuja geração não mudou durante o
+ * cálculo.
+ */
+final class CacheLru<K, V> {
+    private final Map<K, V> itens;
+    private final Metricas metricas;
+    private final String nome;
+    private long geracao;
+
+    /**
+     * @param nome prefixo dos contadores de acertos e falhas nas métricas
+     */
+    CacheLru(int capacidade, Metricas metricas, String nome) {
+        this.itens = new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> maisAntigo) {
+                return size() > capacidade;
+            }
+        };
+        this.metricas = metricas;
+        this.nome = nome;
+    }
+
+    V obter(K chave, Function<K, V> calculo) {
+        long geracaoInicial;
+        synchronized (this) {
+            V valor = itens.get(chave);
+            if (valor != null) {
+                metricas.incrementar(nome + "Acertos");
+                return valor;
+            }
+            geracaoInicial = geracao;
+        }
+
+        metricas.incrementar(nome + "Falhas");
+        V calculado = calculo.apply(chave);
+        synchronized (this) {
+            if (geracao == geracaoInicial) {
+                itens.put(chave, calculado);
+            }
+        }
+        return calculado;
+    }
+
+    synchronized void invalidar(Predicate<K> condicao) {
+        geracao++;
+        itens.keySet().removeIf(condicao);
+    }
+
+    synchronized int tamanho() {
+        return itens.size();
+    }
+}
@@ -0,0 +1,640 @@
+package controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import model.Filme;
+import model.Situacao;
+
+/**
+ * Catálogo em vetores primitivos paralelos, para acervos com milhões de
+ * títulos.
+ *
+ * Em vez de um {@link Filme} por título, cada posição guarda: o código
+ * ({@code int}), a classificação ({@code byte}), o gênero como índice em um
+ * dicionário ({@code byte}), um bit de disponibilidade e o início/tamanho do
+ * título em um único buffer UTF-8. Gêneros e situações deixam de ser strings
+ * repetidas.
+ *
+ * Os filmes devolvidos são visões ({@link FilmeCompacto}) criadas sob demanda:
+ * os getters leem os vetores e os setters escrevem neles. Como as visões
+ * também são usadas fora do serviço (pelas telas), cada leitura toma a trava
+ * de leitura do catálogo, que o serviço passa na construção, e cada alteração
+ * de título, gênero, classificação ou código, a de escrita. A situação guarda só disponível/indisponível; o CPF de
+ * quem alugou fica em um mapa à parte, pois só os filmes alugados o têm.
+ *
+ * A organização segue o {@link MapaInteiro}: posições na ordem de cadastro,
+ * tabela de endereçamento aberto do código para a posição, remoção por marca e
+ * compactação quando metade das posições estiver vazia.
+ */
+final class CatalogoCompacto implements CatalogoFilmes {
+    private static final int LIVRE = 0;
+    private static final int REMOVIDO = -1;
+    private static final int CAPACIDADE_INICIAL = 16;
+    private static final int MAXIMO_GENEROS = 256;
+    private static final int MAXIMO_CLASSIFICACAO = 255;
+
+    private final ReentrantReadWriteLock trava;
+    private final Lock travaLeitura;
+    private final List<String> nomesGeneros;
+    private final Map<String, Integer> indicesGeneros;
+    private final Map<Integer, String> cpfsAlugueis;
+
+    /** posição + 1; {@link #LIVRE} ou {@link #REMOVIDO}. */
+    private int[] tabela;
+    private int[] codigos;
+    private byte[] classificacoes;
+    private byte[] generos;
+    /** Início do título em {@link #bytesTitulos} nos 32 bits altos e tamanho nos baixos. */
+    private long[] titulos;
+    private byte[] bytesTitulos;
+    private int fimBytesTitulos;
+    private AtomicLongArray disponiveis;
+    private long[] removidos;
+
+    private int posicoesUsadas;
+    private int tamanho;
+    private int removidosNaTabela;
+
+    /**
+     * @param trava trava do catálogo no serviço, tomada pelas visões ao ler
+     *              (leitura) ou alterar (escrita) os vetores
+     */
+    CatalogoCompacto(ReentrantReadWriteLock trava) {
+        this.trava = trava;
+        this.travaLeitura = trava.readLock();
+        this.nomesGeneros = new ArrayList<>();
+        this.indicesGeneros = new HashMap<>();
+        this.cpfsAlugueis = new ConcurrentHashMap<>();
+        this.tabela = new int[CAPACIDADE_INICIAL * 2];
+        alocarVetores(CAPACIDADE_INICIAL, CAPACIDADE_INICIAL * 32);
+    }
+
+    @Override
+    public int tamanho() {
+        return tamanho;
+    }
+
+    @Override
+    public boolean contem(int codigo) {
+        return localizar(codigo) >= 0;
+    }
+
+    @Override
+    public Filme obter(int codigo) {
+        int posicao = posicaoDe(codigo);
+        return posicao < 0 ? null : new FilmeCompacto(codigo, posicao);
+    }
+
+    @Override
+    public void inserir(Filme filme) {
+        int codigo = filme.getCodFilme();
+        int classificacao = filme.getClassificacao();
+        if (classificacao < 0 || classificacao > MAXIMO_CLASSIFICACAO) {
+            throw new IllegalArgumentException("Classificação " + classificacao + " fora do intervalo do catálogo compacto.");
+        }
+
+        int posicao = posicaoDe(codigo);
+        if (posicao < 0) {
+            if (posicoesUsadas == codigos.length) {
+                crescerVetores();
+            }
+            if ((tamanho + removidosNaTabela + 1) * 4 > tabela.length * 3) {
+                redimensionarTabela(tabela.length * (tamanho * 2 >= tabela.length ? 2 : 1));
+            }
+
+            posicao = posicoesUsadas++;
+            codigos[posicao] = codigo;
+            titulos[posicao] = anexarTitulo(filme.getTitulo());
+            ocuparTabela(codigo, posicao);
+            tamanho++;
+        } else if (!valorSeguro(filme.getTitulo()).equals(titulo(posicao))) {
+            titulos[posicao] = anexarTitulo(filme.getTitulo());
+        }
+
+        classificacoes[posicao] = (byte) classificacao;
+        generos[posicao] = (byte) indiceGenero(filme.getGenero());
+        definirDisponivel(posicao, filme.isDisponivel());
+        definirCpf(codigo, filme.getCpfClienteAlugou());
+    }
+
+    @Override
+    public Filme remover(int codigo) {
+        int indice = localizar(codigo);
+        if (indice < 0) {
+            return null;
+        }
+
+        int posicao = tabela[indice] - 1;
+        Filme removido = materializar(posicao);
+
+        removidos[posicao >>> 6] |= 1L << posicao;
+        tabela[indice] = REMOVIDO;
+        removidosNaTabela++;
+        tamanho--;
+        cpfsAlugueis.remove(codigo);
+
+        if (posicoesUsadas > CAPACIDADE_INICIAL && tamanho * 2 < posicoesUsadas) {
+            compactar();
+        }
+        return removido;
+    }
+
+    @Override
+    public void limpar() {
+        Arrays.fill(tabela, LIVRE);
+        alocarVetores(CAPACIDADE_INICIAL, CAPACIDADE_INICIAL * 32);
+        cpfsAlugueis.clear();
+        posicoesUsadas = 0;
+        tamanho = 0;
+        removidosNaTabela = 0;
+    }
+
+    @Override
+    public void paraCada(Consumer<? super Filme> acao) {
+        for (int posicao = 0; posicao < posicoesUsadas; posicao++) {
+            if (!removida(posicao)) {
+                acao.accept(new FilmeCompacto(codigos[posicao], posicao));
+            }
+        }
+    }
+
+    /**
+     * Lista que guarda só códigos e posições; as visões são criadas quando a
+     * lista é lida, então montar a lista não aloca um objeto por filme.
+     */
+    @Override
+    public List<Filme> listar() {
+        int[] codigosListados = new int[tamanho];
+        int[] posicoesListadas = new int[tamanho];
+        int quantidade = 0;
+
+        for (int posicao = 0; posicao < posicoesUsadas; posicao++) {
+            if (!removida(posicao)) {
+                codigosListados[quantidade] = codigos[posicao];
+                posicoesListadas[quantidade] = posicao;
+                quantidade++;
+            }
+        }
+        return new ListaFilmes(codigosListados, posicoesListadas, quantidade);
+    }
+
+    private int posicaoDe(int codigo) {
+        int indice = localizar(codigo);
+        return indice < 0 ? -1 : tabela[indice] - 1;
+    }
+
+    private boolean removida(int posicao) {
+        return (removidos[posicao >>> 6] & (1L << posicao)) != 0;
+    }
+
+    private boolean disponivel(int posicao) {
+        return (disponiveis.get(posicao >>> 6) & (1L << posicao)) != 0;
+    }
+
+    /**
+     * Muda só o bit da posição. Filmes diferentes podem mudar de situação ao
+     * mesmo tempo (sob travas diferentes do serviço), então a palavra é
+     * atualizada atomicamente.
+     */
+    private void definirDisponivel(int posicao, boolean valor) {
+        long mascara = 1L << posicao;
+        int palavra = posicao >>> 6;
+        long atual;
+        long novo;
+        do {
+            atual = disponiveis.get(palavra);
+            novo = valor ? atual | mascara : atual & ~mascara;
+        } while (atual != novo && !disponiveis.compareAndSet(palavra, atual, novo));
+    }
+
+    private void definirCpf(int codigo, String cpf) {
+        if (cpf == null) {
+            cpfsAlugueis.remove(codigo);
+        } else {
+            cpfsAlugueis.put(codigo, cpf);
+        }
+    }
+
+    /**
+     * Chamado com a trava de escrita. A posição, e portanto a ordem de
+     * cadastro, continua a mesma; só a entrada da tabela muda. Uma posição já
+     * excluída fica como está.
+     */
+    private void trocarCodigo(int posicao, int codigoAntigo, int codigoNovo) {
+        int indice = localizar(codigoAntigo);
+        if (codigoNovo == codigoAntigo || indice < 0) {
+            return;
+        }
+        if (contem(codigoNovo)) {
+            throw new IllegalArgumentException("Já existe um filme com o código " + codigoNovo + ".");
+        }
+
+        tabela[indice] = REMOVIDO;
+        removidosNaTabela++;
+        codigos[posicao] = codigoNovo;
+        ocuparTabela(codigoNovo, posicao);
+        definirCpf(codigoNovo, cpfsAlugueis.remove(codigoAntigo));
+
+        if ((tamanho + removidosNaTabela) * 4 > tabela.length * 3) {
+            redimensionarTabela(tabela.length);
+        }
+    }
+
+    private String titulo(int posicao) {
+        long titulo = titulos[posicao];
+        return new String(bytesTitulos, (int) (titulo >>> 32), (int) titulo, StandardCharsets.UTF_8);
+    }
+
+    private String genero(int posicao) {
+        return nomesGeneros.get(generos[posicao] & 0xFF);
+    }
+
+    private int indiceGenero(String genero) {
+        String valor = valorSeguro(genero);
+        Integer indice = indicesGeneros.get(valor);
+        if (indice != null) {
+            return indice;
+        }
+        if (nomesGeneros.size() == MAXIMO_GENEROS) {
+            throw new IllegalStateException("O catálogo compacto aceita no máximo " + MAXIMO_GENEROS + " gêneros.");
+        }
+
+        nomesGeneros.add(valor);
+        indicesGeneros.put(valor, nomesGeneros.size() - 1);
+        return nomesGeneros.size() - 1;
+    }
+
+    private long anexarTitulo(String titulo) {
+        byte[] bytes = valorSeguro(titulo).getBytes(StandardCharsets.UTF_8);
+        if (fimBytesTitulos + bytes.length > bytesTitulos.length) {
+            bytesTitulos = Arrays.copyOf(bytesTitulos, Math.max(bytesTitulos.length * 2, fimBytesTitulos + bytes.length));
+        }
+
+        int inicio = fimBytesTitulos;
+        System.arraycopy(bytes, 0, bytesTitulos, inicio, bytes.length);
+        fimBytesTitulos += bytes.length;
+        return ((long) inicio << 32) | bytes.length;
+    }
+
+    /**
+     * Cópia independente dos dados da posição, para devolver um filme que
+     * continua legível depois de sair do catálogo.
+     */
+    private Filme materializar(int posicao) {
+        Filme filme = new Filme(codigos[posicao], titulo(posicao), genero(posicao),
+                classificacoes[posicao] & 0xFF, disponivel(posicao) ? Situacao.DISPONIVEL : Situacao.INDISPONIVEL);
+        filme.setCpfClienteAlugou(cpfsAlugueis.get(codigos[posicao]));
+        return filme;
+    }
+
+    private void alocarVetores(int capacidade, int capacidadeTitulos) {
+        codigos = new int[capacidade];
+        classificacoes = new byte[capacidade];
+        generos = new byte[capacidade];
+        titulos = new long[capacidade];
+        disponiveis = new AtomicLongArray(palavras(capacidade));
+        removidos = new long[palavras(capacidade)];
+        bytesTitulos = new byte[capacidadeTitulos];
+        fimBytesTitulos = 0;
+    }
+
+    private void crescerVetores() {
+        if (tamanho * 2 < posicoesUsadas) {
+            compactar();
+            return;
+        }
+
+        int novaCapacidade = codigos.length * 2;
+        codigos = Arrays.copyOf(codigos, novaCapacidade);
+        classificacoes = Arrays.copyOf(classificacoes, novaCapacidade);
+        generos = Arrays.copyOf(generos, novaCapacidade);
+        titulos = Arrays.copyOf(titulos, novaCapacidade);
+        removidos = Arrays.copyOf(removidos, palavras(novaCapacidade));
+
+        AtomicLongArray novosDisponiveis = new AtomicLongArray(palavras(novaCapacidade));
+        for (int i = 0; i < disponiveis.length(); i++) {
+            novosDisponiveis.set(i, disponiveis.get(i));
+        }
+        disponiveis = novosDisponiveis;
+    }
+
+    /**
+     * Copia as posições ocupadas para vetores novos, descartando também os
+     * títulos que ficaram sem uso no buffer.
+     */
+    private void compactar() {
+        int[] codigosAntigos = codigos;
+        byte[] classificacoesAntigas = classificacoes;
+        byte[] generosAntigos = generos;
+        long[] titulosAntigos = titulos;
+        byte[] bytesAntigos = bytesTitulos;
+        AtomicLongArray disponiveisAntigos = disponiveis;
+        long[] removidosAntigos = removidos;
+        int usadasAntes = posicoesUsadas;
+
+        alocarVetores(Math.max(CAPACIDADE_INICIAL, codigosAntigos.length), Math.max(CAPACIDADE_INICIAL, bytesAntigos.length));
+
+        int destino = 0;
+        for (int origem = 0; origem < usadasAntes; origem++) {
+            if ((removidosAntigos[origem >>> 6] & (1L << origem)) != 0) {
+                continue;
+            }
+
+            long titulo = titulosAntigos[origem];
+            int inicio = (int) (titulo >>> 32);
+            int comprimento = (int) titulo;
+            System.arraycopy(bytesAntigos, inicio, bytesTitulos, fimBytesTitulos, comprimento);
+            titulos[destino] = ((long) fimBytesTitulos << 32) | comprimento;
+            fimBytesTitulos += comprimento;
+
+            codigos[destino] = codigosAntigos[origem];
+            classificacoes[destino] = classificacoesAntigas[origem];
+            generos[destino] = generosAntigos[origem];
+            if ((disponiveisAntigos.get(origem >>> 6) & (1L << origem)) != 0) {
+                definirDisponivel(destino, true);
+            }
+            destino++;
+        }
+
+        posicoesUsadas = destino;
+        redimensionarTabela(tabela.length);
+    }
+
+    private int localizar(int codigo) {
+        int mascara = tabela.length - 1;
+        int indice = espalhar(codigo) & mascara;
+
+        while (true) {
+            int entrada = tabela[indice];
+            if (entrada == LIVRE) {
+                return -1;
+            }
+            if (entrada > 0 && codigos[entrada - 1] == codigo) {
+                return indice;
+            }
+            indice = (indice + 1) & mascara;
+        }
+    }
+
+    private void ocuparTabela(int codigo, int posicao) {
+        int mascara = tabela.length - 1;
+        int indice = espalhar(codigo) & mascara;
+
+        while (tabela[indice] > 0) {
+            indice = (indice + 1) & mascara;
+        }
+        if (tabela[indice] == REMOVIDO) {
+            removidosNaTabela--;
+        }
+        tabela[indice] = posicao + 1;
+    }
+
+    private void redimensionarTabela(int novoTamanho) {
+        tabela = new int[novoTamanho];
+        removidosNaTabela = 0;
+        for (int posicao = 0; posicao < posicoesUsadas; posicao++) {
+            if (!removida(posicao)) {
+                ocuparTabela(codigos[posicao], posicao);
+            }
+        }
+    }
+
+    private static int palavras(int capacidade) {
+        return (capacidade + 63) >>> 6;
+    }
+
+    private static int espalhar(int chave) {
+        int h = chave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static String valorSeguro(String valor) {
+        return valor == null ? "" : valor;
+    }
+
+    /**
+     * Visão de um filme do catálogo. Guarda só o código e a última posição
+     * conhecida, que é conferida a cada acesso porque a compactação move os
+     * filmes. Os getters leem os vetores com a trava de leitura e os setters
+     * escrevem neles com a de escrita; como no {@link CatalogoObjetos}, mudar
+     * o filme por aqui não atualiza os índices do serviço.
+     *
+     * Os campos herdados de {@link Filme} guardam os últimos valores lidos ou
+     * gravados: depois que o filme sai do catálogo (e a compactação reaproveita
+     * a posição), a visão continua respondendo com eles, porque listas antigas
+     * ainda são lidas pelas telas até serem recarregadas.
+     */
+    private final class FilmeCompacto extends Filme {
+        private int posicao;
+
+        FilmeCompacto(int codigo, int posicao) {
+            super(codigo, null, null, 0, Situacao.INDISPONIVEL);
+            this.posicao = posicao;
+        }
+
+        @Override
+        public String getTitulo() {
+            travaLeitura.lock();
+            try {
+                int atual = posicaoAtual();
+                if (atual >= 0) {
+                    super.setTitulo(titulo(atual));
+                }
+                return super.getTitulo();
+            } finally {
+                travaLeitura.unlock();
+            }
+        }
+
+        @Override
+        public String getGenero() {
+            travaLeitura.lock();
+            try {
+                int atual = posicaoAtual();
+                if (atual >= 0) {
+                    super.setGenero(genero(atual));
+                }
+                return super.getGenero();
+            } finally {
+                travaLeitura.unlock();
+            }
+        }
+
+        @Override
+        public int getClassificacao() {
+            travaLeitura.lock();
+            try {
+                int atual = posicaoAtual();
+                if (atual >= 0) {
+                    super.setClassificacao(classificacoes[atual] & 0xFF);
+                }
+                return super.getClassificacao();
+            } finally {
+                travaLeitura.unlock();
+            }
+        }
+
+        @Override
+        public Situacao getSituacao() {
+            travaLeitura.lock();
+            try {
+                int atual = posicaoAtual();
+                if (atual >= 0) {
+                    super.setSituacao(disponivel(atual) ? Situacao.DISPONIVEL : Situacao.INDISPONIVEL);
+                }
+                return super.getSituacao();
+            } finally {
+                travaLeitura.unlock();
+            }
+        }
+
+        @Override
+        public void setSituacao(Situacao situacao) {
+            travaLeitura.lock();
+            try {
+                boolean disponivel = situacao == Situacao.DISPONIVEL;
+                int atual = posicaoAtual();
+                if (atual >= 0) {
+                    definirDisponivel(atual, disponivel);
+                    if (disponivel) {
+                        cpfsAlugueis.remove(getCodFilme());
+                    }
+                }
+                super.setSituacao(situacao);
+            } finally {
+                travaLeitura.unlock();
+            }
+        }
+
+        @Override
+        public String getCpfClienteAlugou() {
+            return cpfsAlugueis.get(getCodFilme());
+        }
+
+        @Override
+        public void setCpfClienteAlugou(String cpfClienteAlugou) {
+            definirCpf(getCodFilme(), cpfClienteAlugou);
+        }
+
+        @Override
+        public void setTitulo(String titulo) {
+            alterar(atual -> {
+                if (!valorSeguro(titulo).equals(titulo(atual))) {
+                    titulos[atual] = anexarTitulo(titulo);
+                }
+            });
+            super.setTitulo(titulo);
+        }
+
+        @Override
+        public void setGenero(String genero) {
+            alterar(atual -> generos[atual] = (byte) indiceGenero(genero));
+            super.setGenero(genero);
+        }
+
+        @Override
+        public void setClassificacao(int classificacao) {
+            if (classificacao < 0 || classificacao > MAXIMO_CLASSIFICACAO) {
+                throw new IllegalArgumentException("Classificação " + classificacao + " fora do intervalo do catálogo compacto.");
+            }
+            alterar(atual -> classificacoes[atual] = (byte) classificacao);
+            super.setClassificacao(classificacao);
+        }
+
+        @Override
+        public void setCodFilme(int codFilme) {
+            int codigoAntigo = getCodFilme();
+            alterar(atual -> trocarCodigo(atual, codigoAntigo, codFilme));
+            super.setCodFilme(codFilme);
+        }
+
+        @Override
+        public boolean equals(Object outro) {
+            return outro instanceof FilmeCompacto filme && filme.getCodFilme() == getCodFilme();
+        }
+
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(getCodFilme());
+        }
+
+        /**
+         * Aplica a alteração à posição atual com a trava de escrita; se o filme
+         * já saiu do catálogo, só os campos da visão mudam.
+         */
+        private void alterar(IntConsumer alteracao) {
+            if (trava.getReadHoldCount() > 0 && !trava.isWriteLockedByCurrentThread()) {
+                throw new IllegalStateException("Um filme do catálogo compacto não pode ser alterado com a trava de leitura do catálogo.");
+            }
+
+            trava.writeLock().lock();
+            try {
+                int atual = posicaoAtual();
+                if (atual >= 0) {
+                    alteracao.accept(atual);
+                }
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Chamado com uma das travas. Um filme excluído continua legível até a
+         * próxima compactação; depois dela, devolve -1.
+         */
+        private int posicaoAtual() {
+            int codigo = getCodFilme();
+            boolean mesmaPosicao = posicao < posicoesUsadas && codigos[posicao] == codigo;
+            if (mesmaPosicao && !removida(posicao)) {
+                return posicao;
+            }
+
+            int encontrada = posicaoDe(codigo);
+            if (encontrada >= 0) {
+                posicao = encontrada;
+                return encontrada;
+            }
+            return mesmaPosicao ? posicao : -1;
+        }
+    }
+
+    /**
+     * Resultado de {@link #listar()}: vetores de códigos e posições, com as
+     * visões criadas em {@link #get}.
+     */
+    private final class ListaFilmes extends AbstractList<Filme> {
+        private final int[] codigosListados;
+        private final int[] posicoesListadas;
+        private final int quantidade;
+
+        ListaFilmes(int[] codigosListados, int[] posicoesListadas, int quantidade) {
+            this.codigosListados = codigosListados;
+            this.posicoesListadas = posicoesListadas;
+            this.quantidade = quantidade;
+        }
+
+        @Override
+        public Filme get(int indice) {
+            if (indice < 0 || indice >= quantidade) {
+                throw new IndexOutOfBoundsException("Índice " + indice + " fora da lista de " + quantidade + " filmes.");
+            }
+            return new FilmeCompacto(codigosListados[indice], posicoesListadas[indice]);
+        }
+
+        @Override
+        public int size() {
+            return quantidade;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package controller;
+
+import java.util.List;
+import java.util.function.Consumer;
+import model.Filme;
+
+/**
+ * Armazenamento do catálogo em memória usado pelo {@link FilmeService}.
+ *
+ * Há duas implementações, escolhidas pela propriedade de sistema
+ * {@value FilmeService#PROPRIEDADE_CATALOGO}: {@link CatalogoObjetos}
+ * (padrão), que guarda um {@link Filme} por título, e {@link CatalogoCompacto},
+ * que guarda vetores primitivos paralelos e devolve filmes como visões sobre
+ * eles. O serviço chama as alterações com a trava de escrita do catálogo e as
+ * consultas com a trava de leitura.
+ */
+interface CatalogoFilmes {
+
+    int tamanho();
+
+    boolean contem(int codigo);
+
+    /**
+     * @return o filme com o código, ou {@code null}
+     */
+    Filme obter(int codigo);
+
+    /**
+     * Insere o filme ou substitui os dados do filme com o mesmo código,
+     * mantendo a posição original na ordem de cadastro.
+     */
+    void inserir(Filme filme);
+
+    /**
+     * @return o filme removido, ou {@code null} se o código não existia
+     */
+    Filme remover(int codigo);
+
+    void limpar();
+
+    /**
+     * Percorre os filmes na ordem de cadastro.
+     */
+    void paraCada(Consumer<? super Filme> acao);
+
+    /**
+     * @return os filmes na ordem de cadastro, em uma lista que não muda com
+     *         cadastros ou exclusões posteriores
+     */
+    List<Filme> listar();
+}
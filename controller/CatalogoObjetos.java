@@ -0,0 +1,57 @@
+package controller;
+
+import java.util.List;
+import java.util.function.Consumer;
+import model.Filme;
+
+/**
+ * Catálogo padrão: um objeto {@link Filme} por título em um
+ * {@link MapaInteiro} indexado pelo código.
+ */
+final class CatalogoObjetos implements CatalogoFilmes {
+    private final MapaInteiro<Filme> filmes;
+
+    CatalogoObjetos() {
+        this.filmes = new MapaInteiro<>();
+    }
+
+    @Override
+    public int tamanho() {
+        return filmes.tamanho();
+    }
+
+    @Override
+    public boolean contem(int codigo) {
+        return filmes.contem(codigo);
+    }
+
+    @Override
+    public Filme obter(int codigo) {
+        return filmes.obter(codigo);
+    }
+
+    @Override
+    public void inserir(Filme filme) {
+        filmes.inserir(filme.getCodFilme(), filme);
+    }
+
+    @Override
+    public Filme remover(int codigo) {
+        return filmes.remover(codigo);
+    }
+
+    @Override
+    public void limpar() {
+        filmes.limpar();
+    }
+
+    @Override
+    public void paraCada(Consumer<? super Filme> acao) {
+        filmes.paraCada(acao);
+    }
+
+    @Override
+    public List<Filme> listar() {
+        return filmes.listar();
+    }
+}
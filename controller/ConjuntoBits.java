@@ -0,0 +1,254 @@
+package controller;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Conjunto de códigos de filme em um mapa de bits paginado.
+ *
+ * Os códigos são divididos em páginas de {@value #BITS_POR_PAGINA} bits,
+ * guardadas em um {@link MapaInteiro} pelo número da página; só existem as
+ * páginas de faixas com filmes cadastrados, então códigos esparsos não
+ * custam memória. A contagem é mantida a cada alteração e sai em O(1), e a
+ * listagem percorre só as palavras das páginas existentes.
+ *
+ * Criar uma página ({@link #preparar}) altera o mapa e exige acesso
+ * exclusivo (a trava de escrita do catálogo). Depois disso, marcar e
+ * desmarcar códigos da página é atômico e pode acontecer em várias threads ao
+ * mesmo tempo, como nas locações sob travas por faixa.
+ *
+ * Consultas sobre vários conjuntos ({@link #contar}, {@link #listar(ConjuntoBits[][])})
+ * combinam as páginas palavra a palavra, 64 códigos por operação.
+ */
+final class ConjuntoBits {
+    private static final int BITS_PAGINA_LOG = 12;
+    private static final int BITS_POR_PAGINA = 1 << BITS_PAGINA_LOG;
+    private static final int PALAVRAS_POR_PAGINA = BITS_POR_PAGINA / 64;
+
+    private final MapaInteiro<AtomicLongArray> paginas;
+    private final AtomicInteger tamanho;
+
+    ConjuntoBits() {
+        this.paginas = new MapaInteiro<>();
+        this.tamanho = new AtomicInteger();
+    }
+
+    int tamanho() {
+        return tamanho.get();
+    }
+
+    /**
+     * Garante a página do código, para que {@link #adicionar} e
+     * {@link #remover} possam ser chamados sem acesso exclusivo.
+     */
+    void preparar(int codigo) {
+        int numero = codigo >> BITS_PAGINA_LOG;
+        if (!paginas.contem(numero)) {
+            paginas.inserir(numero, new AtomicLongArray(PALAVRAS_POR_PAGINA));
+        }
+    }
+
+    boolean contem(int codigo) {
+        AtomicLongArray pagina = paginas.obter(codigo >> BITS_PAGINA_LOG);
+        return pagina != null && (pagina.get(palavra(codigo)) & mascara(codigo)) != 0;
+    }
+
+    /**
+     * @return {@code true} se o código não estava no conjunto
+     * @throws IllegalStateException se a página do código não foi preparada
+     */
+    boolean adicionar(int codigo) {
+        return alterar(codigo, true);
+    }
+
+    /**
+     * @return {@code true} se o código estava no conjunto
+     */
+    boolean remover(int codigo) {
+        if (paginas.obter(codigo >> BITS_PAGINA_LOG) == null) {
+            return false;
+        }
+        return alterar(codigo, false);
+    }
+
+    void limpar() {
+        paginas.limpar();
+        tamanho.set(0);
+    }
+
+    /**
+     * @return os códigos do conjunto em ordem crescente
+     */
+    int[] listar() {
+        return listar(new ConjuntoBits[][] {{this}});
+    }
+
+    /**
+     * Conta os códigos presentes em todos os critérios, sem montar a lista.
+     *
+     * @param criterios cada critério é a união dos seus conjuntos; o resultado
+     *                  é a interseção dos critérios
+     */
+    static int contar(ConjuntoBits[]... criterios) {
+        int[] quantidade = new int[1];
+        percorrer(criterios, (base, bits) -> quantidade[0] += Long.bitCount(bits));
+        return quantidade[0];
+    }
+
+    /**
+     * @param criterios como em {@link #contar}
+     * @return os códigos presentes em todos os critérios, em ordem crescente
+     */
+    static int[] listar(ConjuntoBits[]... criterios) {
+        int[][] codigos = {new int[64]};
+        int[] quantidade = new int[1];
+        percorrer(criterios, (base, bits) -> {
+            if (quantidade[0] + 64 > codigos[0].length) {
+                codigos[0] = Arrays.copyOf(codigos[0], codigos[0].length * 2);
+            }
+            while (bits != 0) {
+                codigos[0][quantidade[0]++] = base + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        });
+        return Arrays.copyOf(codigos[0], quantidade[0]);
+    }
+
+    /**
+     * Combina as páginas palavra a palavra. Só são visitadas as páginas do
+     * critério com menos elementos: uma página que falta em algum critério
+     * não tem nenhum código em comum e é pulada inteira.
+     */
+    private static void percorrer(ConjuntoBits[][] criterios, ConsumidorPalavra acao) {
+        if (criterios.length == 0) {
+            throw new IllegalArgumentException("Informe ao menos um critério.");
+        }
+
+        ConjuntoBits[] guia = criterios[0];
+        long menor = Long.MAX_VALUE;
+        for (ConjuntoBits[] criterio : criterios) {
+            long tamanho = 0;
+            for (ConjuntoBits conjunto : criterio) {
+                tamanho += conjunto.tamanho();
+            }
+            if (tamanho < menor) {
+                menor = tamanho;
+                guia = criterio;
+            }
+        }
+        if (menor == 0) {
+            return;
+        }
+
+        AtomicLongArray[][] paginasDaVez = new AtomicLongArray[criterios.length][];
+        for (int numero : numerosDasPaginas(guia)) {
+            if (!reunirPaginas(criterios, numero, paginasDaVez)) {
+                continue;
+            }
+
+            int base = numero << BITS_PAGINA_LOG;
+            for (int i = 0; i < PALAVRAS_POR_PAGINA; i++) {
+                long bits = -1L;
+                for (int c = 0; c < paginasDaVez.length && bits != 0; c++) {
+                    long uniao = 0;
+                    for (AtomicLongArray pagina : paginasDaVez[c]) {
+                        uniao |= pagina.get(i);
+                    }
+                    bits &= uniao;
+                }
+                if (bits != 0) {
+                    acao.aceitar(base + i * 64, bits);
+                }
+            }
+        }
+    }
+
+    /**
+     * Separa, para cada critério, as páginas existentes com o número dado.
+     *
+     * @return {@code false} se algum critério não tem a página
+     */
+    private static boolean reunirPaginas(ConjuntoBits[][] criterios, int numero, AtomicLongArray[][] destino) {
+        for (int c = 0; c < criterios.length; c++) {
+            AtomicLongArray[] encontradas = new AtomicLongArray[criterios[c].length];
+            int quantidade = 0;
+            for (ConjuntoBits conjunto : criterios[c]) {
+                AtomicLongArray pagina = conjunto.paginas.obter(numero);
+                if (pagina != null) {
+                    encontradas[quantidade++] = pagina;
+                }
+            }
+            if (quantidade == 0) {
+                return false;
+            }
+            destino[c] = quantidade == encontradas.length ? encontradas : Arrays.copyOf(encontradas, quantidade);
+        }
+        return true;
+    }
+
+    private boolean alterar(int codigo, boolean presente) {
+        AtomicLongArray pagina = paginas.obter(codigo >> BITS_PAGINA_LOG);
+        if (pagina == null) {
+            throw new IllegalStateException("Página do código " + codigo + " não foi preparada.");
+        }
+
+        int indice = palavra(codigo);
+        long mascara = mascara(codigo);
+        while (true) {
+            long atual = pagina.get(indice);
+            boolean estava = (atual & mascara) != 0;
+            if (estava == presente) {
+                return false;
+            }
+
+            long novo = presente ? atual | mascara : atual & ~mascara;
+            if (pagina.compareAndSet(indice, atual, novo)) {
+                tamanho.addAndGet(presente ? 1 : -1);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return os números das páginas dos conjuntos, sem repetição e em ordem
+     */
+    private static int[] numerosDasPaginas(ConjuntoBits[] conjuntos) {
+        int total = 0;
+        for (ConjuntoBits conjunto : conjuntos) {
+            total += conjunto.paginas.tamanho();
+        }
+
+        int[] numeros = new int[total];
+        int[] quantidade = new int[1];
+        for (ConjuntoBits conjunto : conjuntos) {
+            conjunto.paginas.paraCadaEntrada((numero, pagina) -> numeros[quantidade[0]++] = numero);
+        }
+        Arrays.sort(numeros);
+
+        int distintos = 0;
+        for (int i = 0; i < numeros.length; i++) {
+            if (i == 0 || numeros[i] != numeros[i - 1]) {
+                numeros[distintos++] = numeros[i];
+            }
+        }
+        return Arrays.copyOf(numeros, distintos);
+    }
+
+    private static int palavra(int codigo) {
+        return (codigo & (BITS_POR_PAGINA - 1)) >>> 6;
+    }
+
+    private static long mascara(int codigo) {
+        return 1L << codigo;
+    }
+
+    @FunctionalInterface
+    private interface ConsumidorPalavra {
+        /**
+         * @param base código do bit menos significativo da palavra
+         * @param bits palavra com os códigos encontrados
+         */
+        void aceitar(int base, long bits);
+    }
+}
@@ -0,0 +1,17 @@
+package controller;
+
+import java.util.Map;
+
+/**
+ * Contagens de filmes para montar os filtros da tela. Cada faceta é contada
+ * com os demais critérios aplicados e o seu próprio liberado, para que a tela
+ * mostre quantos filmes a troca de um valor traria.
+ *
+ * @param total             filmes que atendem a todos os critérios
+ * @param disponiveis       filmes do gênero e classificação escolhidos que estão disponíveis
+ * @param porGenero         gênero para quantidade, em ordem alfabética
+ * @param porClassificacao  classificação exata para quantidade, em ordem crescente
+ */
+public record ContagemFacetas(int total, int disponiveis,
+        Map<String, Integer> porGenero, Map<Integer, Integer> porClassificacao) {
+}
@@ -0,0 +1,275 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Diário (journal) de escrita antecipada usado pelos serviços para evitar
+ * reescrever o arquivo inteiro a cada alteração.
+ *
+ * Cada alteração é anexada como um registro curto em "<arquivo>.diario",
+ * uma linha terminada pelo separador. O arquivo principal funciona como
+ * checkpoint: na inicialização o serviço lê o checkpoint e reaplica os
+ * registros pendentes, sem o último se ele ficou sem o separador. Quando o diário passa do
+ * limite, ele é rotacionado para "<arquivo>.diario.anterior" e um novo
+ * checkpoint é gravado em segundo plano; só depois disso o diário antigo é
+ * apagado. Os registros precisam ser idempotentes (estado completo do item),
+ * pois um diário anterior pode ser reaplicado sobre um checkpoint já novo.
+ *
+ * As gravações passam pelo {@link EscritorAssincrono}; a rotação roda na
+ * mesma fila, depois dos registros que vieram antes dela.
+ *
+ * Nas {@link Metricas} do serviço ficam o tempo até cada registro ficar
+ * durável ("gravacaoDiario"), a gravação dos checkpoints e os tamanhos do
+ * checkpoint e dos diários.
+ */
+final class Diario {
+    static final int LIMITE_PADRAO = 500;
+
+    private static final Logger LOG = Logger.getLogger(Diario.class.getName());
+    private final File arquivoCheckpoint;
+    private final File arquivoDiario;
+    private final File arquivoDiarioAnterior;
+    private final int limiteRegistros;
+    private final EscritorAssincrono escritor;
+    private final ExecutorService compactador;
+    private final Metricas metricas;
+    /** Serializa a gravação do checkpoint; quando usada junto com o monitor do diário, vem sempre antes dele. */
+    private final Object travaCheckpoint = new Object();
+
+    private int registrosDesdeCheckpoint;
+    private boolean compactando;
+    /** Incrementada a cada {@link #reescrever}, para descartar checkpoints antigos ainda em andamento. */
+    private int geracao;
+
+    Diario(File arquivoCheckpoint, int limiteRegistros, Metricas metricas) {
+        this.arquivoCheckpoint = arquivoCheckpoint;
+        this.arquivoDiario = new File(arquivoCheckpoint.getPath() + ".diario");
+        this.arquivoDiarioAnterior = new File(arquivoCheckpoint.getPath() + ".diario.anterior");
+        this.limiteRegistros = limiteRegistros;
+        this.escritor = EscritorAssincrono.getInstance();
+        this.compactador = Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "checkpoint-" + arquivoCheckpoint.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.metricas = metricas;
+
+        metricas.medidor("bytesArquivo", arquivoCheckpoint::length);
+        metricas.medidor("bytesDiario", () -> arquivoDiario.length() + arquivoDiarioAnterior.length());
+        metricas.medidor("registrosDesdeCheckpoint", this::getRegistrosDesdeCheckpoint);
+    }
+
+    /**
+     * Lê os registros ainda não incorporados ao checkpoint, na ordem em que
+     * foram gravados (diário anterior primeiro, depois o atual).
+     */
+    synchronized List<String> lerPendentes() {
+        List<String> registros = new ArrayList<>();
+        lerRegistros(arquivoDiarioAnterior, registros);
+        lerRegistros(arquivoDiario, registros);
+        registrosDesdeCheckpoint = registros.size();
+        return registros;
+    }
+
+    /**
+     * Anexa um registro ao final do diário.
+     *
+     * @return futuro concluído quando o registro estiver durável
+     */
+    synchronized CompletableFuture<Void> anexar(String registro) {
+        registrosDesdeCheckpoint++;
+        return medirGravacao(escritor.anexar(arquivoDiario, registro), 1);
+    }
+
+    /**
+     * Anexa vários registros de uma vez, na mesma escrita.
+     *
+     * @return futuro concluído quando todos os registros estiverem duráveis
+     */
+    synchronized CompletableFuture<Void> anexar(List<String> registros) {
+        registrosDesdeCheckpoint += registros.size();
+        return medirGravacao(escritor.anexar(arquivoDiario, registros), registros.size());
+    }
+
+    private CompletableFuture<Void> medirGravacao(CompletableFuture<Void> gravacao, int registros) {
+        long inicio = System.nanoTime();
+        metricas.somar("registrosDiario", registros);
+        return gravacao.whenComplete((ignorado, erro) -> metricas.operacao("gravacaoDiario").registrar(inicio, erro == null));
+    }
+
+    private synchronized long getRegistrosDesdeCheckpoint() {
+        return registrosDesdeCheckpoint;
+    }
+
+    synchronized boolean deveCompactar() {
+        return !compactando && registrosDesdeCheckpoint >= limiteRegistros;
+    }
+
+    /**
+     * Rotaciona o diário e grava o checkpoint em segundo plano. A fotografia
+     * deve refletir exatamente o estado após o último registro anexado.
+     *
+     * @param fotografia linhas completas do novo checkpoint
+     */
+    synchronized void compactar(List<String> fotografia) {
+        if (compactando) {
+            return;
+        }
+
+        compactando = true;
+        registrosDesdeCheckpoint = 0;
+        int geracaoFotografia = geracao;
+
+        escritor.executar(arquivoDiario, this::rotacionarDiario).whenCompleteAsync((ignorado, erro) -> {
+            if (erro == null) {
+                gravarCheckpoint(fotografia, geracaoFotografia);
+            } else {
+                synchronized (this) {
+                    compactando = false;
+                }
+            }
+        }, compactador);
+    }
+
+    /**
+     * Substitui todo o conteúdo de uma vez: grava o checkpoint e descarta os
+     * diários, esperando os registros já enfileirados. Usado quando o estado
+     * inteiro é trocado (por exemplo, ao importar uma fotografia binária).
+     */
+    void reescrever(List<String> fotografia) {
+        synchronized (this) {
+            geracao++;
+            registrosDesdeCheckpoint = 0;
+        }
+
+        long inicio = System.nanoTime();
+        CompletableFuture<Void> concluido = escritor.executar(arquivoDiario, () -> {
+            synchronized (travaCheckpoint) {
+                escreverCheckpoint(fotografia);
+                Files.deleteIfExists(arquivoDiario.toPath());
+                Files.deleteIfExists(arquivoDiarioAnterior.toPath());
+            }
+        });
+
+        try {
+            concluido.join();
+            metricas.operacao("reescrever").registrar(inicio, true);
+        } catch (RuntimeException e) {
+            metricas.operacao("reescrever").registrar(inicio, false);
+            throw new IllegalStateException("Erro ao gravar " + arquivoCheckpoint.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void gravarCheckpoint(List<String> fotografia, int geracaoFotografia) {
+        synchronized (travaCheckpoint) {
+            try {
+                if (geracaoFotografia == geracaoAtual()) {
+                    escreverCheckpoint(fotografia);
+                    Files.deleteIfExists(arquivoDiarioAnterior.toPath());
+                }
+            } catch (IOException e) {
+                // O diário anterior continua no disco e será reaplicado na próxima carga.
+                LOG.log(Level.WARNING, "Erro ao gravar checkpoint de " + arquivoCheckpoint.getName(), e);
+            } finally {
+                synchronized (this) {
+                    compactando = false;
+                }
+            }
+        }
+    }
+
+    private synchronized int geracaoAtual() {
+        return geracao;
+    }
+
+    /**
+     * Grava o checkpoint de forma durável ({@link ArquivoDuravel}); os
+     * diários só podem ser apagados depois que este método retornar.
+     */
+    private void escreverCheckpoint(List<String> fotografia) throws IOException {
+        long inicio = System.nanoTime();
+        boolean gravado = false;
+
+        try {
+            ArquivoDuravel.substituirLinhas(arquivoCheckpoint, fotografia);
+            gravado = true;
+        } finally {
+            metricas.operacao("checkpoint").registrar(inicio, gravado);
+        }
+    }
+
+    private void rotacionarDiario() throws IOException {
+        if (!arquivoDiario.exists()) {
+            return;
+        }
+
+        if (arquivoDiarioAnterior.exists()) {
+            // Sobrou um diário anterior de uma execução interrompida: junta os dois,
+            // e só apaga o atual depois que a junção estiver no disco.
+            try (FileChannel anterior = FileChannel.open(arquivoDiarioAnterior.toPath(),
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                ByteBuffer conteudo = ByteBuffer.wrap(Files.readAllBytes(arquivoDiario.toPath()));
+                while (conteudo.hasRemaining()) {
+                    anterior.write(conteudo);
+                }
+                anterior.force(true);
+            }
+            Files.delete(arquivoDiario.toPath());
+        } else {
+            Files.move(arquivoDiario.toPath(), arquivoDiarioAnterior.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Cada registro é gravado com o separador de linha no fim, então só os
+     * que terminam nele chegaram inteiros ao disco. Um final sem separador é
+     * de uma gravação interrompida: ele é descartado e cortado do arquivo,
+     * para que o próximo registro anexado não se junte a ele.
+     */
+    private void lerRegistros(File arquivo, List<String> destino) {
+        if (!arquivo.exists()) {
+            return;
+        }
+
+        try {
+            byte[] conteudo = Files.readAllBytes(arquivo.toPath());
+            int completos = conteudo.length;
+            while (completos > 0 && conteudo[completos - 1] != '\n') {
+                completos--;
+            }
+            if (completos < conteudo.length) {
+                LOG.warning("Registro incompleto descartado no fim de " + arquivo.getName()
+                        + " (" + (conteudo.length - completos) + " bytes)");
+                try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.WRITE)) {
+                    canal.truncate(completos);
+                    canal.force(true);
+                }
+            }
+
+            // O decodificador acusa um charset errado em vez de trocar os caracteres.
+            String texto = Charset.defaultCharset().newDecoder()
+                    .decode(ByteBuffer.wrap(conteudo, 0, completos)).toString();
+            for (String linha : texto.split("\\R")) {
+                if (!linha.isEmpty()) {
+                    destino.add(linha);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao ler diário " + arquivo.getName() + ": " + e.getMessage(), e);
+        }
+    }
+}
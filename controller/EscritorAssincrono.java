@@ -0,0 +1,384 @@
+package controller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estágio de persistência assíncrona compartilhado pelos serviços.
+ *
+ * As gravações entram em uma fila e uma única thread as agrupa em lotes: tudo
+ * o que chegou enquanto o lote anterior era gravado vai para o disco em uma
+ * escrita por arquivo. Assim a thread que chamou (normalmente a EDT do Swing)
+ * não espera pelo disco, e rajadas de vários balcões viram poucas escritas.
+ *
+ * A política de sincronização ({@code fsync}) é lida da propriedade de sistema
+ * {@value #PROPRIEDADE_POLITICA}:
+ * <ul>
+ * <li>{@code commit}: força o disco ao fim de cada lote;</li>
+ * <li>{@code periodica:<ms>} (padrão {@code periodica:1000}): força o disco
+ * no intervalo informado;</li>
+ * <li>{@code fechar}: só força o disco ao encerrar a aplicação.</li>
+ * </ul>
+ * Cada gravação devolve um {@link CompletableFuture} que é concluído quando os
+ * dados estão duráveis segundo a política (na política {@code fechar}, quando
+ * chegam ao sistema operacional), ou com o erro, se a gravação falhar. Quem
+ * não acompanha cada futuro fica sabendo da falha por {@link #sincronizar()}:
+ * o pedido de sincronização falha com o primeiro erro desde o pedido anterior.
+ */
+final class EscritorAssincrono {
+    static final String PROPRIEDADE_POLITICA = "locadora.sincronizacao";
+
+    private static final int TAMANHO_MAXIMO_LOTE = 4096;
+    private static final long ESPERA_OCIOSA_MS = 1000;
+    private static final EscritorAssincrono INSTANCE = new EscritorAssincrono(
+            System.getProperty(PROPRIEDADE_POLITICA, "periodica:1000"));
+
+    enum Politica {
+        A_CADA_COMMIT,
+        PERIODICA,
+        AO_FECHAR
+    }
+
+    private final Politica politica;
+    private final long intervaloSincronizacaoMs;
+    private final Charset charset;
+    private final byte[] separadorLinha;
+    private final BlockingQueue<Pedido> fila;
+    private final Map<File, FileChannel> canais;
+    private final List<CompletableFuture<Void>> aguardandoSincronizacao;
+    private final Thread escritor;
+
+    private volatile boolean fechando;
+    private long proximaSincronizacao;
+    /** Primeiro erro desde o último pedido de sincronização; só usado pela thread de gravação. */
+    private RuntimeException falhaDesdeSincronizacao;
+
+    private EscritorAssincrono(String configuracao) {
+        String valor = configuracao.trim().toLowerCase();
+
+        if (valor.equals("commit")) {
+            this.politica = Politica.A_CADA_COMMIT;
+            this.intervaloSincronizacaoMs = 0;
+        } else if (valor.equals("fechar")) {
+            this.politica = Politica.AO_FECHAR;
+            this.intervaloSincronizacaoMs = 0;
+        } else if (valor.startsWith("periodica")) {
+            int separador = valor.indexOf(':');
+            this.politica = Politica.PERIODICA;
+            this.intervaloSincronizacaoMs = separador < 0 ? 1000 : Long.parseLong(valor.substring(separador + 1));
+        } else {
+            throw new IllegalArgumentException("Política de sincronização inválida: " + configuracao);
+        }
+
+        this.charset = Charset.defaultCharset();
+        this.separadorLinha = System.lineSeparator().getBytes(charset);
+        this.fila = new LinkedBlockingQueue<>();
+        this.canais = new HashMap<>();
+        this.aguardandoSincronizacao = new ArrayList<>();
+        this.proximaSincronizacao = System.currentTimeMillis() + intervaloSincronizacaoMs;
+
+        this.escritor = new Thread(this::executar, "escritor-persistencia");
+        this.escritor.setDaemon(true);
+        this.escritor.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::fechar, "fechar-persistencia"));
+    }
+
+    static EscritorAssincrono getInstance() {
+        return INSTANCE;
+    }
+
+    Politica getPolitica() {
+        return politica;
+    }
+
+    /**
+     * Enfileira uma linha para ser anexada ao final do arquivo.
+     */
+    CompletableFuture<Void> anexar(File arquivo, String linha) {
+        return enfileirar(new Pedido(arquivo, linha, null));
+    }
+
+    /**
+     * Enfileira várias linhas como um único pedido, gravadas juntas na mesma
+     * escrita, sem linhas de outros pedidos no meio.
+     */
+    CompletableFuture<Void> anexar(File arquivo, List<String> linhas) {
+        return enfileirar(new Pedido(arquivo, String.join(System.lineSeparator(), linhas), null));
+    }
+
+    /**
+     * Executa uma tarefa na thread de gravação, depois de todas as gravações
+     * já enfileiradas. O canal do arquivo é fechado antes, então a tarefa pode
+     * renomear, apagar ou reescrever o arquivo com segurança.
+     */
+    CompletableFuture<Void> executar(File arquivo, TarefaArquivo tarefa) {
+        return enfileirar(new Pedido(arquivo, null, tarefa));
+    }
+
+    /**
+     * @return futuro concluído quando tudo o que foi enfileirado antes estiver
+     *         forçado no disco, qualquer que seja a política; falha se alguma
+     *         gravação, tarefa ou sincronização falhou desde o último pedido
+     */
+    CompletableFuture<Void> sincronizar() {
+        return enfileirar(new Pedido(null, null, null));
+    }
+
+    private CompletableFuture<Void> enfileirar(Pedido pedido) {
+        if (fechando) {
+            throw new IllegalStateException("O estágio de persistência já foi encerrado.");
+        }
+        fila.add(pedido);
+        return pedido.concluido;
+    }
+
+    /**
+     * Grava o que ainda estiver na fila, força o disco e fecha os arquivos.
+     */
+    void fechar() {
+        if (fechando) {
+            return;
+        }
+        fechando = true;
+        fila.add(new Pedido(null, null, null));
+
+        try {
+            escritor.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void executar() {
+        List<Pedido> lote = new ArrayList<>();
+
+        while (true) {
+            try {
+                Pedido primeiro = fila.poll(tempoEspera(), TimeUnit.MILLISECONDS);
+                if (primeiro != null) {
+                    lote.add(primeiro);
+                    fila.drainTo(lote, TAMANHO_MAXIMO_LOTE - 1);
+                    processarLote(lote);
+                    lote.clear();
+                }
+                if (politica == Politica.PERIODICA && System.currentTimeMillis() >= proximaSincronizacao) {
+                    sincronizarTudo();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (fechando && fila.isEmpty()) {
+                break;
+            }
+        }
+
+        sincronizarTudo();
+        for (FileChannel canal : canais.values()) {
+            fecharSilenciosamente(canal);
+        }
+        canais.clear();
+    }
+
+    private long tempoEspera() {
+        if (politica != Politica.PERIODICA) {
+            return ESPERA_OCIOSA_MS;
+        }
+        return Math.max(1, proximaSincronizacao - System.currentTimeMillis());
+    }
+
+    private void processarLote(List<Pedido> lote) {
+        Map<File, ByteArrayOutputStream> pendentes = new LinkedHashMap<>();
+        Map<File, List<CompletableFuture<Void>>> futurosPendentes = new HashMap<>();
+        List<CompletableFuture<Void>> gravados = new ArrayList<>();
+
+        for (Pedido pedido : lote) {
+            if (pedido.linha != null) {
+                ByteArrayOutputStream bytes = pendentes.computeIfAbsent(pedido.arquivo, arquivo -> new ByteArrayOutputStream());
+                bytes.writeBytes(pedido.linha.getBytes(charset));
+                bytes.writeBytes(separadorLinha);
+                futurosPendentes.computeIfAbsent(pedido.arquivo, arquivo -> new ArrayList<>()).add(pedido.concluido);
+                continue;
+            }
+
+            // Tarefas e sincronizações respeitam a ordem: o que veio antes vai para o disco primeiro.
+            gravarPendentes(pendentes, futurosPendentes, gravados);
+
+            if (pedido.tarefa != null) {
+                executarTarefa(pedido);
+            } else {
+                concluirSincronizados(gravados);
+                concluirPedidoSincronizacao(pedido.concluido);
+            }
+        }
+
+        gravarPendentes(pendentes, futurosPendentes, gravados);
+
+        switch (politica) {
+            case A_CADA_COMMIT:
+                concluirSincronizados(gravados);
+                break;
+            case PERIODICA:
+                aguardandoSincronizacao.addAll(gravados);
+                break;
+            default:
+                gravados.forEach(futuro -> futuro.complete(null));
+                break;
+        }
+    }
+
+    private void gravarPendentes(Map<File, ByteArrayOutputStream> pendentes,
+            Map<File, List<CompletableFuture<Void>>> futurosPendentes, List<CompletableFuture<Void>> gravados) {
+        for (Map.Entry<File, ByteArrayOutputStream> entrada : pendentes.entrySet()) {
+            File arquivo = entrada.getKey();
+            List<CompletableFuture<Void>> futuros = futurosPendentes.remove(arquivo);
+
+            try {
+                FileChannel canal = abrirCanal(arquivo);
+                ByteBuffer buffer = ByteBuffer.wrap(entrada.getValue().toByteArray());
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+                gravados.addAll(futuros);
+            } catch (IOException e) {
+                IllegalStateException erro = new IllegalStateException("Erro ao gravar " + arquivo.getName() + ": " + e.getMessage(), e);
+                registrarFalha(erro);
+                futuros.forEach(futuro -> futuro.completeExceptionally(erro));
+                fecharSilenciosamente(canais.remove(arquivo));
+            }
+        }
+        pendentes.clear();
+    }
+
+    private void executarTarefa(Pedido pedido) {
+        FileChannel canal = canais.remove(pedido.arquivo);
+        try {
+            if (canal != null) {
+                canal.force(false);
+                canal.close();
+            }
+            pedido.tarefa.executar();
+            pedido.concluido.complete(null);
+        } catch (IOException | RuntimeException e) {
+            registrarFalha(e instanceof RuntimeException erro ? erro
+                    : new IllegalStateException("Erro ao processar " + pedido.arquivo.getName() + ": " + e.getMessage(), e));
+            pedido.concluido.completeExceptionally(e);
+        }
+    }
+
+    private void concluirSincronizados(List<CompletableFuture<Void>> gravados) {
+        concluir(gravados, sincronizarTudo());
+    }
+
+    private void concluirPedidoSincronizacao(CompletableFuture<Void> concluido) {
+        RuntimeException falha = falhaDesdeSincronizacao;
+        falhaDesdeSincronizacao = null;
+        if (falha == null) {
+            concluido.complete(null);
+        } else {
+            concluido.completeExceptionally(falha);
+        }
+    }
+
+    /**
+     * Força todos os canais abertos e conclui as gravações que esperavam por
+     * isso; se algum canal falhar, elas falham também, pois não há como saber
+     * quais dados chegaram ao disco.
+     *
+     * @return o erro da sincronização, ou {@code null}
+     */
+    private RuntimeException sincronizarTudo() {
+        RuntimeException erro = null;
+        for (Map.Entry<File, FileChannel> entrada : canais.entrySet()) {
+            try {
+                entrada.getValue().force(false);
+            } catch (IOException e) {
+                if (erro == null) {
+                    erro = new IllegalStateException("Erro ao sincronizar " + entrada.getKey().getName() + ": " + e.getMessage(), e);
+                    registrarFalha(erro);
+                }
+            }
+        }
+        concluir(aguardandoSincronizacao, erro);
+        proximaSincronizacao = System.currentTimeMillis() + intervaloSincronizacaoMs;
+        return erro;
+    }
+
+    private void registrarFalha(RuntimeException erro) {
+        if (falhaDesdeSincronizacao == null) {
+            falhaDesdeSincronizacao = erro;
+        }
+    }
+
+    private static void concluir(List<CompletableFuture<Void>> futuros, RuntimeException erro) {
+        for (CompletableFuture<Void> futuro : futuros) {
+            if (erro == null) {
+                futuro.complete(null);
+            } else {
+                futuro.completeExceptionally(erro);
+            }
+        }
+        futuros.clear();
+    }
+
+    private FileChannel abrirCanal(File arquivo) throws IOException {
+        FileChannel canal = canais.get(arquivo);
+        if (canal == null) {
+            canal = FileChannel.open(arquivo.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            canais.put(arquivo, canal);
+        }
+        return canal;
+    }
+
+    private static void fecharSilenciosamente(FileChannel canal) {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            // Nada a fazer: o canal já estava com erro.
+        }
+    }
+
+    /**
+     * Operação de arquivo executada na thread de gravação.
+     */
+    @FunctionalInterface
+    interface TarefaArquivo {
+        void executar() throws IOException;
+    }
+
+    /**
+     * Item da fila: uma linha a anexar, uma tarefa ou, com ambos nulos, um
+     * pedido de sincronização.
+     */
+    private static final class Pedido {
+        private final File arquivo;
+        private final String linha;
+        private final TarefaArquivo tarefa;
+        private final CompletableFuture<Void> concluido = new CompletableFuture<>();
+
+        Pedido(File arquivo, String linha, TarefaArquivo tarefa) {
+            this.arquivo = arquivo;
+            this.linha = linha;
+            this.tarefa = tarefa;
+        }
+    }
+}
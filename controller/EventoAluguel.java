@@ -0,0 +1,22 @@
+package controller;
+
+import java.time.Instant;
+
+/**
+ * Um aluguel ou uma devolução, com o instante em que aconteceu.
+ *
+ * @param instante  quando a operação foi registrada
+ * @param tipo      aluguel ou devolução
+ * @param clienteId cliente que alugou; numa devolução, -1 se ele não for
+ *                  conhecido
+ * @param codFilme  código do filme
+ * @param prazo     data prevista de devolução, só nos aluguéis ({@code null}
+ *                  nas devoluções)
+ */
+public record EventoAluguel(Instant instante, Tipo tipo, long clienteId, int codFilme, Instant prazo) {
+
+    public enum Tipo {
+        ALUGUEL,
+        DEVOLUCAO
+    }
+}
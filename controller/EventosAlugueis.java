@@ -0,0 +1,401 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Aluguéis e devoluções com data e hora, em ordem de tempo, em um arquivo por
+ * mês (UTC): "alugueis.txt.eventos-2026-10".
+ *
+ * Cada evento é uma linha de largura fixa
+ * ({@code instante;tipo;cliente;filme;prazo}, números com zeros à esquerda),
+ * então a linha i começa no byte i × tamanho da linha e o arquivo pode ser
+ * pesquisado por busca binária sem índice. Os meses ficam num mapa ordenado
+ * pelo início do período; uma consulta "entre duas datas" acha os meses pelo
+ * mapa, as pontas dentro de cada um por busca binária e lê só as linhas do
+ * intervalo: O(log n + resultado).
+ *
+ * Os instantes nunca diminuem (um relógio que volta é ignorado), o que mantém
+ * os arquivos ordenados. As linhas vão para o disco pelo
+ * {@link EscritorAssincrono}; até a gravação ser confirmada, os eventos ficam
+ * em memória e as consultas os leem de lá.
+ */
+final class EventosAlugueis {
+    private static final String PREFIXO = ".eventos-";
+    /** Caracteres de uma linha, sem o separador. */
+    private static final int LARGURA = 62;
+    private static final char ALUGUEL = 'A';
+    private static final char DEVOLUCAO = 'D';
+    /** Linhas lidas de uma vez na procura de trás para frente. */
+    private static final int LINHAS_POR_BLOCO = 4096;
+
+    private final File arquivoBase;
+    private final int tamanhoSeparador;
+    /** Meses por instante inicial, em milissegundos. */
+    private final TreeMap<Long, Mes> meses;
+    /** Eventos enviados ao escritor e ainda não confirmados, em ordem de envio. */
+    private final Deque<Pendente> pendentes;
+    private long ultimoInstante;
+
+    /**
+     * @param arquivoBase "alugueis.txt"; os arquivos mensais ficam ao lado
+     */
+    EventosAlugueis(File arquivoBase) {
+        this.arquivoBase = arquivoBase;
+        this.tamanhoSeparador = System.lineSeparator().length();
+        this.meses = new TreeMap<>();
+        this.pendentes = new ArrayDeque<>();
+
+        try {
+            carregar();
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao ler eventos de aluguel: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Registra os eventos na ordem da lista. Um instante anterior ao último
+     * registrado é trocado por ele.
+     *
+     * @return os eventos como foram gravados
+     */
+    synchronized List<EventoAluguel> registrar(List<EventoAluguel> eventos) {
+        List<EventoAluguel> gravados = new ArrayList<>(eventos.size());
+        List<Pendente> lote = new ArrayList<>(eventos.size());
+        Mes mes = null;
+
+        for (EventoAluguel evento : eventos) {
+            long instante = Math.max(evento.instante().toEpochMilli(), ultimoInstante);
+            ultimoInstante = instante;
+            // O arquivo guarda milissegundos; o evento em memória fica igual ao que será lido dele.
+            EventoAluguel gravado = Instant.ofEpochMilli(instante).equals(evento.instante()) ? evento
+                    : new EventoAluguel(Instant.ofEpochMilli(instante), evento.tipo(), evento.clienteId(),
+                            evento.codFilme(), evento.prazo());
+
+            Mes doEvento = mesDe(instante);
+            if (mes != null && doEvento != mes) {
+                enviar(mes, lote);
+                lote = new ArrayList<>();
+            }
+            mes = doEvento;
+
+            Pendente pendente = new Pendente(mes, gravado);
+            pendentes.addLast(pendente);
+            mes.quantidade++;
+            mes.pendentes++;
+            lote.add(pendente);
+            gravados.add(gravado);
+        }
+
+        if (mes != null) {
+            enviar(mes, lote);
+        }
+        return gravados;
+    }
+
+    /**
+     * @param inicio    início do intervalo, inclusive
+     * @param fim       fim do intervalo, exclusive
+     * @param tipo      tipo dos eventos, ou {@code null} para os dois
+     * @return os eventos do intervalo em ordem de tempo
+     */
+    List<EventoAluguel> listar(Instant inicio, Instant fim, EventoAluguel.Tipo tipo) {
+        long de = inicio.toEpochMilli();
+        long ate = fim.toEpochMilli();
+        if (de >= ate) {
+            return new ArrayList<>();
+        }
+
+        List<Mes> consultados = new ArrayList<>();
+        List<Integer> confirmados = new ArrayList<>();
+        List<EventoAluguel> recentes = new ArrayList<>();
+
+        synchronized (this) {
+            Long primeiroMes = meses.floorKey(de);
+            for (Mes mes : meses.subMap(primeiroMes == null ? de : primeiroMes, true, ate, false).values()) {
+                consultados.add(mes);
+                confirmados.add(mes.quantidade - mes.pendentes);
+            }
+            for (Pendente pendente : pendentes) {
+                long instante = pendente.evento.instante().toEpochMilli();
+                if (instante >= de && instante < ate && (tipo == null || pendente.evento.tipo() == tipo)) {
+                    recentes.add(pendente.evento);
+                }
+            }
+        }
+
+        List<EventoAluguel> eventos = new ArrayList<>();
+        try {
+            for (int i = 0; i < consultados.size(); i++) {
+                consultados.get(i).listar(de, ate, tipo, confirmados.get(i), eventos);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao ler eventos de aluguel: " + e.getMessage(), e);
+        }
+        // Os pendentes vêm depois de tudo o que já está nos arquivos.
+        eventos.addAll(recentes);
+        return eventos;
+    }
+
+    /**
+     * Procura o último evento de cada filme, do mês mais recente para o mais
+     * antigo, e para assim que todos forem achados; como os filmes alugados
+     * costumam ter sido alugados há pouco, em geral só o último mês é lido.
+     *
+     * @param procurados códigos dos filmes; os achados são retirados do conjunto
+     * @return os aluguéis que são o último evento do filme, do mais recente
+     *         para o mais antigo
+     */
+    List<EventoAluguel> ultimosAlugueis(ConjuntoBits procurados) {
+        List<Mes> consultados = new ArrayList<>();
+        List<Integer> confirmados = new ArrayList<>();
+        synchronized (this) {
+            for (Mes mes : meses.descendingMap().values()) {
+                consultados.add(mes);
+                confirmados.add(mes.quantidade - mes.pendentes);
+            }
+        }
+
+        List<EventoAluguel> alugueis = new ArrayList<>();
+        try {
+            for (int i = 0; i < consultados.size() && procurados.tamanho() > 0; i++) {
+                consultados.get(i).ultimosAlugueis(procurados, confirmados.get(i), alugueis);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao ler eventos de aluguel: " + e.getMessage(), e);
+        }
+        return alugueis;
+    }
+
+    private void enviar(Mes mes, List<Pendente> lote) {
+        List<String> linhas = new ArrayList<>(lote.size());
+        for (Pendente pendente : lote) {
+            linhas.add(formatar(pendente.evento));
+        }
+        EscritorAssincrono.getInstance().anexar(mes.arquivo, linhas)
+                .whenComplete((ignorado, erro) -> confirmar(lote, erro == null));
+    }
+
+    /**
+     * Tira da memória os eventos gravados, sempre a partir do mais antigo:
+     * assim os que continuam pendentes em cada mês são as últimas linhas do
+     * arquivo. Um lote que não foi gravado sai da contagem do mês, para que
+     * as linhas seguintes continuem nas posições certas.
+     */
+    private synchronized void confirmar(List<Pendente> lote, boolean gravado) {
+        for (Pendente pendente : lote) {
+            if (gravado) {
+                pendente.confirmado = true;
+            } else {
+                pendentes.remove(pendente);
+                pendente.mes.pendentes--;
+                pendente.mes.quantidade--;
+            }
+        }
+
+        while (!pendentes.isEmpty() && pendentes.peekFirst().confirmado) {
+            pendentes.removeFirst().mes.pendentes--;
+        }
+    }
+
+    private Mes mesDe(long instante) {
+        YearMonth mes = YearMonth.from(Instant.ofEpochMilli(instante).atOffset(ZoneOffset.UTC));
+        long inicioMes = mes.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+
+        Mes existente = meses.get(inicioMes);
+        if (existente == null) {
+            existente = new Mes(new File(arquivoBase.getPath() + PREFIXO + mes), 0);
+            meses.put(inicioMes, existente);
+        }
+        return existente;
+    }
+
+    private void carregar() throws IOException {
+        File diretorio = arquivoBase.getAbsoluteFile().getParentFile();
+        String prefixo = arquivoBase.getName() + PREFIXO;
+        File[] arquivos = diretorio == null ? null : diretorio.listFiles((dir, nome) -> nome.startsWith(prefixo));
+        if (arquivos == null) {
+            return;
+        }
+
+        for (File arquivo : arquivos) {
+            YearMonth mes;
+            try {
+                mes = YearMonth.parse(arquivo.getName().substring(prefixo.length()));
+            } catch (RuntimeException e) {
+                continue;
+            }
+            long inicioMes = mes.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC).toEpochMilli();
+            meses.put(inicioMes, new Mes(new File(arquivoBase.getPath() + PREFIXO + mes), contarLinhas(arquivo)));
+        }
+
+        for (Mes mes : meses.descendingMap().values()) {
+            if (mes.quantidade > 0) {
+                ultimoInstante = mes.lerInstante(mes.quantidade - 1);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Conta as linhas completas; uma linha cortada por uma queda no meio da
+     * gravação é removida, para que as próximas continuem alinhadas.
+     */
+    private int contarLinhas(File arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long tamanhoLinha = LARGURA + tamanhoSeparador;
+            long completas = canal.size() / tamanhoLinha;
+            if (canal.size() != completas * tamanhoLinha) {
+                canal.truncate(completas * tamanhoLinha);
+            }
+            return (int) completas;
+        }
+    }
+
+    private static String formatar(EventoAluguel evento) {
+        return String.format("%013d;%c;%+020d;%+011d;%013d",
+                evento.instante().toEpochMilli(),
+                evento.tipo() == EventoAluguel.Tipo.ALUGUEL ? ALUGUEL : DEVOLUCAO,
+                evento.clienteId(),
+                evento.codFilme(),
+                evento.prazo() == null ? 0L : evento.prazo().toEpochMilli());
+    }
+
+    private static EventoAluguel interpretar(String linha) {
+        long prazo = Long.parseLong(linha.substring(49, 62));
+        return new EventoAluguel(
+                Instant.ofEpochMilli(Long.parseLong(linha.substring(0, 13))),
+                linha.charAt(14) == ALUGUEL ? EventoAluguel.Tipo.ALUGUEL : EventoAluguel.Tipo.DEVOLUCAO,
+                Long.parseLong(linha.substring(16, 36)),
+                Integer.parseInt(linha.substring(37, 48)),
+                prazo == 0 ? null : Instant.ofEpochMilli(prazo));
+    }
+
+    /**
+     * Arquivo de um mês. {@link #quantidade} e {@link #pendentes} são
+     * protegidos pela trava do {@link EventosAlugueis}; a leitura das linhas
+     * já confirmadas roda fora dela.
+     */
+    private final class Mes {
+        private final File arquivo;
+        private int quantidade;
+        private int pendentes;
+        private volatile FileChannel canal;
+
+        Mes(File arquivo, int quantidade) {
+            this.arquivo = arquivo;
+            this.quantidade = quantidade;
+        }
+
+        /**
+         * Acrescenta os eventos de [de, ate) entre as {@code linhas} primeiras
+         * linhas do arquivo.
+         */
+        void listar(long de, long ate, EventoAluguel.Tipo tipo, int linhas, List<EventoAluguel> destino) throws IOException {
+            int primeira = primeiraLinhaDesde(de, linhas);
+            int depois = primeiraLinhaDesde(ate, linhas);
+            if (primeira >= depois) {
+                return;
+            }
+
+            int tamanhoLinha = LARGURA + tamanhoSeparador;
+            byte[] bytes = ler((long) primeira * tamanhoLinha, (depois - primeira) * tamanhoLinha);
+            for (int i = 0; i < depois - primeira; i++) {
+                EventoAluguel evento = interpretar(new String(bytes, i * tamanhoLinha, LARGURA, StandardCharsets.US_ASCII));
+                if (tipo == null || evento.tipo() == tipo) {
+                    destino.add(evento);
+                }
+            }
+        }
+
+        /**
+         * Lê as {@code linhas} primeiras linhas de trás para frente, em
+         * blocos, até não restar filme procurado.
+         */
+        void ultimosAlugueis(ConjuntoBits procurados, int linhas, List<EventoAluguel> destino) throws IOException {
+            int tamanhoLinha = LARGURA + tamanhoSeparador;
+            int fim = linhas;
+            while (fim > 0 && procurados.tamanho() > 0) {
+                int inicio = Math.max(0, fim - LINHAS_POR_BLOCO);
+                byte[] bytes = ler((long) inicio * tamanhoLinha, (fim - inicio) * tamanhoLinha);
+                for (int i = fim - inicio - 1; i >= 0; i--) {
+                    String linha = new String(bytes, i * tamanhoLinha, LARGURA, StandardCharsets.US_ASCII);
+                    if (procurados.remover(Integer.parseInt(linha.substring(37, 48)))) {
+                        EventoAluguel evento = interpretar(linha);
+                        if (evento.tipo() == EventoAluguel.Tipo.ALUGUEL) {
+                            destino.add(evento);
+                        }
+                    }
+                }
+                fim = inicio;
+            }
+        }
+
+        private int primeiraLinhaDesde(long instante, int linhas) throws IOException {
+            int baixo = 0;
+            int alto = linhas;
+            while (baixo < alto) {
+                int meio = (baixo + alto) >>> 1;
+                if (lerInstante(meio) < instante) {
+                    baixo = meio + 1;
+                } else {
+                    alto = meio;
+                }
+            }
+            return baixo;
+        }
+
+        long lerInstante(int linha) throws IOException {
+            byte[] bytes = ler((long) linha * (LARGURA + tamanhoSeparador), 13);
+            return Long.parseLong(new String(bytes, StandardCharsets.US_ASCII));
+        }
+
+        private byte[] ler(long posicao, int tamanho) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+            FileChannel leitor = abrir();
+            while (buffer.hasRemaining()) {
+                if (leitor.read(buffer, posicao + buffer.position()) < 0) {
+                    throw new IOException(arquivo.getName() + " menor que o esperado.");
+                }
+            }
+            return buffer.array();
+        }
+
+        private FileChannel abrir() throws IOException {
+            FileChannel aberto = canal;
+            if (aberto == null) {
+                synchronized (this) {
+                    aberto = canal;
+                    if (aberto == null) {
+                        aberto = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ);
+                        canal = aberto;
+                    }
+                }
+            }
+            return aberto;
+        }
+    }
+
+    private static final class Pendente {
+        private final Mes mes;
+        private final EventoAluguel evento;
+        private boolean confirmado;
+
+        Pendente(Mes mes, EventoAluguel evento) {
+            this.mes = mes;
+            this.evento = evento;
+        }
+    }
+}
@@ -1,165 +1,612 @@
 package controller;
 
 import java.io.File;
-import java.io.FileWriter;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import model.Aluguel;
 import model.Cliente;
 
 import model.Filme;
+import model.Situacao;
 
 /**
- * Serviço responsável por carregar, cadastrar e persistir filmes no arquivo
- * "filmes.txt". Segue o mesmo padrão usado em {@link UsuarioService} para que
- * as telas compartilhem a mesma instância e estado em memória.
+ * Serviço responsável por carregar, cadastrar e persistir filmes. Segue o
+ * mesmo padrão usado em {@link UsuarioService} para que as telas
+ * compartilhem a mesma instância e estado em memória.
+ *
+ * O catálogo e os índices ficam em memória; a persistência é de um
+ * {@link RepositorioFilmes} e de um {@link RepositorioAlugueis}, escolhidos
+ * por {@link Armazenamento}. No padrão, em arquivos, as alterações não
+ * reescrevem "filmes.txt": cada uma é anexada ao {@link Diario} e o arquivo
+ * principal só é regravado periodicamente, em segundo plano; o histórico de
+ * "alugueis.txt" fica em {@link HistoricoAlugueis}, que sela os aluguéis
+ * antigos em segmentos indexados.
+ *
+ * Pode ser usado por várias threads (vários balcões na mesma JVM): a situação
+ * de cada filme muda sob uma trava por faixa de código, e o catálogo em si
+ * sob uma trava de leitura/escrita.
+ *
+ * Cada método público, a carga e o checkpoint têm a latência medida em
+ * {@link Metricas}, publicadas via JMX no grupo "filmes".
  */
 public class FilmeService {
-    private static final FilmeService INSTANCE = new FilmeService();
+    /**
+     * Propriedade de sistema que escolhe o armazenamento do catálogo:
+     * {@code objetos} (padrão) ou {@code compacto} ({@link CatalogoCompacto}).
+     */
+    public static final String PROPRIEDADE_CATALOGO = "locadora.catalogo";
+    /** Propriedade de sistema com o prazo de devolução, em dias (padrão 3). */
+    public static final String PROPRIEDADE_PRAZO = "locadora.prazoDias";
+    /** Aluguéis em cada página do histórico de um cliente. */
+    public static final int ALUGUEIS_POR_PAGINA = 50;
 
-    private final List<Filme> filmes;
-    private final File arquivoFilmes;
-    private final File arquivoAlugueis;
+    private static final FilmeService INSTANCE = new FilmeService();
+    private static final int QUANTIDADE_TRAVAS = 64;
+    /** Classificações indicativas aceitas na importação, em ordem. */
+    private static final int[] CLASSIFICACOES_VALIDAS = {0, 10, 12, 14, 16, 18};
+    private static final int PAGINAS_HISTORICO_EM_CACHE = 256;
+
+    private final CatalogoFilmes filmes;
+    private final RepositorioFilmes repositorioFilmes;
+    /** Histórico por filme e por cliente e os eventos com data e hora, para as consultas por período. */
+    private final RepositorioAlugueis repositorioAlugueis;
+    private final Duration prazoAluguel;
+    /** Aluguéis em aberto por prazo, com os atrasados já separados. */
+    private final AgendaDevolucoes agendaDevolucoes;
+    /** Páginas do histórico por cliente já formatadas, dos clientes consultados há menos tempo. */
+    private final CacheLru<ChavePagina, PaginaHistorico> paginasHistorico;
+    private final IndiceTitulos indiceTitulos;
+    /** Gênero, classificação e disponibilidade de cada código, atualizado junto com o catálogo. */
+    private final IndiceFacetas facetas;
+    /** Protege a estrutura do catálogo: leitura para consultas e locações, escrita para cadastro e exclusão. */
+    private final ReentrantReadWriteLock travaCatalogo;
+    /** Travas por faixa de código, que serializam as mudanças de situação de um mesmo filme. */
+    private final ReentrantLock[] travasFilmes;
+    private volatile List<Filme> visaoFilmes;
+    /** Latência de cada método público e da carga, publicada via JMX no grupo "filmes". */
+    private final Metricas metricas;
 
     private FilmeService() {
-        this.filmes = new ArrayList<>();
-        this.arquivoFilmes = new File("filmes.txt");
-        this.arquivoAlugueis = new File("alugueis.txt");
-        carregarFilmes();
+        this.metricas = Metricas.grupo("filmes");
+        this.travaCatalogo = new ReentrantReadWriteLock();
+        this.filmes = criarCatalogo(System.getProperty(PROPRIEDADE_CATALOGO, "objetos"), travaCatalogo);
+        this.repositorioFilmes = Armazenamento.filmes(metricas);
+        this.repositorioAlugueis = Armazenamento.alugueis(FilmeService::idClientePorCpf, metricas);
+        this.prazoAluguel = Duration.ofDays(Long.parseLong(System.getProperty(PROPRIEDADE_PRAZO, "3").trim()));
+        this.agendaDevolucoes = new AgendaDevolucoes(metricas);
+        this.paginasHistorico = new CacheLru<>(PAGINAS_HISTORICO_EM_CACHE, metricas, "cacheHistorico");
+        this.indiceTitulos = new IndiceTitulos();
+        this.facetas = new IndiceFacetas();
+        this.travasFilmes = new ReentrantLock[QUANTIDADE_TRAVAS];
+        for (int i = 0; i < travasFilmes.length; i++) {
+            travasFilmes[i] = new ReentrantLock();
+        }
+        metricas.medir("carregarFilmes", () -> repositorioFilmes.carregar(this::adicionarAoCatalogo, this::removerDoCatalogo));
+        metricas.medir("carregarPrazos", this::carregarPrazos);
+
+        metricas.medidor("filmes", filmes::tamanho);
+        metricas.medidor("disponiveis", facetas::contarDisponiveis);
+        metricas.medidor("alugueisEmAberto", agendaDevolucoes::quantidadeEmAberto);
+        metricas.medidor("alugueisAtrasados", agendaDevolucoes::quantidadeAtrasados);
+        metricas.medidor("paginasHistoricoEmCache", paginasHistorico::tamanho);
     }
 
     public static FilmeService getInstance() {
         return INSTANCE;
     }
 
+    /**
+     * Usado pela migração do histórico antigo, que guarda o CPF em vez do id
+     * do cliente.
+     */
+    private static long idClientePorCpf(String cpf) {
+        if (cpf == null) {
+            return RegistroAluguel.SEM_ID;
+        }
+        Cliente cliente = UsuarioService.getInstance().buscarClientePorCpf(cpf);
+        return cliente == null ? RegistroAluguel.SEM_ID : cliente.getId();
+    }
+
+    private static CatalogoFilmes criarCatalogo(String configuracao, ReentrantReadWriteLock trava) {
+        switch (configuracao.trim().toLowerCase()) {
+            case "objetos":
+                return new CatalogoObjetos();
+            case "compacto":
+                return new CatalogoCompacto(trava);
+            default:
+                throw new IllegalArgumentException("Catálogo inválido: " + configuracao);
+        }
+    }
+
+    /**
+     * Lista os filmes na ordem de cadastro. A lista só é remontada depois de
+     * um cadastro ou exclusão; mudanças de situação aparecem nela diretamente.
+     */
     public List<Filme> getFilmes() {
-        return Collections.unmodifiableList(filmes);
+        return metricas.medir("getFilmes", () -> {
+            List<Filme> visao = visaoFilmes;
+            if (visao != null) {
+                return visao;
+            }
+
+            travaCatalogo.readLock().lock();
+            try {
+                visao = Collections.unmodifiableList(filmes.listar());
+                visaoFilmes = visao;
+                return visao;
+            } finally {
+                travaCatalogo.readLock().unlock();
+            }
+        });
     }
     
     public Filme buscarFilmePorCodigo(int codigo) {
-        return filmes.stream()
-                .filter(filme -> filme.getCodFilme() == codigo)
-                .findFirst()
-                .orElse(null);
+        return metricas.medir("buscarFilmePorCodigo", () -> {
+            travaCatalogo.readLock().lock();
+            try {
+                return filmes.obter(codigo);
+            } finally {
+                travaCatalogo.readLock().unlock();
+            }
+        });
     }
     
+    /**
+     * Pesquisa filmes cujo título contém o termo (sem diferenciar maiúsculas
+     * nem acentos) ou cujo código é igual ao termo. Os títulos vêm do índice
+     * de trigramas, em ordem de código.
+     */
+    public List<Filme> pesquisarFilmes(String termo) {
+        return metricas.medir("pesquisarFilmes", () -> {
+            travaCatalogo.readLock().lock();
+            try {
+                int[] codigos = indiceTitulos.pesquisar(termo);
+                List<Filme> encontrados = new ArrayList<>(codigos.length + 1);
+
+                Filme porCodigo = filmePorCodigoDigitado(termo);
+                if (porCodigo != null && Arrays.binarySearch(codigos, porCodigo.getCodFilme()) < 0) {
+                    encontrados.add(porCodigo);
+                }
+
+                for (int codigo : codigos) {
+                    encontrados.add(filmes.obter(codigo));
+                }
+                return encontrados;
+            } finally {
+                travaCatalogo.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * @return quantos filmes estão disponíveis, sem percorrer o catálogo
+     */
+    public int contarDisponiveis() {
+        return metricas.medir("contarDisponiveis", () -> facetas.contarDisponiveis());
+    }
+
+    /**
+     * Lista os filmes disponíveis em ordem de código. O custo acompanha a
+     * quantidade de disponíveis, não o tamanho do catálogo.
+     */
+    public List<Filme> listarDisponiveis() {
+        return metricas.medir("listarDisponiveis", () -> {
+            travaCatalogo.readLock().lock();
+            try {
+                return filmesDosCodigos(facetas.listarDisponiveis());
+            } finally {
+                travaCatalogo.readLock().unlock();
+            }
+        });
+    }
+
+    private Filme filmePorCodigoDigitado(String termo) {
+        try {
+            return filmes.obter(Integer.parseInt(termo.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Filtra o catálogo por gênero, classificação máxima e disponibilidade,
+     * em ordem de código. O filtro é resolvido no índice de facetas, sem
+     * percorrer os filmes.
+     *
+     * @param genero              gênero exato, ou {@code null} para todos
+     * @param classificacaoMaxima maior classificação aceita
+     *                            ({@link Integer#MAX_VALUE} para todas)
+     */
+    public List<Filme> filtrarFilmes(String genero, int classificacaoMaxima, boolean somenteDisponiveis) {
+        return metricas.medir("filtrarFilmes", () -> {
+            travaCatalogo.readLock().lock();
+            try {
+                return filmesDosCodigos(facetas.listar(genero, classificacaoMaxima, somenteDisponiveis));
+            } finally {
+                travaCatalogo.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Quantidades por gênero, por classificação e de disponíveis para os
+     * mesmos critérios de {@link #filtrarFilmes}, sem montar as listas.
+     */
+    public ContagemFacetas contarFacetas(String genero, int classificacaoMaxima, boolean somenteDisponiveis) {
+        return metricas.medir("contarFacetas", () -> {
+            travaCatalogo.readLock().lock();
+            try {
+                return facetas.contar(genero, classificacaoMaxima, somenteDisponiveis);
+            } finally {
+                travaCatalogo.readLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Chamado com a trava de leitura, para que nenhum código saia do catálogo
+     * entre a consulta ao índice e a busca do filme.
+     */
+    private List<Filme> filmesDosCodigos(int[] codigos) {
+        List<Filme> encontrados = new ArrayList<>(codigos.length);
+        for (int codigo : codigos) {
+            encontrados.add(filmes.obter(codigo));
+        }
+        return encontrados;
+    }
+
     public List<String> listarHistoricoAlugueisPorFilme(int codigo, UsuarioService usuarioService) {
-        if (!arquivoAlugueis.exists()) {
-            return Collections.emptyList();
+        return metricas.medir("listarHistoricoAlugueisPorFilme", () -> {
+            List<RegistroAluguel> registros = repositorioAlugueis.listarPorFilme(codigo);
+            List<String> historico = new ArrayList<>(registros.size());
+
+            for (RegistroAluguel registro : registros) {
+                Cliente cliente = registro.possuiClienteId()
+                        ? usuarioService.buscarClientePorId(registro.clienteId())
+                        : usuarioService.buscarClientePorCpf(registro.cpf());
+
+                String nome = cliente != null ? cliente.getNome()
+                        : registro.possuiClienteId() ? "Cliente não encontrado" : registro.nome();
+                String cpf = registro.possuiClienteId()
+                        ? (cliente != null ? cliente.getCpf() : "ID: " + registro.clienteId())
+                        : registro.cpf();
+                String telefone = cliente != null ? cliente.getTelefone() : "Não informado";
+                String endereco = cliente != null ? cliente.getEndereco() : "Não informado";
+
+                historico.add(String.format(
+                        "Cliente: %s (CPF: %s) - Telefone: %s - Endereço: %s",
+                        nome,
+                        cpf,
+                        telefone,
+                        endereco
+                ));
+            }
+
+            return historico;
+        });
+    }
+
+    /**
+     * Uma página dos filmes que o cliente alugou, em ordem de gravação, com
+     * {@link #ALUGUEIS_POR_PAGINA} aluguéis. O histórico do cliente vem do
+     * índice reverso por cliente e só as linhas da página são lidas; as
+     * páginas já formatadas ficam num cache LRU, invalidado quando o cliente
+     * aluga de novo.
+     *
+     * @param pagina número da página, a partir de 0
+     */
+    public PaginaHistorico listarHistoricoAlugueisPorCliente(long clienteId, int pagina) {
+        return metricas.medir("listarHistoricoAlugueisPorCliente", () -> {
+            if (pagina < 0) {
+                throw new IllegalArgumentException("Página inválida: " + pagina);
+            }
+            return paginasHistorico.obter(new ChavePagina(clienteId, pagina), this::montarPaginaHistorico);
+        });
+    }
+
+    private PaginaHistorico montarPaginaHistorico(ChavePagina chave) {
+        RepositorioAlugueis.PaginaRegistros pagina = repositorioAlugueis.listarPorCliente(
+                chave.clienteId(), chave.pagina() * ALUGUEIS_POR_PAGINA, ALUGUEIS_POR_PAGINA);
+
+        List<String> linhas = new ArrayList<>(pagina.registros().size());
+        travaCatalogo.readLock().lock();
+        try {
+            for (RegistroAluguel registro : pagina.registros()) {
+                linhas.add(String.format("Filme: %d - %s", registro.codFilme(), tituloHistorico(registro)));
+            }
+        } finally {
+            travaCatalogo.readLock().unlock();
         }
 
-        List<String> historico = new ArrayList<>();
+        int totalPaginas = Math.max(1, (pagina.total() + ALUGUEIS_POR_PAGINA - 1) / ALUGUEIS_POR_PAGINA);
+        return new PaginaHistorico(chave.pagina(), totalPaginas, pagina.total(), linhas);
+    }
 
-        try (Scanner leitor = new Scanner(arquivoAlugueis)) {
-            while (leitor.hasNextLine()) {
-                String[] partes = leitor.nextLine().split(";");
-                if (partes.length == 3) {
-                    long clienteId = Long.parseLong(partes[0]);
-                    int codigoFilmeRegistrado = Integer.parseInt(partes[1]);
+    /**
+     * Título atual do filme; se ele saiu do catálogo, o título gravado com o
+     * aluguel.
+     */
+    private String tituloHistorico(RegistroAluguel registro) {
+        Filme filme = filmes.obter(registro.codFilme());
+        if (filme != null) {
+            return filme.getTitulo();
+        }
+        return registro.titulo() == null || registro.titulo().isEmpty() ? "Filme excluído" : registro.titulo();
+    }
 
-                    if (codigoFilmeRegistrado != codigo) {
-                        continue;
-                    }
+    private record ChavePagina(long clienteId, int pagina) {
+    }
 
-                    Cliente cliente = usuarioService.buscarClientePorId(clienteId);
-
-                    String nome = cliente != null ? cliente.getNome() : "Cliente não encontrado";
-                    String cpf = cliente != null ? cliente.getCpf() : "ID: " + clienteId;
-                    String telefone = cliente != null ? cliente.getTelefone() : "Não informado";
-                    String endereco = cliente != null ? cliente.getEndereco() : "Não informado";
-
-                    historico.add(String.format(
-                            "Cliente: %s (CPF: %s) - Telefone: %s - Endereço: %s",
-                            nome,
-                            cpf,
-                            telefone,
-                            endereco
-                    ));
-                    continue;
-                }
+    /**
+     * Aluga o filme para o cliente. Só uma de duas locações simultâneas do
+     * mesmo título pode ter sucesso; locações de títulos diferentes usam
+     * travas diferentes e não esperam uma pela outra. A chamada entra nas
+     * métricas de {@link #alugarFilmes}.
+     */
+    public Filme alugarFilme(int codigo, Cliente cliente) {
+        return alugarFilmes(List.of(codigo), cliente).get(0);
+    }
 
-                if (partes.length >= 4) {
-                    int codigoFilmeRegistrado = Integer.parseInt(partes[2]);
-                    if (codigoFilmeRegistrado != codigo) {
-                        continue;
+    /**
+     * Aluga vários filmes para o cliente de uma vez. Todos são conferidos
+     * antes de qualquer mudança: se algum não existir ou já estiver alugado,
+     * nenhum é alugado. A situação dos filmes e os aluguéis, com data e
+     * prazo, são gravados de uma vez nos repositórios, numa só transação
+     * quando estão no banco, e só depois mudam em memória: se a gravação
+     * falhar, o catálogo e a agenda ficam como estavam.
+     *
+     * @return os filmes alugados, na ordem dos códigos (repetidos contam uma vez)
+     */
+    public List<Filme> alugarFilmes(Collection<Integer> codigos, Cliente cliente) {
+        return metricas.medir("alugarFilmes", () -> {
+            List<Filme> alugados;
+
+            travaCatalogo.readLock().lock();
+            try {
+                alugados = filmesDosCodigosInformados(codigos);
+
+                ReentrantLock[] travas = travarFilmes(alugados);
+                try {
+                    exigirSituacao(alugados, Situacao.DISPONIVEL,
+                            "O filme selecionado já está alugado.", "Já estão alugados: ");
+
+                    Instant agora = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+                    Instant prazo = agora.plus(prazoAluguel);
+                    List<Filme> gravados = new ArrayList<>(alugados.size());
+                    List<Aluguel> alugueis = new ArrayList<>(alugados.size());
+                    for (Filme filme : alugados) {
+                        Filme alugado = copiaNaSituacao(filme, Situacao.INDISPONIVEL, cliente.getCpf());
+                        gravados.add(alugado);
+                        alugueis.add(new Aluguel(cliente, alugado, agora, prazo));
                     }
+                    List<EventoAluguel> eventos = Armazenamento.gravarJuntos("alugarFilmes", () -> {
+                        repositorioFilmes.salvar(gravados);
+                        return repositorioAlugueis.registrarAlugueis(alugueis);
+                    });
+
+                    for (Filme filme : alugados) {
+                        filme.setSituacao(Situacao.INDISPONIVEL);
+                        facetas.definirDisponivel(filme.getCodFilme(), false);
+                        filme.setCpfClienteAlugou(cliente.getCpf());
+                    }
+                    agendaDevolucoes.registrar(eventos);
+                    paginasHistorico.invalidar(chave -> chave.clienteId() == cliente.getId());
+                    metricas.somar("filmesAlugados", alugados.size());
+                } finally {
+                    destravar(travas);
+                }
+            } finally {
+                travaCatalogo.readLock().unlock();
+            }
 
-                    String cpf = partes[0];
-                    Cliente cliente = usuarioService.buscarClientePorCpf(cpf);
+            compactarSeNecessario();
+            return alugados;
+        });
+    }
 
-                    String nome = cliente != null ? cliente.getNome() : partes[1];
-                    String telefone = cliente != null ? cliente.getTelefone() : "Não informado";
-                    String endereco = cliente != null ? cliente.getEndereco() : "Não informado";
-                    
-                historico.add(String.format(
-                            "Cliente: %s (CPF: %s) - Telefone: %s - Endereço: %s",
-                            nome,
-                            cpf,
-                            telefone,
-                            endereco
-                    ));
+    /**
+     * Devolve um filme; a chamada entra nas métricas de {@link #devolverFilmes}.
+     */
+    public void devolverFilme(int codigo) {
+        devolverFilmes(List.of(codigo));
+    }
+
+    /**
+     * Devolve vários filmes de uma vez, com as mesmas garantias de
+     * {@link #alugarFilmes}: se algum não existir ou já estiver disponível,
+     * nenhum é devolvido.
+     */
+    public void devolverFilmes(Collection<Integer> codigos) {
+        metricas.medir("devolverFilmes", () -> {
+            travaCatalogo.readLock().lock();
+            try {
+                List<Filme> devolvidos = filmesDosCodigosInformados(codigos);
+
+                ReentrantLock[] travas = travarFilmes(devolvidos);
+                try {
+                    exigirSituacao(devolvidos, Situacao.INDISPONIVEL,
+                            "O filme selecionado já está disponível.", "Já estão disponíveis: ");
+
+                    Instant agora = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+                    List<Filme> gravados = new ArrayList<>(devolvidos.size());
+                    List<EventoAluguel> eventos = new ArrayList<>(devolvidos.size());
+                    for (Filme filme : devolvidos) {
+                        // Sem prazo na agenda, o aluguel é anterior aos eventos com data.
+                        EventoAluguel aluguel = agendaDevolucoes.consultar(filme.getCodFilme());
+                        long clienteId = aluguel != null ? aluguel.clienteId() : idClientePorCpf(filme.getCpfClienteAlugou());
+                        eventos.add(new EventoAluguel(agora, EventoAluguel.Tipo.DEVOLUCAO,
+                                clienteId, filme.getCodFilme(), null));
+                        gravados.add(copiaNaSituacao(filme, Situacao.DISPONIVEL, null));
+                    }
+                    Armazenamento.gravarJuntos("devolverFilmes", () -> {
+                        repositorioFilmes.salvar(gravados);
+                        repositorioAlugueis.registrarDevolucoes(eventos);
+                        return null;
+                    });
+
+                    for (Filme filme : devolvidos) {
+                        agendaDevolucoes.remover(filme.getCodFilme());
+                        filme.setSituacao(Situacao.DISPONIVEL);
+                        facetas.definirDisponivel(filme.getCodFilme(), true);
+                        filme.setCpfClienteAlugou(null);
+                    }
+                    metricas.somar("filmesDevolvidos", devolvidos.size());
+                } finally {
+                    destravar(travas);
                 }
+            } finally {
+                travaCatalogo.readLock().unlock();
             }
-        } catch (FileNotFoundException e) {
-            throw new IllegalStateException("Arquivo de aluguéis não encontrado: " + e.getMessage(), e);
-        } catch (NumberFormatException e) {
-            throw new IllegalStateException("Erro ao ler histórico de aluguéis: " + e.getMessage(), e);
-        }
 
-        return historico;
+            compactarSeNecessario();
+        });
     }
 
-    public Filme alugarFilme(int codigo, Cliente cliente) {
-        Filme filme = buscarFilmePorCodigo(codigo);
+    /**
+     * Aluguéis feitos no intervalo [inicio, fim), em ordem de tempo, com o
+     * prazo de devolução de cada um. Nos dois armazenamentos o custo é
+     * logarítmico no tamanho do histórico mais o tamanho do resultado.
+     */
+    public List<EventoAluguel> listarAlugueisEntre(Instant inicio, Instant fim) {
+        return metricas.medir("listarAlugueisEntre",
+                () -> repositorioAlugueis.listarEventos(inicio, fim, EventoAluguel.Tipo.ALUGUEL));
+    }
+
+    /**
+     * Devoluções feitas no intervalo [inicio, fim), em ordem de tempo.
+     */
+    public List<EventoAluguel> listarDevolucoesEntre(Instant inicio, Instant fim) {
+        return metricas.medir("listarDevolucoesEntre",
+                () -> repositorioAlugueis.listarEventos(inicio, fim, EventoAluguel.Tipo.DEVOLUCAO));
+    }
+
+    /**
+     * Aluguéis cujo prazo de devolução já passou, do mais antigo ao mais
+     * recente. A lista é mantida pela {@link AgendaDevolucoes} no momento em
+     * que cada prazo vence, então a consulta não percorre o catálogo.
+     */
+    public List<EventoAluguel> listarAtrasados() {
+        return metricas.medir("listarAtrasados", agendaDevolucoes::listarAtrasados);
+    }
 
-        if (filme == null) {
-            throw new IllegalArgumentException("Filme não encontrado.");
+    /**
+     * Chamado com a trava de leitura.
+     *
+     * @throws IllegalArgumentException se a lista estiver vazia ou algum
+     *                                  código não existir
+     */
+    private List<Filme> filmesDosCodigosInformados(Collection<Integer> codigos) {
+        Set<Integer> distintos = new LinkedHashSet<>(codigos);
+        if (distintos.isEmpty()) {
+            throw new IllegalArgumentException("Nenhum filme selecionado.");
         }
 
-        if (!"disponível".equalsIgnoreCase(filme.getSituacao())) {
-            throw new IllegalArgumentException("O filme selecionado já está alugado.");
+        List<Filme> encontrados = new ArrayList<>(distintos.size());
+        for (int codigo : distintos) {
+            Filme filme = filmes.obter(codigo);
+            if (filme == null) {
+                throw new IllegalArgumentException(distintos.size() == 1
+                        ? "Filme não encontrado."
+                        : "Filme " + codigo + " não encontrado.");
+            }
+            encontrados.add(filme);
         }
+        return encontrados;
+    }
 
-        filme.setSituacao("indisponível");
-        filme.setCpfClienteAlugou(cliente.getCpf());
-        salvarFilmes();
-        registrarAluguel(cliente, filme);
+    /**
+     * @throws IllegalArgumentException se algum filme não estiver na situação
+     *                                  esperada, citando os títulos
+     */
+    private static void exigirSituacao(List<Filme> filmes, Situacao esperada, String mensagemUnica, String prefixoVarios) {
+        List<String> fora = new ArrayList<>();
+        for (Filme filme : filmes) {
+            if (filme.getSituacao() != esperada) {
+                fora.add(filme.getTitulo());
+            }
+        }
 
-        return filme;
+        if (fora.isEmpty()) {
+            return;
+        }
+        throw new IllegalArgumentException(filmes.size() == 1
+                ? mensagemUnica
+                : prefixoVarios + String.join(", ", fora) + ".");
     }
 
-    public void devolverFilme(int codigo) {
-        Filme filme = buscarFilmePorCodigo(codigo);
+    /**
+     * O filme como ficará depois da locação ou devolução, para gravar sem
+     * mudar o do catálogo.
+     */
+    private static Filme copiaNaSituacao(Filme filme, Situacao situacao, String cpfClienteAlugou) {
+        Filme copia = new Filme(filme.getCodFilme(), filme.getTitulo(), filme.getGenero(),
+                filme.getClassificacao(), situacao);
+        copia.setCpfClienteAlugou(cpfClienteAlugou);
+        return copia;
+    }
 
-        if (filme == null) {
-            throw new IllegalArgumentException("Filme não encontrado.");
+    /**
+     * Trava as faixas dos filmes sempre em ordem crescente, para que duas
+     * operações com vários filmes não esperem uma pela outra em ciclo.
+     */
+    private ReentrantLock[] travarFilmes(List<Filme> filmesTravados) {
+        int[] indices = new int[filmesTravados.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indiceTrava(filmesTravados.get(i).getCodFilme());
         }
+        indices = Arrays.stream(indices).sorted().distinct().toArray();
 
-        if ("disponível".equalsIgnoreCase(filme.getSituacao())) {
-            throw new IllegalArgumentException("O filme selecionado já está disponível.");
+        ReentrantLock[] travas = new ReentrantLock[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            travas[i] = travasFilmes[indices[i]];
+            travas[i].lock();
         }
+        return travas;
+    }
 
-        filme.setSituacao("disponível");
-        filme.setCpfClienteAlugou(null);
-        salvarFilmes();
+    private static void destravar(ReentrantLock[] travas) {
+        for (int i = travas.length - 1; i >= 0; i--) {
+            travas[i].unlock();
+        }
     }
 
     public void excluirFilme(int codigo) {
-        boolean removido = filmes.removeIf(filme -> filme.getCodFilme() == codigo);
+        metricas.medir("excluirFilme", () -> {
+            travaCatalogo.writeLock().lock();
+            try {
+                Filme removido = removerDoCatalogo(codigo);
 
-        if (!removido) {
-            throw new IllegalArgumentException("Filme não encontrado.");
-        }
-        salvarFilmes();
+                if (removido == null) {
+                    throw new IllegalArgumentException("Filme não encontrado.");
+                }
+                visaoFilmes = null;
+                agendaDevolucoes.remover(codigo);
+                // As páginas guardadas mostram o título do filme excluído.
+                paginasHistorico.invalidar(chave -> true);
+                repositorioFilmes.excluir(codigo);
+            } finally {
+                travaCatalogo.writeLock().unlock();
+            }
+
+            compactarSeNecessario();
+        });
     }
 
     /**
-     * Cadastra um novo filme e persiste no arquivo.
+     * Cadastra um novo filme e persiste no repositório.
      *
      * @param codigo         código numérico único do filme
      * @param titulo         título do filme
@@ -167,77 +614,289 @@ public class FilmeService {
      * @param classificacao  idade mínima
      */
     public void cadastrarFilme(int codigo, String titulo, String genero, int classificacao) {
-        boolean codigoExistente = filmes.stream()
-                .anyMatch(filme -> filme.getCodFilme() == codigo);
+        metricas.medir("cadastrarFilme", () -> {
+            // ainda pode normalizar, para aceitar "A", "a", "ação", etc
+            String generoNormalizado = traduzirGenero(genero);
+            Filme novo = new Filme(codigo, titulo.trim(), generoNormalizado, classificacao, Situacao.DISPONIVEL);
+
+            travaCatalogo.writeLock().lock();
+            try {
+                if (filmes.contem(codigo)) {
+                    throw new IllegalArgumentException("Já existe um filme cadastrado com esse código.");
+                }
+
+                adicionarAoCatalogo(novo);
+                visaoFilmes = null;
+                repositorioFilmes.salvar(List.of(novo));
+            } finally {
+                travaCatalogo.writeLock().unlock();
+            }
+
+            compactarSeNecessario();
+        });
+    }
+
+    /**
+     * Grava o catálogo atual em uma fotografia binária ({@link SnapshotBinario}).
+     */
+    public void exportarSnapshot(File destino) {
+        metricas.medir("exportarSnapshot", () -> {
+            try {
+                SnapshotBinario.gravarFilmes(getFilmes(), destino);
+            } catch (IOException e) {
+                throw new IllegalStateException("Erro ao exportar filmes: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Substitui o catálogo pelo conteúdo de uma fotografia binária e o
+     * conteúdo do repositório (no armazenamento em arquivos, regrava
+     * "filmes.txt" no formato texto).
+     */
+    public void importarSnapshot(File origem) {
+        metricas.medir("importarSnapshot", () -> {
+            List<Filme> importados;
+            try {
+                importados = SnapshotBinario.lerFilmes(origem);
+            } catch (IOException e) {
+                throw new IllegalStateException("Erro ao importar filmes: " + e.getMessage(), e);
+            }
+
+            MapaInteiro<Filme> novos = new MapaInteiro<>();
+            List<Filme> fotografia = new ArrayList<>(importados.size());
+            for (Filme filme : importados) {
+                if (novos.inserir(filme.getCodFilme(), filme) == null) {
+                    fotografia.add(filme);
+                }
+            }
+
+            travaCatalogo.writeLock().lock();
+            try {
+                repositorioFilmes.substituir(fotografia);
+                filmes.limpar();
+                indiceTitulos.limpar();
+                facetas.limpar();
+                novos.paraCada(this::adicionarAoCatalogo);
+                visaoFilmes = null;
+                carregarPrazos();
+                // As páginas guardadas mostram os títulos do catálogo anterior.
+                paginasHistorico.invalidar(chave -> true);
+            } finally {
+                travaCatalogo.writeLock().unlock();
+            }
+        });
+    }
+
+    /**
+     * Importa um catálogo de fornecedor em CSV (código, título, gênero,
+     * classificação). Os filmes entram disponíveis.
+     *
+     * As linhas são lidas e validadas em sequência, fora da trava; códigos
+     * repetidos no arquivo ficam num {@link ConjuntoBits}. Depois tudo entra
+     * no repositório com uma única aquisição da trava de escrita, de uma vez
+     * (em arquivos, "filmes.txt" é regravado uma vez, em vez de um registro
+     * de diário por filme), e só depois de gravados entram no catálogo; se a
+     * gravação falhar, o catálogo fica como estava. Linhas
+     * inválidas ou com código já cadastrado são recusadas e relatadas; as
+     * demais são importadas.
+     */
+    public RelatorioImportacao importarFilmes(File origem) {
+        return metricas.medir("importarFilmes", () -> {
+            List<FilmeImportado> validos = new ArrayList<>();
+            List<RelatorioImportacao.Rejeicao> rejeitadas = new ArrayList<>();
+            ConjuntoBits codigosDoArquivo = new ConjuntoBits();
+
+            try (LeitorCsv leitor = new LeitorCsv(origem)) {
+                while (true) {
+                    try {
+                        String[] campos = leitor.proximo();
+                        if (campos == null) {
+                            break;
+                        }
+
+                        Filme filme = lerFilmeImportado(campos);
+                        codigosDoArquivo.preparar(filme.getCodFilme());
+                        if (!codigosDoArquivo.adicionar(filme.getCodFilme())) {
+                            throw new IllegalArgumentException("código " + filme.getCodFilme() + " repetido no arquivo.");
+                        }
+                        validos.add(new FilmeImportado(leitor.getLinha(), filme));
+                    } catch (IllegalArgumentException e) {
+                        rejeitadas.add(new RelatorioImportacao.Rejeicao(leitor.getLinha(), e.getMessage()));
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Erro ao importar filmes: " + e.getMessage(), e);
+            }
+
+            List<Filme> novos = new ArrayList<>(validos.size());
+            travaCatalogo.writeLock().lock();
+            try {
+                for (FilmeImportado importado : validos) {
+                    int codigo = importado.filme().getCodFilme();
+                    if (filmes.contem(codigo)) {
+                        rejeitadas.add(new RelatorioImportacao.Rejeicao(importado.linha(),
+                                "já existe um filme cadastrado com o código " + codigo + "."));
+                        continue;
+                    }
+                    novos.add(importado.filme());
+                }
 
-        if (codigoExistente) {
-            throw new IllegalArgumentException("Já existe um filme cadastrado com esse código.");
+                if (!novos.isEmpty()) {
+                    repositorioFilmes.acrescentar(novos, () -> {
+                        List<Filme> todos = new ArrayList<>(filmes.listar());
+                        todos.addAll(novos);
+                        return todos;
+                    });
+                    novos.forEach(this::adicionarAoCatalogo);
+                    visaoFilmes = null;
+                }
+            } finally {
+                travaCatalogo.writeLock().unlock();
+            }
+
+            rejeitadas.sort(Comparator.comparingInt(RelatorioImportacao.Rejeicao::linha));
+            return new RelatorioImportacao(novos.size(), rejeitadas);
+        });
+    }
+
+    /**
+     * @throws IllegalArgumentException com o motivo, se a linha não puder ser
+     *                                  importada
+     */
+    private Filme lerFilmeImportado(String[] campos) {
+        if (campos.length < 4) {
+            throw new IllegalArgumentException("esperados 4 campos (código, título, gênero, classificação), encontrados " + campos.length + ".");
+        }
+        for (String campo : campos) {
+            if (campo.indexOf(';') >= 0) {
+                throw new IllegalArgumentException("campo com ';', que não cabe em \"filmes.txt\".");
+            }
         }
 
-        // ainda pode normalizar, para aceitar "A", "a", "ação", etc
-        String generoNormalizado = traduzirGenero(genero);
+        int codigo;
+        try {
+            codigo = Integer.parseInt(campos[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("código \"" + campos[0] + "\" não é numérico.");
+        }
+        if (campos[1].isEmpty()) {
+            throw new IllegalArgumentException("título vazio.");
+        }
+        if (campos[2].isEmpty()) {
+            throw new IllegalArgumentException("gênero vazio.");
+        }
 
-        Filme novo = new Filme(codigo, titulo.trim(), generoNormalizado, classificacao, "disponível");
-        filmes.add(novo);
-        salvarFilmes();
+        return new Filme(codigo, campos[1], traduzirGenero(campos[2]), lerClassificacao(campos[3]), Situacao.DISPONIVEL);
     }
 
-    private void salvarFilmes() {
-        try (PrintWriter arquivo = new PrintWriter(new FileWriter(arquivoFilmes))) {
-            for (Filme f : filmes) {
-                arquivo.println(
-                    f.getCodFilme() + ";" +
-                    f.getTitulo() + ";" +
-                    f.getGenero() + ";" +
-                    f.getClassificacao() + ";" +
-                    f.getSituacao()
-                );
+    /**
+     * Aceita as mesmas classificações da tela de cadastro; "L" ou "Livre"
+     * valem 0.
+     */
+    private static int lerClassificacao(String texto) {
+        if (texto.equalsIgnoreCase("L") || texto.equalsIgnoreCase("Livre")) {
+            return 0;
+        }
+
+        try {
+            int classificacao = Integer.parseInt(texto);
+            if (Arrays.binarySearch(CLASSIFICACOES_VALIDAS, classificacao) >= 0) {
+                return classificacao;
             }
-        } catch (IOException e) {
-            throw new IllegalStateException("Erro ao salvar filmes: " + e.getMessage(), e);
+        } catch (NumberFormatException e) {
+            // cai na mensagem abaixo
         }
+        throw new IllegalArgumentException("classificação \"" + texto + "\" inválida (use Livre, 10, 12, 14, 16 ou 18).");
+    }
+
+    private record FilmeImportado(int linha, Filme filme) {
+    }
+
+    /**
+     * @return futuro concluído quando todas as alterações feitas até agora
+     *         estiverem gravadas em disco
+     */
+    public CompletableFuture<Void> sincronizar() {
+        return metricas.medir("sincronizar",
+                () -> CompletableFuture.allOf(repositorioFilmes.sincronizar(), repositorioAlugueis.sincronizar()));
+    }
+
+    /**
+     * Coloca o filme no catálogo, no índice de títulos e nas facetas. Chamado
+     * com a trava de escrita ou durante a carga; ao substituir um filme (na
+     * reaplicação do diário), tira antes os valores antigos das facetas.
+     */
+    private void adicionarAoCatalogo(Filme filme) {
+        int codigo = filme.getCodFilme();
+        Filme anterior = filmes.obter(codigo);
+        if (anterior != null) {
+            facetas.remover(codigo, anterior.getGenero(), anterior.getClassificacao());
+        }
+
+        filmes.inserir(filme);
+        indiceTitulos.indexar(codigo, filme.getTitulo());
+        facetas.indexar(codigo, filme.getGenero(), filme.getClassificacao(), filme.isDisponivel());
     }
-    
-    private void registrarAluguel(Cliente cliente, Filme filme) {
-        Aluguel aluguel = new Aluguel(cliente, filme);
 
-        try (PrintWriter arquivo = new PrintWriter(new FileWriter(arquivoAlugueis, true))) {
-            arquivo.println(aluguel.toArquivo());
-        } catch (IOException e) {
-            throw new IllegalStateException("Erro ao registrar aluguel: " + e.getMessage(), e);
+    private Filme removerDoCatalogo(int codigo) {
+        Filme removido = filmes.remover(codigo);
+        if (removido != null) {
+            indiceTitulos.remover(codigo);
+            facetas.remover(codigo, removido.getGenero(), removido.getClassificacao());
         }
+        return removido;
     }
 
+    private int indiceTrava(int codigo) {
+        int h = codigo * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (travasFilmes.length - 1);
+    }
 
-    private void carregarFilmes() {
-        if (!arquivoFilmes.exists()) {
+    /**
+     * Compacta o repositório quando ele pede (em arquivos, gera o checkpoint
+     * quando o diário passa do limite). Roda com a trava de escrita para que
+     * nenhuma alteração fique entre a fotografia e a rotação do diário; deve
+     * ser chamado sem nenhuma trava do serviço.
+     */
+    private void compactarSeNecessario() {
+        if (!repositorioFilmes.deveCompactar()) {
             return;
         }
 
-        try (Scanner leitor = new Scanner(arquivoFilmes)) {
-            while (leitor.hasNextLine()) {
-                String linha = leitor.nextLine();
-                String[] partes = linha.split(";");
-                if (partes.length >= 5) {
-                    String genero = traduzirGenero(partes[2]);
-                    int codigo = Integer.parseInt(partes[0]);
-
-                    Filme filme = new Filme(
-                            codigo,
-                            partes[1],
-                            genero,
-                            Integer.parseInt(partes[3]),
-                            partes[4]
-                    );
-                    filmes.add(filme);
-                }
+        travaCatalogo.writeLock().lock();
+        try {
+            if (!repositorioFilmes.deveCompactar()) {
+                return;
             }
-        } catch (Exception e) {
-            throw new IllegalStateException("Erro ao carregar filmes: " + e.getMessage(), e);
+
+            metricas.medir("compactar", () -> repositorioFilmes.compactar(filmes.listar()));
+        } finally {
+            travaCatalogo.writeLock().unlock();
         }
     }
 
-    private String traduzirGenero(String valorBruto) {
+    /**
+     * Monta a agenda de devoluções com o último aluguel de cada filme
+     * alugado. Filmes alugados antes dos eventos com data não têm prazo
+     * conhecido e ficam fora dela.
+     */
+    private void carregarPrazos() {
+        ConjuntoBits alugados = new ConjuntoBits();
+        filmes.paraCada(filme -> {
+            if (!filme.isDisponivel()) {
+                alugados.preparar(filme.getCodFilme());
+                alugados.adicionar(filme.getCodFilme());
+            }
+        });
+        agendaDevolucoes.substituir(repositorioAlugueis.ultimosAlugueis(alugados));
+    }
+
+    /**
+     * Troca a inicial de um gênero (formato antigo de "filmes.txt") pelo
+     * nome completo; os demais valores voltam sem espaços nas pontas.
+     */
+    static String traduzirGenero(String valorBruto) {
         if (valorBruto == null || valorBruto.isEmpty()) {
             return "";
         }
@@ -0,0 +1,360 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import model.Aluguel;
+
+/**
+ * Histórico de aluguéis. Os aluguéis novos são anexados a "alugueis.txt" e
+ * indexados em memória por código do filme; quando esse arquivo passa do
+ * limite de registros, ele é selado em segundo plano: renomeado para
+ * "alugueis.txt.selando-N", regravado como segmentos imutáveis
+ * ({@link SegmentosAlugueis}) e retirado da memória. Assim a carga e a
+ * memória acompanham só o trecho ativo, e a consulta por filme usa o índice
+ * dos segmentos para ler apenas os trechos onde o filme aparece.
+ *
+ * A selagem também migra o formato antigo (CPF;Nome;CodFilme;...) para o
+ * atual (IdUsuario;CodFilme;TituloFilme), com o id do cliente daquele CPF.
+ * Linhas cujo CPF não pertence a nenhum cliente ficam como estão, para não
+ * perder o nome gravado. Um "alugueis.txt" com linhas antigas é selado logo
+ * na carga, então a migração roda uma única vez.
+ *
+ * Além do índice por filme, cada trecho tem um índice reverso por cliente:
+ * em memória para os arquivos ainda não selados e um arquivo por segmento
+ * para os selados. {@link #listarPorCliente} devolve uma página dos aluguéis
+ * de um cliente lendo só as linhas dessa página. Linhas no formato antigo
+ * só entram no índice por cliente quando a migração as sela com o id.
+ *
+ * Os métodos são sincronizados, pois locações de filmes diferentes podem
+ * registrar ao mesmo tempo; a leitura dos segmentos roda fora da trava.
+ */
+final class HistoricoAlugueis {
+    static final int LIMITE_PADRAO = SegmentosAlugueis.REGISTROS_POR_SEGMENTO;
+
+    private static final Logger LOG = Logger.getLogger(HistoricoAlugueis.class.getName());
+    private static final String SUFIXO_SELANDO = ".selando-";
+
+    private final File arquivoAlugueis;
+    private final int limiteRegistros;
+    private final ToLongFunction<String> idPorCpf;
+    private final SegmentosAlugueis segmentos;
+    private final ExecutorService selador;
+    /** Registros de "alugueis.txt". */
+    private RegistrosEmMemoria ativos;
+    /** Registros da selagem em andamento, consultados em memória até ela terminar; {@code null} fora dela. */
+    private RegistrosEmMemoria selando;
+
+    /**
+     * @param limiteRegistros registros em "alugueis.txt" que disparam a selagem
+     * @param idPorCpf        id do cliente com o CPF, ou {@link RegistroAluguel#SEM_ID};
+     *                        chamado na thread de selagem
+     */
+    HistoricoAlugueis(File arquivoAlugueis, int limiteRegistros, ToLongFunction<String> idPorCpf) {
+        this.arquivoAlugueis = arquivoAlugueis;
+        this.limiteRegistros = limiteRegistros;
+        this.idPorCpf = idPorCpf;
+        this.segmentos = new SegmentosAlugueis(arquivoAlugueis, HistoricoAlugueis::lerRegistro);
+        this.selador = Executors.newSingleThreadExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "selagem-" + arquivoAlugueis.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        synchronized (this) {
+            retomarSelagem();
+            this.ativos = carregar(arquivoAlugueis);
+            if (selando == null && (ativos.quantidade >= limiteRegistros || ativos.possuiFormatoAntigo)) {
+                iniciarSelagem();
+            }
+        }
+    }
+
+    /**
+     * @return os aluguéis do filme em ordem de gravação
+     */
+    List<RegistroAluguel> listarPorFilme(int codFilme) {
+        List<SegmentosAlugueis.Segmento> consultados;
+        List<RegistroAluguel> recentes = new ArrayList<>();
+        synchronized (this) {
+            consultados = segmentos.listar();
+            if (selando != null) {
+                selando.copiar(codFilme, recentes);
+            }
+            ativos.copiar(codFilme, recentes);
+        }
+
+        List<RegistroAluguel> registros = new ArrayList<>();
+        try {
+            segmentos.listarPorFilme(consultados, codFilme, registros);
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao ler histórico de aluguéis: " + e.getMessage(), e);
+        }
+        registros.addAll(recentes);
+        return registros;
+    }
+
+    /**
+     * Uma página dos aluguéis do cliente em ordem de gravação. Os segmentos
+     * só informam quantas linhas do cliente têm; são lidas apenas as linhas
+     * da página.
+     *
+     * @param inicio     posição do primeiro aluguel da página
+     * @param quantidade aluguéis por página
+     */
+    RepositorioAlugueis.PaginaRegistros listarPorCliente(long clienteId, int inicio, int quantidade) {
+        List<SegmentosAlugueis.Segmento> consultados;
+        List<RegistroAluguel> recentes = new ArrayList<>();
+        synchronized (this) {
+            consultados = segmentos.listar();
+            if (selando != null) {
+                selando.copiarDoCliente(clienteId, recentes);
+            }
+            ativos.copiarDoCliente(clienteId, recentes);
+        }
+
+        List<RegistroAluguel> registros = new ArrayList<>();
+        int total = 0;
+        try {
+            for (SegmentosAlugueis.Segmento segmento : consultados) {
+                int[] faixa = segmento.faixaCliente(clienteId);
+                int pular = Math.max(0, inicio - total);
+                int ler = Math.min(faixa[1] - pular, quantidade - registros.size());
+                segmento.listarCliente(faixa[0] + pular, ler, registros);
+                total += faixa[1];
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao ler histórico de aluguéis: " + e.getMessage(), e);
+        }
+
+        int pular = Math.max(0, inicio - total);
+        int ler = Math.min(recentes.size() - pular, quantidade - registros.size());
+        if (ler > 0) {
+            registros.addAll(recentes.subList(pular, pular + ler));
+        }
+        return new RepositorioAlugueis.PaginaRegistros(total + recentes.size(), registros);
+    }
+
+    int quantidadeSegmentos() {
+        return segmentos.listar().size();
+    }
+
+    /**
+     * Registra os aluguéis de uma mesma operação com uma única anexação ao
+     * arquivo.
+     *
+     * @return futuro da anexação; se ela falhar, a próxima
+     *         {@link EscritorAssincrono#sincronizar()} também falha
+     */
+    synchronized CompletableFuture<Void> registrar(List<Aluguel> alugueis) {
+        List<String> linhas = new ArrayList<>(alugueis.size());
+        for (Aluguel aluguel : alugueis) {
+            linhas.add(aluguel.toArquivo());
+        }
+        CompletableFuture<Void> gravacao = EscritorAssincrono.getInstance().anexar(arquivoAlugueis, linhas);
+
+        for (Aluguel aluguel : alugueis) {
+            ativos.indexar(new RegistroAluguel(
+                    aluguel.getCliente().getId(),
+                    null,
+                    null,
+                    aluguel.getFilme().getCodFilme(),
+                    aluguel.getFilme().getTitulo()
+            ));
+        }
+
+        if (selando == null && ativos.quantidade >= limiteRegistros) {
+            iniciarSelagem();
+        }
+        return gravacao;
+    }
+
+    /**
+     * Troca "alugueis.txt" por um arquivo novo e sela o antigo em segundo
+     * plano. O arquivo é renomeado na fila do {@link EscritorAssincrono},
+     * depois das anexações já enfileiradas, então ele contém exatamente os
+     * registros que estavam em memória. Chamado com a trava.
+     */
+    private void iniciarSelagem() {
+        int primeiroSegmento = segmentos.proximoNumero();
+        File destino = arquivoSelando(primeiroSegmento);
+        selando = ativos;
+        ativos = new RegistrosEmMemoria();
+
+        EscritorAssincrono.getInstance().executar(arquivoAlugueis, () -> {
+            if (arquivoAlugueis.exists()) {
+                Files.move(arquivoAlugueis.toPath(), destino.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }).whenCompleteAsync((ignorado, erro) -> {
+            // Se a troca falhar, os registros continuam em "alugueis.txt" e em memória.
+            if (erro == null) {
+                selar(destino, primeiroSegmento);
+            }
+        }, selador);
+    }
+
+    /**
+     * Continua a selagem interrompida no encerramento anterior, se houver.
+     * Uma selagem cujos segmentos já estão no índice só não teve o arquivo
+     * apagado.
+     */
+    private void retomarSelagem() {
+        File diretorio = arquivoAlugueis.getAbsoluteFile().getParentFile();
+        String prefixo = arquivoAlugueis.getName() + SUFIXO_SELANDO;
+        File[] candidatos = diretorio == null ? null : diretorio.listFiles((dir, nome) -> nome.startsWith(prefixo));
+        if (candidatos == null) {
+            return;
+        }
+
+        for (File candidato : candidatos) {
+            int primeiroSegmento;
+            try {
+                primeiroSegmento = Integer.parseInt(candidato.getName().substring(prefixo.length()));
+            } catch (NumberFormatException e) {
+                continue;
+            }
+
+            if (primeiroSegmento < segmentos.proximoNumero()) {
+                candidato.delete();
+            } else if (selando == null) {
+                File pendente = arquivoSelando(primeiroSegmento);
+                selando = carregar(pendente);
+                selador.execute(() -> selar(pendente, primeiroSegmento));
+            }
+        }
+    }
+
+    private void selar(File origem, int primeiroSegmento) {
+        try {
+            List<SegmentosAlugueis.LinhaAluguel> linhas = new ArrayList<>();
+            if (origem.exists()) {
+                for (String[] partes : LeitorParalelo.ler(origem, partes -> partes)) {
+                    SegmentosAlugueis.LinhaAluguel linha = canonizar(partes);
+                    if (linha != null) {
+                        linhas.add(linha);
+                    }
+                }
+            }
+
+            List<SegmentosAlugueis.Segmento> novos = segmentos.gravar(linhas, primeiroSegmento);
+            synchronized (this) {
+                segmentos.publicar(novos);
+                selando = null;
+            }
+            Files.deleteIfExists(origem.toPath());
+
+            synchronized (this) {
+                if (selando == null && ativos.quantidade >= limiteRegistros) {
+                    iniciarSelagem();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // O arquivo da selagem continua no disco e a selagem é refeita na próxima carga.
+            LOG.log(Level.WARNING, "Erro ao selar o histórico de aluguéis", e);
+        }
+    }
+
+    /**
+     * @return a linha no formato atual, a linha antiga intacta se o CPF não
+     *         for de nenhum cliente, ou {@code null} se não for um aluguel
+     */
+    private SegmentosAlugueis.LinhaAluguel canonizar(String[] partes) {
+        RegistroAluguel registro = lerRegistro(partes);
+        if (registro == null) {
+            return null;
+        }
+
+        if (!registro.possuiClienteId()) {
+            long id = idPorCpf.applyAsLong(registro.cpf());
+            if (id != RegistroAluguel.SEM_ID && !registro.titulo().isEmpty()) {
+                return new SegmentosAlugueis.LinhaAluguel(registro.codFilme(), id,
+                        id + ";" + registro.codFilme() + ";" + registro.titulo());
+            }
+        }
+        return new SegmentosAlugueis.LinhaAluguel(registro.codFilme(), registro.clienteId(), String.join(";", partes));
+    }
+
+    private File arquivoSelando(int primeiroSegmento) {
+        return new File(arquivoAlugueis.getPath() + SUFIXO_SELANDO + primeiroSegmento);
+    }
+
+    private static RegistrosEmMemoria carregar(File arquivo) {
+        RegistrosEmMemoria registros = new RegistrosEmMemoria();
+        if (!arquivo.exists()) {
+            return registros;
+        }
+
+        try {
+            for (RegistroAluguel registro : LeitorParalelo.ler(arquivo, HistoricoAlugueis::lerRegistro)) {
+                registros.indexar(registro);
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new IllegalStateException("Erro ao ler histórico de aluguéis: " + e.getMessage(), e);
+        }
+        return registros;
+    }
+
+    private static RegistroAluguel lerRegistro(String[] partes) {
+        // Formato atual: IdUsuario;CodFilme;TituloFilme
+        if (partes.length == 3) {
+            return new RegistroAluguel(Long.parseLong(partes[0]), null, null, Integer.parseInt(partes[1]), partes[2]);
+        }
+
+        // Formato antigo: Cpf;Nome;CodFilme;...
+        if (partes.length >= 4) {
+            return new RegistroAluguel(RegistroAluguel.SEM_ID, partes[0], partes[1], Integer.parseInt(partes[2]), partes[3]);
+        }
+
+        return null;
+    }
+
+    /**
+     * Registros de um arquivo do histórico ainda não selado, por código do
+     * filme e por cliente.
+     */
+    private static final class RegistrosEmMemoria {
+        private final MapaInteiro<List<RegistroAluguel>> porFilme = new MapaInteiro<>();
+        private final Map<Long, List<RegistroAluguel>> porCliente = new HashMap<>();
+        private int quantidade;
+        private boolean possuiFormatoAntigo;
+
+        void indexar(RegistroAluguel registro) {
+            List<RegistroAluguel> registros = porFilme.obter(registro.codFilme());
+            if (registros == null) {
+                registros = new ArrayList<>(4);
+                porFilme.inserir(registro.codFilme(), registros);
+            }
+            registros.add(registro);
+            if (registro.possuiClienteId()) {
+                porCliente.computeIfAbsent(registro.clienteId(), id -> new ArrayList<>(4)).add(registro);
+            }
+            quantidade++;
+            possuiFormatoAntigo |= !registro.possuiClienteId();
+        }
+
+        void copiar(int codFilme, List<RegistroAluguel> destino) {
+            List<RegistroAluguel> registros = porFilme.obter(codFilme);
+            if (registros != null) {
+                destino.addAll(registros);
+            }
+        }
+
+        void copiarDoCliente(long clienteId, List<RegistroAluguel> destino) {
+            List<RegistroAluguel> registros = porCliente.get(clienteId);
+            if (registros != null) {
+                destino.addAll(registros);
+            }
+        }
+    }
+}
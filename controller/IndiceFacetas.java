@@ -0,0 +1,221 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Índice do catálogo por gênero, classificação indicativa e disponibilidade,
+ * com um {@link ConjuntoBits} por valor de cada faceta.
+ *
+ * Um filtro vira a interseção de até três critérios ("classificação até 12"
+ * é a união dos conjuntos 0, 10 e 12), resolvida página a página sem olhar
+ * filme por filme. Os gêneros e classificações são poucos, então contar todas
+ * as facetas custa algumas interseções.
+ *
+ * Cadastro e exclusão ({@link #indexar}, {@link #remover}, {@link #limpar})
+ * exigem a trava de escrita do catálogo. {@link #definirDisponivel} é chamado
+ * nas locações, com a trava de leitura e a trava do filme.
+ */
+final class IndiceFacetas {
+    private final ConjuntoBits todos;
+    private final ConjuntoBits disponiveis;
+    private final Map<String, ConjuntoBits> porGenero;
+    private final MapaInteiro<ConjuntoBits> porClassificacao;
+
+    IndiceFacetas() {
+        this.todos = new ConjuntoBits();
+        this.disponiveis = new ConjuntoBits();
+        this.porGenero = new TreeMap<>();
+        this.porClassificacao = new MapaInteiro<>();
+    }
+
+    void indexar(int codigo, String genero, int classificacao, boolean disponivel) {
+        todos.preparar(codigo);
+        todos.adicionar(codigo);
+
+        ConjuntoBits doGenero = porGenero.computeIfAbsent(chaveGenero(genero), g -> new ConjuntoBits());
+        doGenero.preparar(codigo);
+        doGenero.adicionar(codigo);
+
+        ConjuntoBits daClassificacao = porClassificacao.obter(classificacao);
+        if (daClassificacao == null) {
+            daClassificacao = new ConjuntoBits();
+            porClassificacao.inserir(classificacao, daClassificacao);
+        }
+        daClassificacao.preparar(codigo);
+        daClassificacao.adicionar(codigo);
+
+        disponiveis.preparar(codigo);
+        definirDisponivel(codigo, disponivel);
+    }
+
+    /**
+     * Retira o filme das facetas em que foi indexado. Valores que ficam sem
+     * filmes deixam de aparecer nas contagens.
+     */
+    void remover(int codigo, String genero, int classificacao) {
+        todos.remover(codigo);
+        disponiveis.remover(codigo);
+
+        String chave = chaveGenero(genero);
+        ConjuntoBits doGenero = porGenero.get(chave);
+        if (doGenero != null && doGenero.remover(codigo) && doGenero.tamanho() == 0) {
+            porGenero.remove(chave);
+        }
+
+        ConjuntoBits daClassificacao = porClassificacao.obter(classificacao);
+        if (daClassificacao != null && daClassificacao.remover(codigo) && daClassificacao.tamanho() == 0) {
+            porClassificacao.remover(classificacao);
+        }
+    }
+
+    void definirDisponivel(int codigo, boolean disponivel) {
+        if (disponivel) {
+            disponiveis.adicionar(codigo);
+        } else {
+            disponiveis.remover(codigo);
+        }
+    }
+
+    void limpar() {
+        todos.limpar();
+        disponiveis.limpar();
+        porGenero.clear();
+        porClassificacao.limpar();
+    }
+
+    int contarDisponiveis() {
+        return disponiveis.tamanho();
+    }
+
+    int[] listarDisponiveis() {
+        return disponiveis.listar();
+    }
+
+    /**
+     * @param genero              gênero exato, ou {@code null} para todos
+     * @param classificacaoMaxima maior classificação aceita
+     * @return os códigos que atendem aos critérios, em ordem crescente
+     */
+    int[] listar(String genero, int classificacaoMaxima, boolean somenteDisponiveis) {
+        List<ConjuntoBits[]> criterios = new ArrayList<>(3);
+        if (!adicionarGenero(criterios, genero) || !adicionarClassificacao(criterios, classificacaoMaxima)) {
+            return new int[0];
+        }
+        if (somenteDisponiveis) {
+            criterios.add(new ConjuntoBits[] {disponiveis});
+        }
+        if (criterios.isEmpty()) {
+            return todos.listar();
+        }
+        return ConjuntoBits.listar(criterios.toArray(new ConjuntoBits[0][]));
+    }
+
+    ContagemFacetas contar(String genero, int classificacaoMaxima, boolean somenteDisponiveis) {
+        ConjuntoBits[] criterioGenero = criterioGenero(genero);
+        ConjuntoBits[] criterioClassificacao = criterioClassificacao(classificacaoMaxima);
+        ConjuntoBits[] criterioDisponiveis = somenteDisponiveis ? new ConjuntoBits[] {disponiveis} : null;
+
+        Map<String, Integer> generos = new LinkedHashMap<>();
+        for (Map.Entry<String, ConjuntoBits> entrada : porGenero.entrySet()) {
+            generos.put(entrada.getKey(),
+                    contar(new ConjuntoBits[] {entrada.getValue()}, criterioClassificacao, criterioDisponiveis));
+        }
+
+        Map<Integer, Integer> classificacoes = new LinkedHashMap<>();
+        for (int classificacao : classificacoesOrdenadas()) {
+            classificacoes.put(classificacao,
+                    contar(new ConjuntoBits[] {porClassificacao.obter(classificacao)}, criterioGenero, criterioDisponiveis));
+        }
+
+        return new ContagemFacetas(
+                contar(criterioGenero, criterioClassificacao, criterioDisponiveis),
+                contar(criterioGenero, criterioClassificacao, new ConjuntoBits[] {disponiveis}),
+                Collections.unmodifiableMap(generos),
+                Collections.unmodifiableMap(classificacoes));
+    }
+
+    /**
+     * Interseção dos critérios informados; {@code null} é um critério
+     * liberado.
+     */
+    private int contar(ConjuntoBits[]... criterios) {
+        List<ConjuntoBits[]> aplicados = new ArrayList<>(criterios.length);
+        for (ConjuntoBits[] criterio : criterios) {
+            if (criterio != null) {
+                aplicados.add(criterio);
+            }
+        }
+        if (aplicados.isEmpty()) {
+            return todos.tamanho();
+        }
+        return ConjuntoBits.contar(aplicados.toArray(new ConjuntoBits[0][]));
+    }
+
+    private boolean adicionarGenero(List<ConjuntoBits[]> criterios, String genero) {
+        if (genero == null) {
+            return true;
+        }
+        ConjuntoBits[] criterio = criterioGenero(genero);
+        criterios.add(criterio);
+        return criterio.length > 0;
+    }
+
+    private boolean adicionarClassificacao(List<ConjuntoBits[]> criterios, int classificacaoMaxima) {
+        ConjuntoBits[] criterio = criterioClassificacao(classificacaoMaxima);
+        if (criterio == null) {
+            return true;
+        }
+        criterios.add(criterio);
+        return criterio.length > 0;
+    }
+
+    /**
+     * @return {@code null} sem filtro de gênero; vazio se o gênero não existe
+     */
+    private ConjuntoBits[] criterioGenero(String genero) {
+        if (genero == null) {
+            return null;
+        }
+        ConjuntoBits doGenero = porGenero.get(genero);
+        return doGenero == null ? new ConjuntoBits[0] : new ConjuntoBits[] {doGenero};
+    }
+
+    /**
+     * @return a união das classificações até a máxima, ou {@code null} se
+     *         todas entram
+     */
+    private ConjuntoBits[] criterioClassificacao(int classificacaoMaxima) {
+        int[] classificacoes = classificacoesOrdenadas();
+        int aceitas = 0;
+        while (aceitas < classificacoes.length && classificacoes[aceitas] <= classificacaoMaxima) {
+            aceitas++;
+        }
+        if (aceitas == classificacoes.length) {
+            return null;
+        }
+
+        ConjuntoBits[] criterio = new ConjuntoBits[aceitas];
+        for (int i = 0; i < aceitas; i++) {
+            criterio[i] = porClassificacao.obter(classificacoes[i]);
+        }
+        return criterio;
+    }
+
+    private int[] classificacoesOrdenadas() {
+        int[] classificacoes = new int[porClassificacao.tamanho()];
+        int[] quantidade = new int[1];
+        porClassificacao.paraCadaEntrada((classificacao, conjunto) -> classificacoes[quantidade[0]++] = classificacao);
+        Arrays.sort(classificacoes);
+        return classificacoes;
+    }
+
+    private static String chaveGenero(String genero) {
+        return genero == null ? "" : genero;
+    }
+}
@@ -0,0 +1,89 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice ordenado de palavras para pesquisa por prefixo.
+ *
+ * Cada entrada é o par (palavra, id) e aponta para o item. Como as chaves
+ * ficam em ordem, os itens cujas palavras começam com um prefixo formam um
+ * intervalo contínuo: a pesquisa localiza o início em O(log n) e percorre só
+ * os acertos. O mapa é concorrente, então a pesquisa pode rodar em qualquer
+ * thread enquanto o serviço altera o índice.
+ *
+ * @param <T> tipo dos itens indexados
+ */
+final class IndicePrefixos<T> {
+    private static final Comparator<Chave> ORDEM = Comparator
+            .comparing(Chave::palavra)
+            .thenComparingLong(Chave::id);
+
+    private final ConcurrentSkipListMap<Chave, T> entradas;
+
+    IndicePrefixos() {
+        this.entradas = new ConcurrentSkipListMap<>(ORDEM);
+    }
+
+    void adicionar(String palavra, long id, T item) {
+        if (!palavra.isEmpty()) {
+            entradas.put(new Chave(palavra, id), item);
+        }
+    }
+
+    void remover(String palavra, long id) {
+        entradas.remove(new Chave(palavra, id));
+    }
+
+    void limpar() {
+        entradas.clear();
+    }
+
+    /**
+     * @return itens com alguma palavra que começa com o prefixo, em ordem de
+     *         palavra; um item aparece uma vez para cada palavra que casa
+     */
+    List<T> pesquisar(String prefixo) {
+        ConcurrentNavigableMap<Chave, T> intervalo = entradas.subMap(
+                new Chave(prefixo, Long.MIN_VALUE), true,
+                new Chave(prefixo + Character.MAX_VALUE, Long.MIN_VALUE), false);
+
+        List<T> encontrados = new ArrayList<>();
+        for (Map.Entry<Chave, T> entrada : intervalo.entrySet()) {
+            encontrados.add(entrada.getValue());
+        }
+        return encontrados;
+    }
+
+    /**
+     * Separa o texto em palavras minúsculas e sem acentos (ver
+     * {@link IndiceTitulos#dobrar}), usando como separador tudo o que não é
+     * letra nem dígito.
+     */
+    static List<String> separarPalavras(String texto) {
+        List<String> palavras = new ArrayList<>(4);
+        if (texto == null) {
+            return palavras;
+        }
+
+        String dobrado = IndiceTitulos.dobrar(texto);
+        int inicio = -1;
+        for (int i = 0; i <= dobrado.length(); i++) {
+            boolean letra = i < dobrado.length() && Character.isLetterOrDigit(dobrado.charAt(i));
+            if (letra && inicio < 0) {
+                inicio = i;
+            } else if (!letra && inicio >= 0) {
+                palavras.add(dobrado.substring(inicio, i));
+                inicio = -1;
+            }
+        }
+        return palavras;
+    }
+
+    private record Chave(String palavra, long id) {
+    }
+}
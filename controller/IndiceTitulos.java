@@ -0,0 +1,235 @@
+package controller;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Índice invertido de trigramas sobre os títulos, para a pesquisa por trecho
+ * do título sem percorrer o catálogo inteiro.
+ *
+ * Os títulos são "dobrados" (minúsculas e sem acentos, então "acao" encontra
+ * "Ação") e cada trigrama aponta para a lista de códigos que o contêm. Uma
+ * pesquisa intersecta as listas dos trigramas do termo, da menor para a
+ * maior, e confirma cada candidato com {@code contains} no título dobrado.
+ *
+ * A exclusão é preguiçosa: o código sai apenas do mapa de títulos e a
+ * verificação descarta as entradas velhas das listas; quando elas passam a ser
+ * maioria, o índice é reconstruído. Os métodos são sincronizados porque a
+ * pesquisa ordena as listas sob demanda.
+ */
+final class IndiceTitulos {
+    private static final int[] VAZIO = new int[0];
+
+    private final MapaInteiro<String> titulosDobrados;
+    private final Map<Long, Postagens> postagens;
+    private int entradasVelhas;
+    private int entradasTotais;
+
+    IndiceTitulos() {
+        this.titulosDobrados = new MapaInteiro<>();
+        this.postagens = new HashMap<>();
+    }
+
+    synchronized void indexar(int codigo, String titulo) {
+        String dobrado = dobrar(titulo);
+        String anterior = titulosDobrados.inserir(codigo, dobrado);
+
+        if (anterior != null) {
+            if (anterior.equals(dobrado)) {
+                return;
+            }
+            marcarVelhas(anterior);
+        }
+        adicionarTrigramas(codigo, dobrado);
+    }
+
+    synchronized void remover(int codigo) {
+        String anterior = titulosDobrados.remover(codigo);
+        if (anterior != null) {
+            marcarVelhas(anterior);
+        }
+    }
+
+    synchronized void limpar() {
+        titulosDobrados.limpar();
+        postagens.clear();
+        entradasVelhas = 0;
+        entradasTotais = 0;
+    }
+
+    /**
+     * @return códigos, em ordem crescente, dos filmes cujo título contém o
+     *         termo (ignorando maiúsculas e acentos)
+     */
+    synchronized int[] pesquisar(String termo) {
+        String dobrado = dobrar(termo);
+
+        if (dobrado.length() < 3) {
+            return pesquisarSemIndice(dobrado);
+        }
+
+        int quantidadeTrigramas = dobrado.length() - 2;
+        Postagens[] listas = new Postagens[quantidadeTrigramas];
+        for (int i = 0; i < quantidadeTrigramas; i++) {
+            Postagens lista = postagens.get(trigrama(dobrado, i));
+            if (lista == null) {
+                return VAZIO;
+            }
+            lista.ordenar();
+            listas[i] = lista;
+        }
+        Arrays.sort(listas, (a, b) -> Integer.compare(a.tamanho, b.tamanho));
+
+        int[] candidatos = listas[0].codigos;
+        int quantidadeCandidatos = listas[0].tamanho;
+        for (int i = 1; i < listas.length && quantidadeCandidatos > 0; i++) {
+            candidatos = intersectar(candidatos, quantidadeCandidatos, listas[i].codigos, listas[i].tamanho);
+            quantidadeCandidatos = candidatos.length;
+        }
+
+        int confirmados = 0;
+        int[] resultado = new int[quantidadeCandidatos];
+        for (int i = 0; i < quantidadeCandidatos; i++) {
+            int codigo = candidatos[i];
+            String titulo = titulosDobrados.obter(codigo);
+            if (titulo != null && titulo.contains(dobrado)) {
+                resultado[confirmados++] = codigo;
+            }
+        }
+        return Arrays.copyOf(resultado, confirmados);
+    }
+
+    /**
+     * Minúsculas e sem diacríticos.
+     */
+    static String dobrar(String texto) {
+        boolean ascii = true;
+        for (int i = 0; i < texto.length() && ascii; i++) {
+            ascii = texto.charAt(i) < 0x80;
+        }
+
+        String base = ascii ? texto : Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder dobrado = new StringBuilder(base.length());
+        for (int i = 0; i < base.length(); i++) {
+            char c = base.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                dobrado.append(Character.toLowerCase(c));
+            }
+        }
+        return dobrado.toString();
+    }
+
+    private int[] pesquisarSemIndice(String dobrado) {
+        int[] resultado = new int[titulosDobrados.tamanho()];
+        int[] quantidade = new int[1];
+
+        titulosDobrados.paraCadaEntrada((codigo, titulo) -> {
+            if (titulo.contains(dobrado)) {
+                resultado[quantidade[0]++] = codigo;
+            }
+        });
+
+        int[] encontrados = Arrays.copyOf(resultado, quantidade[0]);
+        Arrays.sort(encontrados);
+        return encontrados;
+    }
+
+    private void adicionarTrigramas(int codigo, String dobrado) {
+        for (int i = 0; i + 3 <= dobrado.length(); i++) {
+            postagens.computeIfAbsent(trigrama(dobrado, i), chave -> new Postagens()).adicionar(codigo);
+            entradasTotais++;
+        }
+    }
+
+    private void marcarVelhas(String dobrado) {
+        entradasVelhas += Math.max(0, dobrado.length() - 2);
+        if (entradasVelhas > 1024 && entradasVelhas * 2 > entradasTotais) {
+            reconstruir();
+        }
+    }
+
+    private void reconstruir() {
+        postagens.clear();
+        entradasVelhas = 0;
+        entradasTotais = 0;
+        titulosDobrados.paraCadaEntrada(this::adicionarTrigramas);
+    }
+
+    private static long trigrama(String texto, int inicio) {
+        return ((long) texto.charAt(inicio) << 32)
+                | ((long) texto.charAt(inicio + 1) << 16)
+                | texto.charAt(inicio + 2);
+    }
+
+    private static int[] intersectar(int[] menor, int tamanhoMenor, int[] maior, int tamanhoMaior) {
+        int[] resultado = new int[tamanhoMenor];
+        int quantidade = 0;
+        int j = 0;
+
+        for (int i = 0; i < tamanhoMenor; i++) {
+            int valor = menor[i];
+            j = buscarAPartirDe(maior, tamanhoMaior, j, valor);
+            if (j >= tamanhoMaior) {
+                break;
+            }
+            if (maior[j] == valor) {
+                resultado[quantidade++] = valor;
+            }
+        }
+        return Arrays.copyOf(resultado, quantidade);
+    }
+
+    /**
+     * Busca galopante: primeira posição a partir de {@code inicio} com valor
+     * maior ou igual ao procurado.
+     */
+    private static int buscarAPartirDe(int[] valores, int tamanho, int inicio, int procurado) {
+        int passo = 1;
+        int limite = inicio;
+        while (limite < tamanho && valores[limite] < procurado) {
+            inicio = limite + 1;
+            limite += passo;
+            passo <<= 1;
+        }
+
+        int fim = Math.min(limite, tamanho - 1);
+        int posicao = Arrays.binarySearch(valores, inicio, fim + 1, procurado);
+        return posicao >= 0 ? posicao : -posicao - 1;
+    }
+
+    /**
+     * Lista de códigos de um trigrama. Os códigos entram no fim e a lista é
+     * ordenada (sem repetições) só quando uma pesquisa precisa dela.
+     */
+    private static final class Postagens {
+        private int[] codigos = new int[4];
+        private int tamanho;
+        private boolean ordenada = true;
+
+        void adicionar(int codigo) {
+            if (tamanho == codigos.length) {
+                codigos = Arrays.copyOf(codigos, tamanho * 2);
+            }
+            if (tamanho > 0 && codigos[tamanho - 1] >= codigo) {
+                ordenada = false;
+            }
+            codigos[tamanho++] = codigo;
+        }
+
+        void ordenar() {
+            if (!ordenada) {
+                Arrays.sort(codigos, 0, tamanho);
+                int unicos = 0;
+                for (int i = 0; i < tamanho; i++) {
+                    if (unicos == 0 || codigos[unicos - 1] != codigos[i]) {
+                        codigos[unicos++] = codigos[i];
+                    }
+                }
+                tamanho = unicos;
+                ordenada = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package controller;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitura linha a linha de um CSV para as importações em lote, sem carregar o
+ * arquivo inteiro.
+ *
+ * O separador é descoberto na primeira linha não vazia: ';' se ela tiver
+ * algum, senão ','. Campos entre aspas podem conter o separador, e "" dentro
+ * deles vale uma aspa; um campo não pode continuar na linha seguinte. Linhas
+ * em branco são puladas e a primeira linha não vazia é tratada como cabeçalho
+ * se não tiver nenhum dígito (dados de filmes e usuários sempre têm código ou
+ * CPF).
+ */
+final class LeitorCsv implements Closeable {
+    private final BufferedReader leitor;
+    /** Zero até a primeira linha não vazia ser lida. */
+    private char separador;
+    private int linha;
+
+    LeitorCsv(File arquivo) throws IOException {
+        this.leitor = new BufferedReader(new FileReader(arquivo), 64 * 1024);
+    }
+
+    /**
+     * @return número da linha do último registro devolvido, a partir de 1
+     */
+    int getLinha() {
+        return linha;
+    }
+
+    /**
+     * @return os campos do próximo registro, já sem espaços nas pontas, ou
+     *         {@code null} no fim do arquivo
+     * @throws IllegalArgumentException se a linha tiver aspas sem fechar; a
+     *                                  leitura pode continuar na linha seguinte
+     */
+    String[] proximo() throws IOException {
+        String texto;
+        while ((texto = leitor.readLine()) != null) {
+            linha++;
+            if (texto.isBlank()) {
+                continue;
+            }
+            if (separador == 0) {
+                separador = texto.indexOf(';') >= 0 ? ';' : ',';
+                if (semDigitos(texto)) {
+                    continue;
+                }
+            }
+            return separar(texto);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        leitor.close();
+    }
+
+    private String[] separar(String texto) {
+        if (texto.indexOf('"') < 0) {
+            return separarSemAspas(texto);
+        }
+
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreAspas = false;
+
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (entreAspas) {
+                if (c != '"') {
+                    campo.append(c);
+                } else if (i + 1 < texto.length() && texto.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else {
+                    entreAspas = false;
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString().trim());
+                campo.setLength(0);
+            } else {
+                campo.append(c);
+            }
+        }
+
+        if (entreAspas) {
+            throw new IllegalArgumentException("aspas sem fechar.");
+        }
+        campos.add(campo.toString().trim());
+        return campos.toArray(new String[0]);
+    }
+
+    /**
+     * Caminho comum, sem aspas: corta nos separadores sem copiar caractere
+     * por caractere.
+     */
+    private String[] separarSemAspas(String texto) {
+        int quantidade = 1;
+        for (int i = texto.indexOf(separador); i >= 0; i = texto.indexOf(separador, i + 1)) {
+            quantidade++;
+        }
+
+        String[] campos = new String[quantidade];
+        int inicio = 0;
+        for (int i = 0; i < quantidade - 1; i++) {
+            int fim = texto.indexOf(separador, inicio);
+            campos[i] = texto.substring(inicio, fim).trim();
+            inicio = fim + 1;
+        }
+        campos[quantidade - 1] = texto.substring(inicio).trim();
+        return campos;
+    }
+
+    private static boolean semDigitos(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (Character.isDigit(texto.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
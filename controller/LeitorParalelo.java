@@ -0,0 +1,198 @@
+package controller;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Leitor dos arquivos texto separados por ";" usado na carga dos serviços.
+ *
+ * O arquivo é dividido em blocos que sempre terminam em fim de linha; cada
+ * bloco é lido com uma única leitura posicional do {@link FileChannel}, que
+ * copia os bytes direto para o vetor do bloco, e interpretado em paralelo no
+ * {@link ForkJoinPool} comum por um separador de campos escrito à mão (sem
+ * expressão regular). O resultado mantém a ordem das linhas do arquivo.
+ *
+ * Os campos seguem a mesma regra de {@code String.split(";")}: campos vazios
+ * no fim da linha são descartados. Linhas vazias são ignoradas. O texto é
+ * decodificado com o charset padrão, o mesmo usado pelos {@code Scanner} e
+ * {@code FileWriter} do restante do projeto.
+ */
+final class LeitorParalelo {
+    private static final int TAMANHO_BLOCO = 4 * 1024 * 1024;
+    private static final byte SEPARADOR = ';';
+    private static final byte FIM_LINHA = '\n';
+    private static final byte RETORNO = '\r';
+
+    private LeitorParalelo() {
+    }
+
+    /**
+     * Lê o arquivo e converte cada linha com o conversor informado. O conversor
+     * roda nas threads de trabalho, então não pode depender de estado
+     * compartilhado; ele pode devolver {@code null} para descartar a linha.
+     */
+    static <T> List<T> ler(File arquivo, Function<String[], T> conversor) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            long tamanho = canal.size();
+            if (tamanho == 0) {
+                return new ArrayList<>();
+            }
+
+            long[] limites = calcularLimites(canal, tamanho);
+            Bloco<T> tarefa = new Bloco<>(canal, limites, 0, limites.length - 1, conversor, Charset.defaultCharset());
+
+            return ForkJoinPool.commonPool().invoke(tarefa);
+        }
+    }
+
+    /**
+     * Divide o arquivo em blocos de aproximadamente {@link #TAMANHO_BLOCO}
+     * bytes, empurrando cada limite até o próximo fim de linha.
+     */
+    private static long[] calcularLimites(FileChannel canal, long tamanho) throws IOException {
+        List<Long> limites = new ArrayList<>();
+        limites.add(0L);
+        ByteBuffer janela = ByteBuffer.allocate(8192);
+
+        long posicao = TAMANHO_BLOCO;
+        while (posicao < tamanho) {
+            long fimLinha = procurarFimLinha(canal, janela, posicao, tamanho);
+            if (fimLinha >= tamanho) {
+                break;
+            }
+            limites.add(fimLinha + 1);
+            posicao = fimLinha + 1 + TAMANHO_BLOCO;
+        }
+        limites.add(tamanho);
+
+        long[] resultado = new long[limites.size()];
+        for (int i = 0; i < resultado.length; i++) {
+            resultado[i] = limites.get(i);
+        }
+        return resultado;
+    }
+
+    private static long procurarFimLinha(FileChannel canal, ByteBuffer janela, long inicio, long tamanho) throws IOException {
+        long posicao = inicio;
+        while (posicao < tamanho) {
+            janela.clear();
+            int lidos = canal.read(janela, posicao);
+            if (lidos <= 0) {
+                break;
+            }
+            for (int i = 0; i < lidos; i++) {
+                if (janela.get(i) == FIM_LINHA) {
+                    return posicao + i;
+                }
+            }
+            posicao += lidos;
+        }
+        return tamanho;
+    }
+
+    /**
+     * Interpreta os blocos [primeiro, ultimo) dividindo o intervalo ao meio
+     * até sobrar um único bloco.
+     */
+    private static final class Bloco<T> extends RecursiveTask<List<T>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel canal;
+        private final long[] limites;
+        private final int primeiro;
+        private final int ultimo;
+        private final Function<String[], T> conversor;
+        private final Charset charset;
+
+        Bloco(FileChannel canal, long[] limites, int primeiro, int ultimo,
+                Function<String[], T> conversor, Charset charset) {
+            this.canal = canal;
+            this.limites = limites;
+            this.primeiro = primeiro;
+            this.ultimo = ultimo;
+            this.conversor = conversor;
+            this.charset = charset;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (ultimo - primeiro == 1) {
+                return interpretar(limites[primeiro], limites[ultimo]);
+            }
+
+            int meio = (primeiro + ultimo) >>> 1;
+            Bloco<T> esquerda = new Bloco<>(canal, limites, primeiro, meio, conversor, charset);
+            Bloco<T> direita = new Bloco<>(canal, limites, meio, ultimo, conversor, charset);
+            esquerda.fork();
+            List<T> resultadoDireita = direita.compute();
+            List<T> resultado = esquerda.join();
+            resultado.addAll(resultadoDireita);
+            return resultado;
+        }
+
+        private List<T> interpretar(long inicio, long fim) {
+            byte[] dados = new byte[(int) (fim - inicio)];
+            ByteBuffer destino = ByteBuffer.wrap(dados);
+            try {
+                while (destino.hasRemaining()) {
+                    if (canal.read(destino, inicio + destino.position()) < 0) {
+                        throw new IOException("o arquivo diminuiu durante a leitura");
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Erro ao ler arquivo: " + e.getMessage(), e);
+            }
+
+            List<T> resultado = new ArrayList<>(dados.length / 32 + 1);
+            String[] campos = new String[8];
+            int inicioLinha = 0;
+
+            while (inicioLinha < dados.length) {
+                int fimLinha = inicioLinha;
+                while (fimLinha < dados.length && dados[fimLinha] != FIM_LINHA) {
+                    fimLinha++;
+                }
+
+                int fimConteudo = fimLinha;
+                if (fimConteudo > inicioLinha && dados[fimConteudo - 1] == RETORNO) {
+                    fimConteudo--;
+                }
+
+                int quantidade = 0;
+                int inicioCampo = inicioLinha;
+                for (int i = inicioLinha; i <= fimConteudo; i++) {
+                    if (i == fimConteudo || dados[i] == SEPARADOR) {
+                        if (quantidade == campos.length) {
+                            campos = Arrays.copyOf(campos, quantidade * 2);
+                        }
+                        campos[quantidade++] = new String(dados, inicioCampo, i - inicioCampo, charset);
+                        inicioCampo = i + 1;
+                    }
+                }
+
+                while (quantidade > 0 && campos[quantidade - 1].isEmpty()) {
+                    quantidade--;
+                }
+                if (quantidade > 0) {
+                    T convertido = conversor.apply(Arrays.copyOf(campos, quantidade));
+                    if (convertido != null) {
+                        resultado.add(convertido);
+                    }
+                }
+
+                inicioLinha = fimLinha + 1;
+            }
+            return resultado;
+        }
+    }
+}
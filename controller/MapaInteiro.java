@@ -0,0 +1,227 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Mapa de chave {@code int} para objeto, sem boxing, que preserva a ordem de
+ * inserção para as listagens.
+ *
+ * Os valores ficam em vetores densos na ordem em que foram inseridos; uma
+ * tabela de endereçamento aberto guarda apenas a posição de cada chave. A
+ * remoção marca a posição como vazia em vez de deslocar o vetor, e o vetor só
+ * é compactado quando metade dele estiver vazia, o que mantém o custo
+ * amortizado constante. Não aceita valores nulos. Não é thread-safe.
+ */
+final class MapaInteiro<V> {
+    private static final int LIVRE = 0;
+    private static final int REMOVIDO = -1;
+    private static final int CAPACIDADE_INICIAL = 16;
+
+    /** posição + 1 no vetor de valores; {@link #LIVRE} ou {@link #REMOVIDO}. */
+    private int[] tabela;
+    private int[] chaves;
+    private Object[] valores;
+    private int posicoesUsadas;
+    private int tamanho;
+    private int removidosNaTabela;
+
+    MapaInteiro() {
+        this.tabela = new int[CAPACIDADE_INICIAL * 2];
+        this.chaves = new int[CAPACIDADE_INICIAL];
+        this.valores = new Object[CAPACIDADE_INICIAL];
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    boolean contem(int chave) {
+        return localizar(chave) >= 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V obter(int chave) {
+        int indice = localizar(chave);
+        return indice < 0 ? null : (V) valores[tabela[indice] - 1];
+    }
+
+    /**
+     * Insere ou substitui o valor da chave. Uma substituição mantém a posição
+     * original na ordem de inserção.
+     *
+     * @return o valor anterior, ou {@code null} se a chave não existia
+     */
+    @SuppressWarnings("unchecked")
+    V inserir(int chave, V valor) {
+        if (valor == null) {
+            throw new IllegalArgumentException("Valor não pode ser nulo.");
+        }
+
+        int indice = localizar(chave);
+        if (indice >= 0) {
+            int posicao = tabela[indice] - 1;
+            V anterior = (V) valores[posicao];
+            valores[posicao] = valor;
+            return anterior;
+        }
+
+        if (posicoesUsadas == valores.length) {
+            crescerVetores();
+        }
+        if ((tamanho + removidosNaTabela + 1) * 4 > tabela.length * 3) {
+            redimensionarTabela(tabela.length * (tamanho * 2 >= tabela.length ? 2 : 1));
+        }
+
+        int posicao = posicoesUsadas++;
+        chaves[posicao] = chave;
+        valores[posicao] = valor;
+        ocuparTabela(chave, posicao);
+        tamanho++;
+        return null;
+    }
+
+    /**
+     * @return o valor removido, ou {@code null} se a chave não existia
+     */
+    @SuppressWarnings("unchecked")
+    V remover(int chave) {
+        int indice = localizar(chave);
+        if (indice < 0) {
+            return null;
+        }
+
+        int posicao = tabela[indice] - 1;
+        V removido = (V) valores[posicao];
+        valores[posicao] = null;
+        tabela[indice] = REMOVIDO;
+        removidosNaTabela++;
+        tamanho--;
+
+        if (posicoesUsadas > CAPACIDADE_INICIAL && tamanho * 2 < posicoesUsadas) {
+            compactar();
+        }
+        return removido;
+    }
+
+    void limpar() {
+        Arrays.fill(tabela, LIVRE);
+        Arrays.fill(valores, 0, posicoesUsadas, null);
+        posicoesUsadas = 0;
+        tamanho = 0;
+        removidosNaTabela = 0;
+    }
+
+    /**
+     * Percorre os valores na ordem de inserção.
+     */
+    @SuppressWarnings("unchecked")
+    void paraCada(Consumer<? super V> acao) {
+        for (int i = 0; i < posicoesUsadas; i++) {
+            Object valor = valores[i];
+            if (valor != null) {
+                acao.accept((V) valor);
+            }
+        }
+    }
+
+    /**
+     * Percorre chaves e valores na ordem de inserção.
+     */
+    @SuppressWarnings("unchecked")
+    void paraCadaEntrada(ConsumidorEntrada<? super V> acao) {
+        for (int i = 0; i < posicoesUsadas; i++) {
+            Object valor = valores[i];
+            if (valor != null) {
+                acao.aceitar(chaves[i], (V) valor);
+            }
+        }
+    }
+
+    /**
+     * Copia os valores, na ordem de inserção, para uma nova lista.
+     */
+    List<V> listar() {
+        List<V> lista = new ArrayList<>(tamanho);
+        paraCada(lista::add);
+        return lista;
+    }
+
+    private int localizar(int chave) {
+        int mascara = tabela.length - 1;
+        int indice = espalhar(chave) & mascara;
+
+        while (true) {
+            int entrada = tabela[indice];
+            if (entrada == LIVRE) {
+                return -1;
+            }
+            if (entrada > 0 && chaves[entrada - 1] == chave) {
+                return indice;
+            }
+            indice = (indice + 1) & mascara;
+        }
+    }
+
+    private void ocuparTabela(int chave, int posicao) {
+        int mascara = tabela.length - 1;
+        int indice = espalhar(chave) & mascara;
+
+        while (tabela[indice] > 0) {
+            indice = (indice + 1) & mascara;
+        }
+        if (tabela[indice] == REMOVIDO) {
+            removidosNaTabela--;
+        }
+        tabela[indice] = posicao + 1;
+    }
+
+    private void crescerVetores() {
+        if (tamanho * 2 < posicoesUsadas) {
+            compactar();
+            return;
+        }
+
+        int novaCapacidade = valores.length * 2;
+        chaves = Arrays.copyOf(chaves, novaCapacidade);
+        valores = Arrays.copyOf(valores, novaCapacidade);
+    }
+
+    private void compactar() {
+        int destino = 0;
+        for (int origem = 0; origem < posicoesUsadas; origem++) {
+            if (valores[origem] != null) {
+                chaves[destino] = chaves[origem];
+                valores[destino] = valores[origem];
+                destino++;
+            }
+        }
+        for (int i = destino; i < posicoesUsadas; i++) {
+            valores[i] = null;
+        }
+        posicoesUsadas = destino;
+        redimensionarTabela(tabela.length);
+    }
+
+    private void redimensionarTabela(int novoTamanho) {
+        tabela = new int[novoTamanho];
+        removidosNaTabela = 0;
+        for (int posicao = 0; posicao < posicoesUsadas; posicao++) {
+            if (valores[posicao] != null) {
+                ocuparTabela(chaves[posicao], posicao);
+            }
+        }
+    }
+
+    private static int espalhar(int chave) {
+        int h = chave * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @FunctionalInterface
+    interface ConsumidorEntrada<V> {
+        void aceitar(int chave, V valor);
+    }
+}
@@ -0,0 +1,11 @@
+package controller;
+
+/**
+ * Um valor numérico publicado no console JMX: um contador que só cresce
+ * (aluguéis, registros de diário) ou uma leitura feita na hora (tamanho de um
+ * arquivo, quantidade de filmes).
+ */
+public interface MedidorMXBean {
+
+    long getValor();
+}
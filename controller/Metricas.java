@@ -0,0 +1,98 @@
+package controller;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Métricas de um grupo (um serviço ou o diário de um arquivo): latência de
+ * cada operação ({@link Operacao}), contadores e medidores lidos na hora.
+ *
+ * Cada métrica é criada no primeiro uso do nome e publicada no servidor JMX
+ * da plataforma como "locadora:type=Operacao|Contador|Medidor,grupo=...,nome=...",
+ * para ser acompanhada pelo JConsole ou VisualVM. Uma falha ao publicar só é
+ * avisada: a métrica continua sendo registrada em memória.
+ */
+final class Metricas {
+    static final String DOMINIO = "locadora";
+
+    private static final Logger LOG = Logger.getLogger(Metricas.class.getName());
+    private static final Map<String, Metricas> GRUPOS = new ConcurrentHashMap<>();
+
+    private final String grupo;
+    private final Map<String, Operacao> operacoes;
+    private final Map<String, LongAdder> contadores;
+
+    private Metricas(String grupo) {
+        this.grupo = grupo;
+        this.operacoes = new ConcurrentHashMap<>();
+        this.contadores = new ConcurrentHashMap<>();
+    }
+
+    static Metricas grupo(String nome) {
+        return GRUPOS.computeIfAbsent(nome, Metricas::new);
+    }
+
+    <T> T medir(String operacao, Supplier<T> acao) {
+        return operacao(operacao).medir(acao);
+    }
+
+    void medir(String operacao, Runnable acao) {
+        operacao(operacao).medir(acao);
+    }
+
+    Operacao operacao(String nome) {
+        Operacao operacao = operacoes.get(nome);
+        if (operacao != null) {
+            return operacao;
+        }
+        return operacoes.computeIfAbsent(nome, n -> publicar(new Operacao(), "Operacao", n));
+    }
+
+    void incrementar(String contador) {
+        somar(contador, 1L);
+    }
+
+    void somar(String contador, long quantidade) {
+        LongAdder valor = contadores.get(contador);
+        if (valor == null) {
+            valor = contadores.computeIfAbsent(contador, n -> {
+                LongAdder novo = new LongAdder();
+                publicar((MedidorMXBean) novo::sum, "Contador", n);
+                return novo;
+            });
+        }
+        valor.add(quantidade);
+    }
+
+    /**
+     * Publica um valor lido a cada consulta do console. Se já houver um
+     * medidor com o nome, ele é substituído.
+     */
+    void medidor(String nome, LongSupplier leitura) {
+        publicar((MedidorMXBean) leitura::getAsLong, "Medidor", nome);
+    }
+
+    private <M> M publicar(M mbean, String tipo, String nome) {
+        try {
+            ObjectName objeto = new ObjectName(DOMINIO + ":type=" + tipo
+                    + ",grupo=" + grupo + ",nome=" + nome);
+            MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+            if (servidor.isRegistered(objeto)) {
+                servidor.unregisterMBean(objeto);
+            }
+            servidor.registerMBean(mbean, objeto);
+        } catch (JMException e) {
+            LOG.log(Level.WARNING, "Erro ao publicar a métrica " + grupo + "/" + nome, e);
+        }
+        return mbean;
+    }
+}
@@ -0,0 +1,175 @@
+package controller;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Latências de uma operação num histograma log-linear em nanossegundos: até
+ * 15 ns uma faixa por valor, depois cada potência de 2 dividida em 8 faixas.
+ * Registrar custa duas leituras de {@link System#nanoTime()}, um incremento
+ * atômico na faixa, um {@link LongAdder#add} na soma e um
+ * {@link LongAccumulator#accumulate} no máximo (mais um incremento nas
+ * falhas), sem travas nem alocação; a memória é fixa (488 faixas) qualquer
+ * que seja o número de chamadas.
+ */
+final class Operacao implements OperacaoMXBean {
+    private static final int FAIXAS_LINEARES = 16;
+    private static final int SUBFAIXAS = 8;
+    private static final int BITS_SUBFAIXA = 3;
+    private static final int QUANTIDADE_FAIXAS = FAIXAS_LINEARES + (63 - 4) * SUBFAIXAS;
+    private static final double NANOS_POR_MS = 1_000_000.0;
+
+    private final AtomicLongArray faixas;
+    private final LongAdder somaNanos;
+    private final LongAdder falhas;
+    private final LongAccumulator maximoNanos;
+
+    Operacao() {
+        this.faixas = new AtomicLongArray(QUANTIDADE_FAIXAS);
+        this.somaNanos = new LongAdder();
+        this.falhas = new LongAdder();
+        this.maximoNanos = new LongAccumulator(Math::max, 0L);
+    }
+
+    <T> T medir(Supplier<T> acao) {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            T resultado = acao.get();
+            sucesso = true;
+            return resultado;
+        } finally {
+            registrar(inicio, sucesso);
+        }
+    }
+
+    void medir(Runnable acao) {
+        long inicio = System.nanoTime();
+        boolean sucesso = false;
+        try {
+            acao.run();
+            sucesso = true;
+        } finally {
+            registrar(inicio, sucesso);
+        }
+    }
+
+    /**
+     * @param inicio valor de {@link System#nanoTime()} no começo da operação
+     */
+    void registrar(long inicio, boolean sucesso) {
+        long nanos = Math.max(0L, System.nanoTime() - inicio);
+        faixas.incrementAndGet(faixa(nanos));
+        somaNanos.add(nanos);
+        maximoNanos.accumulate(nanos);
+        if (!sucesso) {
+            falhas.increment();
+        }
+    }
+
+    @Override
+    public long getChamadas() {
+        long chamadas = 0;
+        for (int i = 0; i < QUANTIDADE_FAIXAS; i++) {
+            chamadas += faixas.get(i);
+        }
+        return chamadas;
+    }
+
+    @Override
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    @Override
+    public double getMediaMs() {
+        long chamadas = getChamadas();
+        return chamadas == 0 ? 0.0 : somaNanos.sum() / (double) chamadas / NANOS_POR_MS;
+    }
+
+    @Override
+    public double getP50Ms() {
+        return percentil(0.50);
+    }
+
+    @Override
+    public double getP90Ms() {
+        return percentil(0.90);
+    }
+
+    @Override
+    public double getP99Ms() {
+        return percentil(0.99);
+    }
+
+    @Override
+    public double getP999Ms() {
+        return percentil(0.999);
+    }
+
+    @Override
+    public double getMaximoMs() {
+        return maximoNanos.get() / NANOS_POR_MS;
+    }
+
+    /**
+     * Recomeça a contagem. Chamadas em andamento podem cair tanto antes
+     * quanto depois do corte.
+     */
+    @Override
+    public void zerar() {
+        for (int i = 0; i < QUANTIDADE_FAIXAS; i++) {
+            faixas.set(i, 0L);
+        }
+        somaNanos.reset();
+        falhas.reset();
+        maximoNanos.reset();
+    }
+
+    /**
+     * @return o limite superior da faixa onde cai o percentil, sem passar do
+     *         máximo observado
+     */
+    private double percentil(double fracao) {
+        long[] contagens = new long[QUANTIDADE_FAIXAS];
+        long chamadas = 0;
+        for (int i = 0; i < QUANTIDADE_FAIXAS; i++) {
+            contagens[i] = faixas.get(i);
+            chamadas += contagens[i];
+        }
+        if (chamadas == 0) {
+            return 0.0;
+        }
+
+        long posicao = Math.max(1L, (long) Math.ceil(fracao * chamadas));
+        long acumulado = 0;
+        for (int i = 0; i < QUANTIDADE_FAIXAS; i++) {
+            acumulado += contagens[i];
+            if (acumulado >= posicao) {
+                return Math.min(limiteSuperior(i), maximoNanos.get()) / NANOS_POR_MS;
+            }
+        }
+        return getMaximoMs();
+    }
+
+    private static int faixa(long nanos) {
+        if (nanos < FAIXAS_LINEARES) {
+            return (int) nanos;
+        }
+        int expoente = 63 - Long.numberOfLeadingZeros(nanos);
+        int subfaixa = (int) (nanos >>> (expoente - BITS_SUBFAIXA)) & (SUBFAIXAS - 1);
+        return FAIXAS_LINEARES + (expoente - 4) * SUBFAIXAS + subfaixa;
+    }
+
+    private static long limiteSuperior(int faixa) {
+        if (faixa < FAIXAS_LINEARES) {
+            return faixa;
+        }
+        int expoente = (faixa - FAIXAS_LINEARES) / SUBFAIXAS + 4;
+        int subfaixa = (faixa - FAIXAS_LINEARES) % SUBFAIXAS;
+        long largura = 1L << (expoente - BITS_SUBFAIXA);
+        return (SUBFAIXAS + subfaixa) * largura + largura - 1;
+    }
+}
@@ -0,0 +1,28 @@
+package controller;
+
+/**
+ * Latência e falhas de uma operação dos serviços, como aparecem no console
+ * JMX. Os percentis vêm de um histograma com erro de até 12,5% e valem desde
+ * a criação da operação ou o último {@link #zerar}.
+ */
+public interface OperacaoMXBean {
+
+    long getChamadas();
+
+    /** Chamadas que terminaram com exceção; também entram nas latências. */
+    long getFalhas();
+
+    double getMediaMs();
+
+    double getP50Ms();
+
+    double getP90Ms();
+
+    double getP99Ms();
+
+    double getP999Ms();
+
+    double getMaximoMs();
+
+    void zerar();
+}
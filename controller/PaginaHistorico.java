@@ -0,0 +1,14 @@
+package controller;
+
+import java.util.List;
+
+/**
+ * Uma página do histórico de aluguéis de um cliente, já pronta para a tela.
+ *
+ * @param pagina        número da página, a partir de 0
+ * @param totalPaginas  páginas do histórico (ao menos 1)
+ * @param totalAlugueis aluguéis do cliente em todo o histórico
+ * @param linhas        texto de cada aluguel da página, em ordem de gravação
+ */
+public record PaginaHistorico(int pagina, int totalPaginas, int totalAlugueis, List<String> linhas) {
+}
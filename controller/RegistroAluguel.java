@@ -0,0 +1,16 @@
+package controller;
+
+/**
+ * Linha do histórico de aluguéis já interpretada. Registros no formato antigo
+ * (CPF;Nome;CodFilme;TituloFilme) não têm id de cliente e usam
+ * {@link #SEM_ID}; os do formato atual (IdUsuario;CodFilme;TituloFilme) não
+ * trazem CPF nem nome. O título é o do filme na data do aluguel e serve para
+ * mostrar filmes que já saíram do catálogo.
+ */
+record RegistroAluguel(long clienteId, String cpf, String nome, int codFilme, String titulo) {
+    static final long SEM_ID = -1L;
+
+    boolean possuiClienteId() {
+        return clienteId != SEM_ID;
+    }
+}
@@ -0,0 +1,23 @@
+package controller;
+
+import java.util.List;
+
+/**
+ * Resultado de uma importação em lote.
+ *
+ * @param importados  quantidade de registros gravados
+ * @param rejeitadas  linhas recusadas, em ordem de linha
+ */
+public record RelatorioImportacao(int importados, List<Rejeicao> rejeitadas) {
+
+    /**
+     * @param linha  número da linha no arquivo, a partir de 1
+     * @param motivo por que a linha não foi importada
+     */
+    public record Rejeicao(int linha, String motivo) {
+        @Override
+        public String toString() {
+            return "Linha " + linha + ": " + motivo;
+        }
+    }
+}
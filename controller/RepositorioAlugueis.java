@@ -0,0 +1,68 @@
+package controller;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import model.Aluguel;
+
+/**
+ * Persistência dos aluguéis: o histórico por filme e por cliente e os
+ * eventos de aluguel e devolução com data e hora.
+ *
+ * Implementações: {@link RepositorioAlugueisArquivo} (padrão), com os
+ * segmentos de {@link HistoricoAlugueis} e os arquivos mensais de
+ * {@link EventosAlugueis}, e {@link RepositorioAlugueisBanco}; a escolha é de
+ * {@link Armazenamento}. Podem ser usadas por várias threads.
+ */
+interface RepositorioAlugueis {
+
+    /**
+     * Grava os aluguéis de uma mesma operação no histórico e os eventos de
+     * aluguel correspondentes, com a data e o prazo de cada aluguel.
+     *
+     * @return os eventos como foram gravados, na ordem dos aluguéis
+     */
+    List<EventoAluguel> registrarAlugueis(List<Aluguel> alugueis);
+
+    void registrarDevolucoes(List<EventoAluguel> devolucoes);
+
+    /**
+     * @return os aluguéis do filme em ordem de gravação
+     */
+    List<RegistroAluguel> listarPorFilme(int codFilme);
+
+    /**
+     * Uma página dos aluguéis do cliente em ordem de gravação.
+     *
+     * @param inicio     posição do primeiro aluguel da página
+     * @param quantidade aluguéis por página
+     */
+    PaginaRegistros listarPorCliente(long clienteId, int inicio, int quantidade);
+
+    /**
+     * @return os eventos do tipo no intervalo [inicio, fim), em ordem de tempo
+     */
+    List<EventoAluguel> listarEventos(Instant inicio, Instant fim, EventoAluguel.Tipo tipo);
+
+    /**
+     * Procura o último evento de cada filme informado.
+     *
+     * @param procurados códigos dos filmes; os achados são retirados do conjunto
+     * @return os aluguéis que são o último evento do filme, do mais recente
+     *         para o mais antigo
+     */
+    List<EventoAluguel> ultimosAlugueis(ConjuntoBits procurados);
+
+    /**
+     * @return futuro concluído quando os aluguéis registrados até agora
+     *         estiverem gravados
+     */
+    CompletableFuture<Void> sincronizar();
+
+    /**
+     * @param total     aluguéis do cliente em todo o histórico
+     * @param registros os da página pedida
+     */
+    record PaginaRegistros(int total, List<RegistroAluguel> registros) {
+    }
+}
@@ -0,0 +1,74 @@
+package controller;
+
+import java.io.File;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.ToLongFunction;
+import model.Aluguel;
+
+/**
+ * Aluguéis em "alugueis.txt" e ao lado dele: o histórico selado em segmentos
+ * indexados por filme e por cliente ({@link HistoricoAlugueis}) e os eventos
+ * com data em arquivos mensais de largura fixa ({@link EventosAlugueis}).
+ */
+final class RepositorioAlugueisArquivo implements RepositorioAlugueis {
+    private final HistoricoAlugueis historico;
+    private final EventosAlugueis eventos;
+
+    /**
+     * @param idPorCpf usado pela migração do histórico antigo; veja
+     *                 {@link HistoricoAlugueis}
+     */
+    RepositorioAlugueisArquivo(File arquivoAlugueis, ToLongFunction<String> idPorCpf, Metricas metricas) {
+        this.historico = new HistoricoAlugueis(arquivoAlugueis, HistoricoAlugueis.LIMITE_PADRAO, idPorCpf);
+        this.eventos = new EventosAlugueis(arquivoAlugueis);
+
+        metricas.medidor("bytesHistorico", arquivoAlugueis::length);
+        metricas.medidor("segmentosHistorico", historico::quantidadeSegmentos);
+    }
+
+    @Override
+    public List<EventoAluguel> registrarAlugueis(List<Aluguel> alugueis) {
+        List<EventoAluguel> novos = new ArrayList<>(alugueis.size());
+        for (Aluguel aluguel : alugueis) {
+            novos.add(new EventoAluguel(aluguel.getDataAluguel(), EventoAluguel.Tipo.ALUGUEL,
+                    aluguel.getCliente().getId(), aluguel.getFilme().getCodFilme(), aluguel.getPrazoDevolucao()));
+        }
+
+        // Uma falha ao anexar ao histórico faz falhar o próximo sincronizar().
+        historico.registrar(alugueis);
+        return eventos.registrar(novos);
+    }
+
+    @Override
+    public void registrarDevolucoes(List<EventoAluguel> devolucoes) {
+        eventos.registrar(devolucoes);
+    }
+
+    @Override
+    public List<RegistroAluguel> listarPorFilme(int codFilme) {
+        return historico.listarPorFilme(codFilme);
+    }
+
+    @Override
+    public PaginaRegistros listarPorCliente(long clienteId, int inicio, int quantidade) {
+        return historico.listarPorCliente(clienteId, inicio, quantidade);
+    }
+
+    @Override
+    public List<EventoAluguel> listarEventos(Instant inicio, Instant fim, EventoAluguel.Tipo tipo) {
+        return eventos.listar(inicio, fim, tipo);
+    }
+
+    @Override
+    public List<EventoAluguel> ultimosAlugueis(ConjuntoBits procurados) {
+        return eventos.ultimosAlugueis(procurados);
+    }
+
+    @Override
+    public CompletableFuture<Void> sincronizar() {
+        return EscritorAssincrono.getInstance().sincronizar();
+    }
+}
@@ -0,0 +1,204 @@
+package controller;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import model.Aluguel;
+
+/**
+ * Aluguéis nas tabelas "alugueis" e "eventos_aluguel" do
+ * {@link BancoEmbutido}. Cada operação grava suas linhas com um lote por
+ * tabela numa única transação, que pode ser a de
+ * {@link BancoEmbutido#gravarJuntos} junto com os filmes, e as consultas usam os índices criados com o
+ * esquema: por filme e por cliente no histórico, por instante e por filme
+ * nos eventos. Os ids crescem na ordem de gravação e desempatam as linhas.
+ */
+final class RepositorioAlugueisBanco implements RepositorioAlugueis {
+    private static final char ALUGUEL = 'A';
+    private static final char DEVOLUCAO = 'D';
+    private static final String COLUNAS_EVENTO = "instante, tipo, cliente_id, cod_filme, prazo";
+
+    private final BancoEmbutido banco;
+    /** Próximos ids; só mudam dentro de uma transação do banco. */
+    private long proximoAluguel;
+    private long proximoEvento;
+
+    RepositorioAlugueisBanco(BancoEmbutido banco) {
+        this.banco = banco;
+        banco.executar("lerIdsAlugueis", c -> {
+            proximoAluguel = BancoEmbutido.maximo(c, "alugueis", "id") + 1;
+            proximoEvento = BancoEmbutido.maximo(c, "eventos_aluguel", "id") + 1;
+            return null;
+        });
+    }
+
+    @Override
+    public List<EventoAluguel> registrarAlugueis(List<Aluguel> alugueis) {
+        List<EventoAluguel> eventos = new ArrayList<>(alugueis.size());
+        for (Aluguel aluguel : alugueis) {
+            eventos.add(new EventoAluguel(aluguel.getDataAluguel(), EventoAluguel.Tipo.ALUGUEL,
+                    aluguel.getCliente().getId(), aluguel.getFilme().getCodFilme(), aluguel.getPrazoDevolucao()));
+        }
+
+        return banco.executar("registrarAlugueis", c -> {
+            try (PreparedStatement inserir = c.prepareStatement(
+                    "INSERT INTO alugueis (id, cliente_id, cod_filme, titulo) VALUES (?, ?, ?, ?)")) {
+                for (Aluguel aluguel : alugueis) {
+                    inserir.setLong(1, proximoAluguel++);
+                    inserir.setLong(2, aluguel.getCliente().getId());
+                    inserir.setInt(3, aluguel.getFilme().getCodFilme());
+                    inserir.setString(4, aluguel.getFilme().getTitulo());
+                    inserir.addBatch();
+                }
+                inserir.executeBatch();
+            }
+            inserirEventos(c, eventos);
+            return eventos;
+        });
+    }
+
+    @Override
+    public void registrarDevolucoes(List<EventoAluguel> devolucoes) {
+        banco.executar("registrarDevolucoes", c -> {
+            inserirEventos(c, devolucoes);
+            return null;
+        });
+    }
+
+    private void inserirEventos(Connection c, List<EventoAluguel> eventos) throws SQLException {
+        try (PreparedStatement inserir = c.prepareStatement(
+                "INSERT INTO eventos_aluguel (id, " + COLUNAS_EVENTO + ") VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (EventoAluguel evento : eventos) {
+                inserir.setLong(1, proximoEvento++);
+                inserir.setLong(2, evento.instante().toEpochMilli());
+                inserir.setString(3, codigoTipo(evento.tipo()));
+                inserir.setLong(4, evento.clienteId());
+                inserir.setInt(5, evento.codFilme());
+                if (evento.prazo() != null) {
+                    inserir.setLong(6, evento.prazo().toEpochMilli());
+                } else {
+                    inserir.setNull(6, Types.BIGINT);
+                }
+                inserir.addBatch();
+            }
+            inserir.executeBatch();
+        }
+    }
+
+    @Override
+    public List<RegistroAluguel> listarPorFilme(int codFilme) {
+        return banco.executar("listarAlugueisPorFilme", c -> {
+            List<RegistroAluguel> registros = new ArrayList<>();
+            try (PreparedStatement consulta = c.prepareStatement(
+                    "SELECT cliente_id, titulo FROM alugueis WHERE cod_filme = ? ORDER BY id")) {
+                consulta.setInt(1, codFilme);
+                try (ResultSet linhas = consulta.executeQuery()) {
+                    while (linhas.next()) {
+                        registros.add(new RegistroAluguel(linhas.getLong(1), null, null, codFilme, linhas.getString(2)));
+                    }
+                }
+            }
+            return registros;
+        });
+    }
+
+    @Override
+    public PaginaRegistros listarPorCliente(long clienteId, int inicio, int quantidade) {
+        return banco.executar("listarAlugueisPorCliente", c -> {
+            int total;
+            try (PreparedStatement contagem = c.prepareStatement(
+                    "SELECT COUNT(*) FROM alugueis WHERE cliente_id = ?")) {
+                contagem.setLong(1, clienteId);
+                try (ResultSet linhas = contagem.executeQuery()) {
+                    total = linhas.next() ? linhas.getInt(1) : 0;
+                }
+            }
+
+            List<RegistroAluguel> registros = new ArrayList<>(Math.max(0, Math.min(quantidade, total - inicio)));
+            try (PreparedStatement consulta = c.prepareStatement(
+                    "SELECT cod_filme, titulo FROM alugueis WHERE cliente_id = ? ORDER BY id LIMIT ? OFFSET ?")) {
+                consulta.setLong(1, clienteId);
+                consulta.setInt(2, quantidade);
+                consulta.setInt(3, inicio);
+                try (ResultSet linhas = consulta.executeQuery()) {
+                    while (linhas.next()) {
+                        registros.add(new RegistroAluguel(clienteId, null, null, linhas.getInt(1), linhas.getString(2)));
+                    }
+                }
+            }
+            return new PaginaRegistros(total, registros);
+        });
+    }
+
+    @Override
+    public List<EventoAluguel> listarEventos(Instant inicio, Instant fim, EventoAluguel.Tipo tipo) {
+        return banco.executar("listarEventos", c -> {
+            List<EventoAluguel> eventos = new ArrayList<>();
+            try (PreparedStatement consulta = c.prepareStatement("SELECT " + COLUNAS_EVENTO
+                    + " FROM eventos_aluguel WHERE instante >= ? AND instante < ? AND tipo = ? ORDER BY instante, id")) {
+                consulta.setLong(1, inicio.toEpochMilli());
+                consulta.setLong(2, fim.toEpochMilli());
+                consulta.setString(3, codigoTipo(tipo));
+                try (ResultSet linhas = consulta.executeQuery()) {
+                    while (linhas.next()) {
+                        eventos.add(lerEvento(linhas));
+                    }
+                }
+            }
+            return eventos;
+        });
+    }
+
+    /**
+     * Uma consulta pelo índice por filme para cada código procurado.
+     */
+    @Override
+    public List<EventoAluguel> ultimosAlugueis(ConjuntoBits procurados) {
+        return banco.executar("ultimosAlugueis", c -> {
+            List<EventoAluguel> alugueis = new ArrayList<>();
+            try (PreparedStatement consulta = c.prepareStatement("SELECT " + COLUNAS_EVENTO
+                    + " FROM eventos_aluguel WHERE cod_filme = ? ORDER BY id DESC LIMIT 1")) {
+                for (int codigo : procurados.listar()) {
+                    consulta.setInt(1, codigo);
+                    try (ResultSet linhas = consulta.executeQuery()) {
+                        if (!linhas.next()) {
+                            continue;
+                        }
+                        procurados.remover(codigo);
+                        EventoAluguel ultimo = lerEvento(linhas);
+                        if (ultimo.tipo() == EventoAluguel.Tipo.ALUGUEL) {
+                            alugueis.add(ultimo);
+                        }
+                    }
+                }
+            }
+            alugueis.sort((a, b) -> b.instante().compareTo(a.instante()));
+            return alugueis;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> sincronizar() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static String codigoTipo(EventoAluguel.Tipo tipo) {
+        return String.valueOf(tipo == EventoAluguel.Tipo.ALUGUEL ? ALUGUEL : DEVOLUCAO);
+    }
+
+    private static EventoAluguel lerEvento(ResultSet linha) throws SQLException {
+        Instant instante = Instant.ofEpochMilli(linha.getLong(1));
+        EventoAluguel.Tipo tipo = linha.getString(2).charAt(0) == ALUGUEL
+                ? EventoAluguel.Tipo.ALUGUEL : EventoAluguel.Tipo.DEVOLUCAO;
+        long clienteId = linha.getLong(3);
+        int codFilme = linha.getInt(4);
+        long prazo = linha.getLong(5);
+        return new EventoAluguel(instante, tipo, clienteId, codFilme, linha.wasNull() ? null : Instant.ofEpochMilli(prazo));
+    }
+}
@@ -0,0 +1,68 @@
+package controller;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import model.Filme;
+
+/**
+ * Persistência do catálogo de filmes usada pelo {@link FilmeService}, que
+ * mantém o catálogo e os índices em memória e só grava as alterações aqui.
+ *
+ * Há duas implementações, escolhidas pela propriedade de sistema
+ * {@value Armazenamento#PROPRIEDADE_ARMAZENAMENTO}:
+ * {@link RepositorioFilmesArquivo} (padrão), sobre "filmes.txt" e seu
+ * {@link Diario}, e {@link RepositorioFilmesBanco}, sobre um banco embutido.
+ * O serviço chama as alterações com as suas travas, na ordem em que elas
+ * acontecem no catálogo.
+ */
+interface RepositorioFilmes {
+
+    /**
+     * Lê o catálogo gravado, na ordem de cadastro. Um filme pode aparecer de
+     * novo depois, com dados mais recentes, e um código pode ser excluído
+     * depois de ter aparecido.
+     *
+     * @param gravado  recebe cada filme lido
+     * @param excluido recebe o código de cada filme excluído
+     */
+    void carregar(Consumer<Filme> gravado, IntConsumer excluido);
+
+    /**
+     * Grava filmes novos ou alterados, de uma vez.
+     */
+    void salvar(List<Filme> filmes);
+
+    void excluir(int codigo);
+
+    /**
+     * Grava muitos filmes novos de uma vez, como numa importação.
+     *
+     * @param todos o catálogo inteiro, já com os novos, para quem prefere
+     *              regravar tudo; só é chamado se for usado
+     */
+    void acrescentar(List<Filme> novos, Supplier<List<Filme>> todos);
+
+    /**
+     * Troca todo o conteúdo gravado pelos filmes informados.
+     */
+    void substituir(List<Filme> filmes);
+
+    /**
+     * @return se as alterações acumuladas pedem um {@link #compactar}
+     */
+    boolean deveCompactar();
+
+    /**
+     * @param fotografia o catálogo inteiro, tirado com a trava de escrita
+     */
+    void compactar(List<Filme> fotografia);
+
+    /**
+     * @return futuro concluído quando as alterações feitas até agora
+     *         estiverem gravadas
+     */
+    CompletableFuture<Void> sincronizar();
+}
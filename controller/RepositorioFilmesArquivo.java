@@ -0,0 +1,140 @@
+package controller;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import model.Filme;
+import model.Situacao;
+
+/**
+ * Catálogo em "filmes.txt" ({@code cod;titulo;genero;classificacao;situacao}),
+ * com as alterações anexadas a um {@link Diario} e o arquivo principal
+ * regravado no checkpoint. A carga lê "filmes.txt" com o
+ * {@link LeitorParalelo} e depois reaplica o diário.
+ */
+final class RepositorioFilmesArquivo implements RepositorioFilmes {
+    private static final String REGISTRO_FILME = "U";
+    private static final String REGISTRO_EXCLUSAO = "E";
+
+    private final File arquivoFilmes;
+    private final Diario diario;
+    private final Metricas metricas;
+
+    RepositorioFilmesArquivo(File arquivoFilmes, Metricas metricas) {
+        this.arquivoFilmes = arquivoFilmes;
+        this.diario = new Diario(arquivoFilmes, Diario.LIMITE_PADRAO, metricas);
+        this.metricas = metricas;
+    }
+
+    @Override
+    public void carregar(Consumer<Filme> gravado, IntConsumer excluido) {
+        if (arquivoFilmes.exists()) {
+            try {
+                for (Filme filme : LeitorParalelo.ler(arquivoFilmes, RepositorioFilmesArquivo::lerFilme)) {
+                    gravado.accept(filme);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Erro ao carregar filmes: " + e.getMessage(), e);
+            }
+        }
+
+        metricas.medir("reaplicarDiario", () -> reaplicarDiario(gravado, excluido));
+    }
+
+    private void reaplicarDiario(Consumer<Filme> gravado, IntConsumer excluido) {
+        try {
+            for (String registro : diario.lerPendentes()) {
+                String[] partes = registro.split(";");
+
+                if (REGISTRO_EXCLUSAO.equals(partes[0])) {
+                    excluido.accept(Integer.parseInt(partes[1]));
+                    continue;
+                }
+
+                Filme filme = lerFilme(Arrays.copyOfRange(partes, 1, partes.length));
+                if (REGISTRO_FILME.equals(partes[0]) && filme != null) {
+                    gravado.accept(filme);
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Erro ao reaplicar diário de filmes: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void salvar(List<Filme> filmes) {
+        List<String> registros = new ArrayList<>(filmes.size());
+        for (Filme filme : filmes) {
+            registros.add(REGISTRO_FILME + ";" + formatarLinha(filme));
+        }
+        diario.anexar(registros);
+    }
+
+    @Override
+    public void excluir(int codigo) {
+        diario.anexar(REGISTRO_EXCLUSAO + ";" + codigo);
+    }
+
+    /**
+     * Regrava "filmes.txt" uma vez, em vez de um registro de diário por filme.
+     */
+    @Override
+    public void acrescentar(List<Filme> novos, Supplier<List<Filme>> todos) {
+        diario.reescrever(formatarLinhas(todos.get()));
+    }
+
+    @Override
+    public void substituir(List<Filme> filmes) {
+        diario.reescrever(formatarLinhas(filmes));
+    }
+
+    @Override
+    public boolean deveCompactar() {
+        return diario.deveCompactar();
+    }
+
+    @Override
+    public void compactar(List<Filme> fotografia) {
+        diario.compactar(formatarLinhas(fotografia));
+    }
+
+    @Override
+    public CompletableFuture<Void> sincronizar() {
+        return EscritorAssincrono.getInstance().sincronizar();
+    }
+
+    private static List<String> formatarLinhas(List<Filme> filmes) {
+        List<String> linhas = new ArrayList<>(filmes.size());
+        for (Filme filme : filmes) {
+            linhas.add(formatarLinha(filme));
+        }
+        return linhas;
+    }
+
+    private static String formatarLinha(Filme f) {
+        return f.getCodFilme() + ";" +
+                f.getTitulo() + ";" +
+                f.getGenero() + ";" +
+                f.getClassificacao() + ";" +
+                f.getSituacao().getTexto();
+    }
+
+    private static Filme lerFilme(String[] partes) {
+        if (partes.length < 5) {
+            return null;
+        }
+
+        return new Filme(
+                Integer.parseInt(partes[0]),
+                partes[1],
+                FilmeService.traduzirGenero(partes[2]),
+                Integer.parseInt(partes[3]),
+                Situacao.deTexto(partes[4])
+        );
+    }
+}
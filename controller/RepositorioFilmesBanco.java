@@ -0,0 +1,167 @@
+package controller;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+import model.Filme;
+import model.Situacao;
+
+/**
+ * Catálogo na tabela "filmes" do {@link BancoEmbutido}. A coluna "ordem"
+ * guarda a posição de cadastro, que uma alteração não muda.
+ *
+ * Cada chamada é uma transação com comandos preparados em lote, ou parte da
+ * transação de {@link BancoEmbutido#gravarJuntos} que a envolve: as
+ * alterações tentam um UPDATE por filme e só os filmes que não existiam
+ * viram INSERT. Cada transação é confirmada antes de retornar, então não há
+ * diário nem checkpoint e {@link #sincronizar} já vem concluído.
+ */
+final class RepositorioFilmesBanco implements RepositorioFilmes {
+    private static final String INSERIR =
+            "INSERT INTO filmes (codigo, titulo, genero, classificacao, situacao, ordem) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String ATUALIZAR =
+            "UPDATE filmes SET titulo = ?, genero = ?, classificacao = ?, situacao = ? WHERE codigo = ?";
+
+    private final BancoEmbutido banco;
+    /** Próximo valor da coluna "ordem"; só muda dentro de uma transação do banco. */
+    private long proximaOrdem;
+
+    RepositorioFilmesBanco(BancoEmbutido banco) {
+        this.banco = banco;
+        this.proximaOrdem = banco.executar("lerOrdemFilmes",
+                c -> BancoEmbutido.maximo(c, "filmes", "ordem") + 1);
+    }
+
+    @Override
+    public void carregar(Consumer<Filme> gravado, IntConsumer excluido) {
+        banco.executar("carregarFilmes", c -> {
+            try (PreparedStatement consulta = c.prepareStatement(
+                    "SELECT codigo, titulo, genero, classificacao, situacao FROM filmes ORDER BY ordem");
+                 ResultSet linhas = consulta.executeQuery()) {
+                while (linhas.next()) {
+                    gravado.accept(new Filme(
+                            linhas.getInt(1),
+                            linhas.getString(2),
+                            linhas.getString(3),
+                            linhas.getInt(4),
+                            Situacao.deTexto(linhas.getString(5))
+                    ));
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void salvar(List<Filme> filmes) {
+        banco.executar("salvarFilmes", c -> {
+            int[] alteradas;
+            try (PreparedStatement atualizar = c.prepareStatement(ATUALIZAR)) {
+                for (Filme filme : filmes) {
+                    atualizar.setString(1, filme.getTitulo());
+                    atualizar.setString(2, filme.getGenero());
+                    atualizar.setInt(3, filme.getClassificacao());
+                    atualizar.setString(4, filme.getSituacao().getTexto());
+                    atualizar.setInt(5, filme.getCodFilme());
+                    atualizar.addBatch();
+                }
+                alteradas = atualizar.executeBatch();
+            }
+
+            // H2 e SQLite devolvem a contagem de cada comando do lote; um driver que
+            // devolvesse SUCCESS_NO_INFO faria o filme novo parecer já gravado.
+            List<Filme> novos = new ArrayList<>();
+            for (int i = 0; i < alteradas.length; i++) {
+                if (alteradas[i] == 0) {
+                    novos.add(filmes.get(i));
+                }
+            }
+            inserir(c, novos);
+            return null;
+        });
+    }
+
+    @Override
+    public void excluir(int codigo) {
+        banco.executar("excluirFilme", c -> {
+            try (PreparedStatement excluir = c.prepareStatement("DELETE FROM filmes WHERE codigo = ?")) {
+                excluir.setInt(1, codigo);
+                excluir.executeUpdate();
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Insere só os novos, sem regravar o catálogo.
+     */
+    @Override
+    public void acrescentar(List<Filme> novos, Supplier<List<Filme>> todos) {
+        banco.executar("acrescentarFilmes", c -> {
+            inserir(c, novos);
+            return null;
+        });
+    }
+
+    @Override
+    public void substituir(List<Filme> filmes) {
+        banco.executar("substituirFilmes", c -> {
+            try (Statement comando = c.createStatement()) {
+                comando.executeUpdate("DELETE FROM filmes");
+            }
+            inserir(c, filmes);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean deveCompactar() {
+        return false;
+    }
+
+    @Override
+    public void compactar(List<Filme> fotografia) {
+        // Nada a compactar: cada alteração já foi aplicada à tabela.
+    }
+
+    @Override
+    public CompletableFuture<Void> sincronizar() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Chamado dentro de uma transação. Se ela for desfeita, as posições
+     * reservadas ficam sem uso, o que não muda a ordem.
+     */
+    private void inserir(Connection c, List<Filme> filmes) throws SQLException {
+        if (filmes.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement inserir = c.prepareStatement(INSERIR)) {
+            int pendentes = 0;
+            for (Filme filme : filmes) {
+                inserir.setInt(1, filme.getCodFilme());
+                inserir.setString(2, filme.getTitulo());
+                inserir.setString(3, filme.getGenero());
+                inserir.setInt(4, filme.getClassificacao());
+                inserir.setString(5, filme.getSituacao().getTexto());
+                inserir.setLong(6, proximaOrdem++);
+                inserir.addBatch();
+                if (++pendentes == BancoEmbutido.LINHAS_POR_LOTE) {
+                    inserir.executeBatch();
+                    pendentes = 0;
+                }
+            }
+            inserir.executeBatch();
+        }
+    }
+}
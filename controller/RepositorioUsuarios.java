@@ -0,0 +1,53 @@
+package controller;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import model.Cliente;
+import model.Usuario;
+
+/**
+ * Persistência dos usuários usada pelo {@link UsuarioService}, que mantém a
+ * lista e os índices em memória.
+ *
+ * Implementações: {@link RepositorioUsuariosArquivo} (padrão), sobre
+ * "usuarios.txt" e seu {@link Diario}, e {@link RepositorioUsuariosBanco};
+ * a escolha é de {@link Armazenamento}. O serviço chama as alterações já
+ * sincronizado.
+ */
+interface RepositorioUsuarios {
+
+    /**
+     * Lê os usuários gravados na ordem de cadastro. Um id pode aparecer de
+     * novo depois, com dados mais recentes; vale o último.
+     */
+    void carregar(Consumer<Cliente> gravado);
+
+    /**
+     * Grava um usuário novo ou alterado.
+     */
+    void salvar(Usuario usuario);
+
+    /**
+     * Grava muitos usuários novos de uma vez, como numa importação.
+     *
+     * @param todos todos os usuários, já com os novos; só é chamado se for usado
+     */
+    void acrescentar(List<Usuario> novos, Supplier<List<Usuario>> todos);
+
+    /**
+     * Troca todo o conteúdo gravado pelos usuários informados.
+     */
+    void substituir(List<? extends Usuario> usuarios);
+
+    boolean deveCompactar();
+
+    void compactar(List<Usuario> fotografia);
+
+    /**
+     * @return futuro concluído quando as alterações feitas até agora
+     *         estiverem gravadas
+     */
+    CompletableFuture<Void> sincronizar();
+}
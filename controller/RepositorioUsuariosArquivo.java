@@ -0,0 +1,142 @@
+package controller;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import model.Cliente;
+import model.Usuario;
+
+/**
+ * Usuários em "usuarios.txt" ({@code id;cpf;nome;telefone;endereco}), com as
+ * alterações anexadas a um {@link Diario}. Linhas do formato antigo, sem id,
+ * recebem na carga o próximo id livre, na ordem do arquivo.
+ */
+final class RepositorioUsuariosArquivo implements RepositorioUsuarios {
+    private static final String REGISTRO_USUARIO = "U";
+
+    private final File arquivoUsuarios;
+    private final Diario diario;
+    private final Metricas metricas;
+
+    RepositorioUsuariosArquivo(File arquivoUsuarios, Metricas metricas) {
+        this.arquivoUsuarios = arquivoUsuarios;
+        this.diario = new Diario(arquivoUsuarios, Diario.LIMITE_PADRAO, metricas);
+        this.metricas = metricas;
+    }
+
+    @Override
+    public void carregar(Consumer<Cliente> gravado) {
+        if (arquivoUsuarios.exists()) {
+            try {
+                // A interpretação das linhas roda em paralelo; os ids do formato antigo
+                // são gerados depois, na ordem do arquivo, como antes.
+                long proximoId = 1L;
+                for (UsuarioDados usuarioDados : LeitorParalelo.ler(arquivoUsuarios, RepositorioUsuariosArquivo::lerDadosUsuario)) {
+                    long id = usuarioDados.id() == UsuarioDados.ID_A_GERAR ? proximoId : usuarioDados.id();
+                    proximoId = Math.max(proximoId, id + 1);
+
+                    gravado.accept(new Cliente(id, usuarioDados.cpf(), usuarioDados.telefone(), usuarioDados.endereco(), usuarioDados.nome()));
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException("Erro ao carregar usuários: " + e.getMessage(), e);
+            }
+        }
+
+        metricas.medir("reaplicarDiario", () -> reaplicarDiario(gravado));
+    }
+
+    private void reaplicarDiario(Consumer<Cliente> gravado) {
+        try {
+            for (String registro : diario.lerPendentes()) {
+                String[] partes = registro.split(";", -1);
+                if (!REGISTRO_USUARIO.equals(partes[0]) || partes.length < 6) {
+                    continue;
+                }
+
+                gravado.accept(new Cliente(Long.parseLong(partes[1]), partes[2], partes[4], partes[5], partes[3]));
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("Erro ao reaplicar diário de usuários: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void salvar(Usuario usuario) {
+        diario.anexar(REGISTRO_USUARIO + ";" + formatarLinha(usuario));
+    }
+
+    /**
+     * Regrava "usuarios.txt" uma única vez.
+     */
+    @Override
+    public void acrescentar(List<Usuario> novos, Supplier<List<Usuario>> todos) {
+        diario.reescrever(formatarLinhas(todos.get()));
+    }
+
+    @Override
+    public void substituir(List<? extends Usuario> usuarios) {
+        diario.reescrever(formatarLinhas(usuarios));
+    }
+
+    @Override
+    public boolean deveCompactar() {
+        return diario.deveCompactar();
+    }
+
+    @Override
+    public void compactar(List<Usuario> fotografia) {
+        diario.compactar(formatarLinhas(fotografia));
+    }
+
+    @Override
+    public CompletableFuture<Void> sincronizar() {
+        return EscritorAssincrono.getInstance().sincronizar();
+    }
+
+    private static List<String> formatarLinhas(List<? extends Usuario> usuarios) {
+        List<String> linhas = new ArrayList<>(usuarios.size());
+        for (Usuario u : usuarios) {
+            linhas.add(formatarLinha(u));
+        }
+        return linhas;
+    }
+
+    private static String formatarLinha(Usuario u) {
+        return u.getId() + ";" + u.getCpf() + ";" + u.getNome() + ";" + u.getTelefone() + ";" + u.getEndereco();
+    }
+
+    private static UsuarioDados lerDadosUsuario(String[] partes) {
+        if (partes.length >= 5) {
+            return lerDadosNovos(partes);
+        }
+        if (partes.length == 4) {
+            return lerDadosAntigos(partes);
+        }
+
+        return null;
+    }
+
+    private static UsuarioDados lerDadosNovos(String[] partes) {
+        try {
+            long id = Long.parseLong(partes[0]);
+            return new UsuarioDados(id, partes[1], partes[2], partes[3], partes[4]);
+        } catch (NumberFormatException e) {
+            return lerDadosAntigos(partes);
+        }
+    }
+
+    private static UsuarioDados lerDadosAntigos(String[] partes) {
+        return new UsuarioDados(UsuarioDados.ID_A_GERAR, partes[0], partes[1], partes[2], partes[3]);
+    }
+
+    /**
+     * Dados de uma linha de "usuarios.txt". Linhas no formato antigo, sem id,
+     * usam {@link #ID_A_GERAR} até receberem o próximo id livre.
+     */
+    private record UsuarioDados(long id, String cpf, String nome, String telefone, String endereco) {
+        static final long ID_A_GERAR = -1L;
+    }
+}
@@ -0,0 +1,131 @@
+package controller;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import model.Cliente;
+import model.Usuario;
+
+/**
+ * Usuários na tabela "usuarios" do {@link BancoEmbutido}, lidos em ordem de
+ * id. Como em {@link RepositorioFilmesBanco}, uma alteração tenta o UPDATE
+ * e só insere se o usuário não existia, e cada chamada já é confirmada.
+ */
+final class RepositorioUsuariosBanco implements RepositorioUsuarios {
+    private static final String INSERIR =
+            "INSERT INTO usuarios (id, cpf, nome, telefone, endereco) VALUES (?, ?, ?, ?, ?)";
+    private static final String ATUALIZAR =
+            "UPDATE usuarios SET cpf = ?, nome = ?, telefone = ?, endereco = ? WHERE id = ?";
+
+    private final BancoEmbutido banco;
+
+    RepositorioUsuariosBanco(BancoEmbutido banco) {
+        this.banco = banco;
+    }
+
+    @Override
+    public void carregar(Consumer<Cliente> gravado) {
+        banco.executar("carregarUsuarios", c -> {
+            try (PreparedStatement consulta = c.prepareStatement(
+                    "SELECT id, cpf, nome, telefone, endereco FROM usuarios ORDER BY id");
+                 ResultSet linhas = consulta.executeQuery()) {
+                while (linhas.next()) {
+                    gravado.accept(new Cliente(
+                            linhas.getLong(1),
+                            linhas.getString(2),
+                            linhas.getString(4),
+                            linhas.getString(5),
+                            linhas.getString(3)
+                    ));
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void salvar(Usuario usuario) {
+        banco.executar("salvarUsuario", c -> {
+            int alteradas;
+            try (PreparedStatement atualizar = c.prepareStatement(ATUALIZAR)) {
+                atualizar.setString(1, usuario.getCpf());
+                atualizar.setString(2, usuario.getNome());
+                atualizar.setString(3, usuario.getTelefone());
+                atualizar.setString(4, usuario.getEndereco());
+                atualizar.setLong(5, usuario.getId());
+                alteradas = atualizar.executeUpdate();
+            }
+
+            if (alteradas == 0) {
+                inserir(c, List.of(usuario));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Insere só os novos, sem regravar a tabela.
+     */
+    @Override
+    public void acrescentar(List<Usuario> novos, Supplier<List<Usuario>> todos) {
+        banco.executar("acrescentarUsuarios", c -> {
+            inserir(c, novos);
+            return null;
+        });
+    }
+
+    @Override
+    public void substituir(List<? extends Usuario> usuarios) {
+        banco.executar("substituirUsuarios", c -> {
+            try (Statement comando = c.createStatement()) {
+                comando.executeUpdate("DELETE FROM usuarios");
+            }
+            inserir(c, usuarios);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean deveCompactar() {
+        return false;
+    }
+
+    @Override
+    public void compactar(List<Usuario> fotografia) {
+        // Nada a compactar: cada alteração já foi aplicada à tabela.
+    }
+
+    @Override
+    public CompletableFuture<Void> sincronizar() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private static void inserir(Connection c, List<? extends Usuario> usuarios) throws SQLException {
+        if (usuarios.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement inserir = c.prepareStatement(INSERIR)) {
+            int pendentes = 0;
+            for (Usuario usuario : usuarios) {
+                inserir.setLong(1, usuario.getId());
+                inserir.setString(2, usuario.getCpf());
+                inserir.setString(3, usuario.getNome());
+                inserir.setString(4, usuario.getTelefone());
+                inserir.setString(5, usuario.getEndereco());
+                inserir.addBatch();
+                if (++pendentes == BancoEmbutido.LINHAS_POR_LOTE) {
+                    inserir.executeBatch();
+                    pendentes = 0;
+                }
+            }
+            inserir.executeBatch();
+        }
+    }
+}
@@ -0,0 +1,687 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Parte selada do histórico de aluguéis: arquivos imutáveis
+ * "alugueis.txt.segmento-NNNNNN" com até {@link #REGISTROS_POR_SEGMENTO}
+ * linhas cada, ordenadas por código do filme (e, no mesmo filme, na ordem em
+ * que foram gravadas).
+ *
+ * O índice "alugueis.txt.indice" guarda, por segmento, a faixa de códigos, um
+ * filtro de Bloom dos códigos e um marcador (código e posição em bytes) a
+ * cada {@link #REGISTROS_POR_MARCADOR} linhas. A consulta de um filme pula os
+ * segmentos que a faixa ou o filtro descartam e, nos demais, lê só o trecho
+ * entre dois marcadores. Se o índice sumir ou estiver ilegível, ele é refeito
+ * a partir dos segmentos.
+ *
+ * Cada segmento tem ainda o índice reverso "alugueis.txt.segmento-NNNNNN.clientes":
+ * entradas de largura fixa (id do cliente, posição e tamanho da linha)
+ * ordenadas por cliente e, no mesmo cliente, na ordem de gravação. A consulta
+ * de um cliente acha a sua faixa por busca binária no próprio arquivo e lê só
+ * as linhas dele. Linhas antigas sem id de cliente ficam fora desse índice.
+ *
+ * {@link #gravar} é chamado por uma thread de cada vez; a lista publicada é
+ * imutável e pode ser lida por qualquer thread.
+ */
+final class SegmentosAlugueis {
+    static final int REGISTROS_POR_SEGMENTO = 100_000;
+
+    private static final Logger LOG = Logger.getLogger(SegmentosAlugueis.class.getName());
+    private static final int REGISTROS_POR_MARCADOR = 128;
+    private static final int ASSINATURA_INDICE = 0x53414C32; // "SAL2"
+    private static final int ASSINATURA_CLIENTES = 0x53414343; // "SACC"
+    private static final String PREFIXO_SEGMENTO = ".segmento-";
+    private static final String SUFIXO_CLIENTES = ".clientes";
+    /** Bytes do cabeçalho do índice de clientes: assinatura e quantidade. */
+    private static final int CABECALHO_CLIENTES = 8;
+    /** Bytes de uma entrada do índice de clientes: id, posição e tamanho da linha. */
+    private static final int ENTRADA_CLIENTES = 20;
+
+    private final File arquivoBase;
+    private final File arquivoIndice;
+    private final Function<String[], RegistroAluguel> conversor;
+    private final Charset charset;
+    private volatile List<Segmento> segmentos;
+
+    /**
+     * @param arquivoBase "alugueis.txt"; os segmentos e o índice ficam ao lado
+     * @param conversor   interpreta uma linha já separada por ";"
+     */
+    SegmentosAlugueis(File arquivoBase, Function<String[], RegistroAluguel> conversor) {
+        this.arquivoBase = arquivoBase;
+        this.arquivoIndice = new File(arquivoBase.getPath() + ".indice");
+        this.conversor = conversor;
+        this.charset = Charset.defaultCharset();
+        this.segmentos = carregar();
+    }
+
+    List<Segmento> listar() {
+        return segmentos;
+    }
+
+    /**
+     * @return número que o próximo segmento gravado vai receber
+     */
+    int proximoNumero() {
+        List<Segmento> atuais = segmentos;
+        return atuais.isEmpty() ? 1 : atuais.get(atuais.size() - 1).numero + 1;
+    }
+
+    /**
+     * Grava as linhas em segmentos novos, numerados a partir de
+     * {@code primeiroNumero}, e regrava o índice já com eles. Os segmentos só
+     * aparecem em {@link #listar} depois de {@link #publicar}.
+     *
+     * Refazer a mesma gravação depois de uma interrupção sobrescreve os
+     * segmentos gravados pela metade, sem duplicar linhas.
+     *
+     * @param linhas linhas na ordem em que foram gravadas no histórico
+     * @return os segmentos novos, em ordem
+     */
+    List<Segmento> gravar(List<LinhaAluguel> linhas, int primeiroNumero) throws IOException {
+        List<Segmento> novos = new ArrayList<>();
+        int numero = primeiroNumero;
+
+        for (int inicio = 0; inicio < linhas.size(); inicio += REGISTROS_POR_SEGMENTO) {
+            novos.add(gravarSegmento(numero++,
+                    linhas.subList(inicio, Math.min(linhas.size(), inicio + REGISTROS_POR_SEGMENTO))));
+        }
+
+        List<Segmento> todos = new ArrayList<>(segmentos);
+        todos.addAll(novos);
+        gravarIndice(todos);
+        return novos;
+    }
+
+    void publicar(List<Segmento> novos) {
+        if (novos.isEmpty()) {
+            return;
+        }
+        List<Segmento> todos = new ArrayList<>(segmentos);
+        todos.addAll(novos);
+        segmentos = Collections.unmodifiableList(todos);
+    }
+
+    /**
+     * Acrescenta ao destino os registros do filme nos segmentos informados,
+     * em ordem de segmento.
+     */
+    void listarPorFilme(List<Segmento> consultados, int codFilme, List<RegistroAluguel> destino) throws IOException {
+        for (Segmento segmento : consultados) {
+            if (segmento.podeConter(codFilme)) {
+                segmento.listar(codFilme, destino);
+            }
+        }
+    }
+
+    /**
+     * @param linhas linhas na ordem de gravação; o segmento sai ordenado por
+     *               filme e o índice de clientes mantém a ordem de gravação
+     */
+    private Segmento gravarSegmento(int numero, List<LinhaAluguel> linhas) throws IOException {
+        File arquivo = arquivoSegmento(numero);
+        byte[] separadorLinha = System.lineSeparator().getBytes(charset);
+
+        // A ordenação é estável: no mesmo filme, a ordem de gravação se mantém.
+        Integer[] porFilme = new Integer[linhas.size()];
+        for (int i = 0; i < porFilme.length; i++) {
+            porFilme[i] = i;
+        }
+        Arrays.sort(porFilme, Comparator.comparingInt(i -> linhas.get(i).codFilme()));
+
+        int quantidadeMarcadores = (linhas.size() + REGISTROS_POR_MARCADOR - 1) / REGISTROS_POR_MARCADOR;
+        int[] codigosMarcadores = new int[quantidadeMarcadores];
+        long[] posicoesMarcadores = new long[quantidadeMarcadores];
+        FiltroBloom filtro = FiltroBloom.para(contarDistintos(linhas, porFilme));
+        long[] posicoes = new long[linhas.size()];
+        int[] tamanhos = new int[linhas.size()];
+        int codigoMaximo = linhas.isEmpty() ? 0 : linhas.get(porFilme[porFilme.length - 1]).codFilme();
+
+        ArquivoDuravel.substituir(arquivo, saida -> {
+            long posicao = 0;
+            for (int i = 0; i < porFilme.length; i++) {
+                LinhaAluguel linha = linhas.get(porFilme[i]);
+                if (i % REGISTROS_POR_MARCADOR == 0) {
+                    codigosMarcadores[i / REGISTROS_POR_MARCADOR] = linha.codFilme();
+                    posicoesMarcadores[i / REGISTROS_POR_MARCADOR] = posicao;
+                }
+                filtro.adicionar(linha.codFilme());
+
+                byte[] bytes = linha.texto().getBytes(charset);
+                saida.write(bytes);
+                saida.write(separadorLinha);
+                posicoes[porFilme[i]] = posicao;
+                tamanhos[porFilme[i]] = bytes.length;
+                posicao += bytes.length + separadorLinha.length;
+            }
+        });
+
+        long tamanhoBytes = 0;
+        for (int tamanho : tamanhos) {
+            tamanhoBytes += tamanho + separadorLinha.length;
+        }
+
+        long[] clientes = new long[linhas.size()];
+        for (int i = 0; i < clientes.length; i++) {
+            clientes[i] = linhas.get(i).clienteId();
+        }
+        int entradasClientes = gravarClientes(numero, clientes, posicoes, tamanhos);
+
+        return new Segmento(numero, arquivo, linhas.size(), tamanhoBytes, codigoMaximo, filtro,
+                codigosMarcadores, posicoesMarcadores, entradasClientes, charset, conversor);
+    }
+
+    private static int contarDistintos(List<LinhaAluguel> linhas, Integer[] porFilme) {
+        int distintos = 0;
+        for (int i = 0; i < porFilme.length; i++) {
+            if (i == 0 || linhas.get(porFilme[i]).codFilme() != linhas.get(porFilme[i - 1]).codFilme()) {
+                distintos++;
+            }
+        }
+        return distintos;
+    }
+
+    /**
+     * Grava o índice de clientes do segmento com as linhas que têm id de
+     * cliente, ordenadas por cliente sem perder a ordem recebida.
+     *
+     * @return a quantidade de entradas gravadas
+     */
+    private int gravarClientes(int numero, long[] clientes, long[] posicoes, int[] tamanhos) throws IOException {
+        List<Integer> comCliente = new ArrayList<>(clientes.length);
+        for (int i = 0; i < clientes.length; i++) {
+            if (clientes[i] != RegistroAluguel.SEM_ID) {
+                comCliente.add(i);
+            }
+        }
+        comCliente.sort(Comparator.comparingLong(i -> clientes[i]));
+
+        ArquivoDuravel.substituir(arquivoClientes(numero), arquivo -> {
+            DataOutputStream saida = new DataOutputStream(arquivo);
+            saida.writeInt(ASSINATURA_CLIENTES);
+            saida.writeInt(comCliente.size());
+            for (int i : comCliente) {
+                saida.writeLong(clientes[i]);
+                saida.writeLong(posicoes[i]);
+                saida.writeInt(tamanhos[i]);
+            }
+            saida.flush();
+        });
+        return comCliente.size();
+    }
+
+    /**
+     * Lê o índice e descarta segmentos que ficaram fora dele (gravados por
+     * uma selagem interrompida, que será refeita). Sem índice legível, refaz
+     * tudo a partir dos arquivos.
+     */
+    private List<Segmento> carregar() {
+        TreeMap<Integer, File> arquivos = listarArquivosSegmento();
+
+        List<Segmento> lidos = null;
+        if (arquivoIndice.exists()) {
+            try {
+                lidos = lerIndice();
+            } catch (IOException | RuntimeException e) {
+                LOG.log(Level.WARNING, "Índice do histórico de aluguéis ilegível, refazendo", e);
+            }
+        }
+
+        try {
+            if (lidos == null) {
+                lidos = new ArrayList<>();
+                for (Map.Entry<Integer, File> entrada : arquivos.entrySet()) {
+                    lidos.add(reconstruir(entrada.getKey(), entrada.getValue()));
+                }
+                if (!lidos.isEmpty()) {
+                    gravarIndice(lidos);
+                }
+            } else {
+                int ultimo = lidos.isEmpty() ? 0 : lidos.get(lidos.size() - 1).numero;
+                for (File orfao : arquivos.tailMap(ultimo, false).values()) {
+                    Files.deleteIfExists(orfao.toPath());
+                    Files.deleteIfExists(new File(orfao.getPath() + SUFIXO_CLIENTES).toPath());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Erro ao ler segmentos do histórico de aluguéis: " + e.getMessage(), e);
+        }
+
+        return Collections.unmodifiableList(lidos);
+    }
+
+    private TreeMap<Integer, File> listarArquivosSegmento() {
+        TreeMap<Integer, File> arquivos = new TreeMap<>();
+        File diretorio = arquivoBase.getAbsoluteFile().getParentFile();
+        String prefixo = arquivoBase.getName() + PREFIXO_SEGMENTO;
+        File[] candidatos = diretorio == null ? null : diretorio.listFiles();
+        if (candidatos == null) {
+            return arquivos;
+        }
+
+        for (File candidato : candidatos) {
+            String nome = candidato.getName();
+            if (nome.startsWith(prefixo) && !nome.endsWith(".tmp")) {
+                try {
+                    int numero = Integer.parseInt(nome.substring(prefixo.length()));
+                    arquivos.put(numero, arquivoSegmento(numero));
+                } catch (NumberFormatException e) {
+                    // Não é um segmento.
+                }
+            }
+        }
+        return arquivos;
+    }
+
+    private Segmento reconstruir(int numero, File arquivo) throws IOException {
+        List<RegistroAluguel> registros = new ArrayList<>();
+        List<Long> posicoes = new ArrayList<>();
+        List<Integer> tamanhos = new ArrayList<>();
+        byte[] conteudo = Files.readAllBytes(arquivo.toPath());
+
+        int inicioLinha = 0;
+        for (int i = 0; i <= conteudo.length; i++) {
+            if (i < conteudo.length && conteudo[i] != '\n') {
+                continue;
+            }
+            int fim = i > inicioLinha && conteudo[i - 1] == '\r' ? i - 1 : i;
+            if (fim > inicioLinha) {
+                RegistroAluguel registro = conversor.apply(new String(conteudo, inicioLinha, fim - inicioLinha, charset).split(";"));
+                if (registro != null) {
+                    registros.add(registro);
+                    posicoes.add((long) inicioLinha);
+                    tamanhos.add(fim - inicioLinha);
+                }
+            }
+            inicioLinha = i + 1;
+        }
+
+        int quantidadeMarcadores = (registros.size() + REGISTROS_POR_MARCADOR - 1) / REGISTROS_POR_MARCADOR;
+        int[] codigosMarcadores = new int[quantidadeMarcadores];
+        long[] posicoesMarcadores = new long[quantidadeMarcadores];
+        FiltroBloom filtro = FiltroBloom.para(registros.size());
+        for (int i = 0; i < registros.size(); i++) {
+            if (i % REGISTROS_POR_MARCADOR == 0) {
+                codigosMarcadores[i / REGISTROS_POR_MARCADOR] = registros.get(i).codFilme();
+                posicoesMarcadores[i / REGISTROS_POR_MARCADOR] = posicoes.get(i);
+            }
+            filtro.adicionar(registros.get(i).codFilme());
+        }
+
+        // A ordem de gravação não está mais no arquivo: no mesmo cliente, as
+        // linhas ficam na ordem do segmento.
+        long[] clientes = new long[registros.size()];
+        long[] posicoesLinhas = new long[registros.size()];
+        int[] tamanhosLinhas = new int[registros.size()];
+        for (int i = 0; i < registros.size(); i++) {
+            clientes[i] = registros.get(i).clienteId();
+            posicoesLinhas[i] = posicoes.get(i);
+            tamanhosLinhas[i] = tamanhos.get(i);
+        }
+        int entradasClientes = gravarClientes(numero, clientes, posicoesLinhas, tamanhosLinhas);
+
+        int codigoMaximo = registros.isEmpty() ? 0 : registros.get(registros.size() - 1).codFilme();
+        return new Segmento(numero, arquivo, registros.size(), conteudo.length, codigoMaximo, filtro,
+                codigosMarcadores, posicoesMarcadores, entradasClientes, charset, conversor);
+    }
+
+    private void gravarIndice(List<Segmento> lista) throws IOException {
+        ArquivoDuravel.substituir(arquivoIndice, arquivo -> {
+            DataOutputStream saida = new DataOutputStream(arquivo);
+            saida.writeInt(ASSINATURA_INDICE);
+            saida.writeInt(lista.size());
+            for (Segmento segmento : lista) {
+                saida.writeInt(segmento.numero);
+                saida.writeInt(segmento.registros);
+                saida.writeLong(segmento.tamanhoBytes);
+                saida.writeInt(segmento.codigoMaximo);
+                saida.writeInt(segmento.codigosMarcadores.length);
+                for (int i = 0; i < segmento.codigosMarcadores.length; i++) {
+                    saida.writeInt(segmento.codigosMarcadores[i]);
+                    saida.writeLong(segmento.posicoesMarcadores[i]);
+                }
+                segmento.filtro.gravar(saida);
+                saida.writeInt(segmento.entradasClientes);
+            }
+            saida.flush();
+        });
+    }
+
+    private List<Segmento> lerIndice() throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivoIndice)))) {
+            if (entrada.readInt() != ASSINATURA_INDICE) {
+                throw new IOException("assinatura inválida.");
+            }
+
+            int quantidade = entrada.readInt();
+            List<Segmento> lidos = new ArrayList<>(quantidade);
+            for (int s = 0; s < quantidade; s++) {
+                int numero = entrada.readInt();
+                int registros = entrada.readInt();
+                long tamanhoBytes = entrada.readLong();
+                int codigoMaximo = entrada.readInt();
+                int quantidadeMarcadores = entrada.readInt();
+                int[] codigosMarcadores = new int[quantidadeMarcadores];
+                long[] posicoesMarcadores = new long[quantidadeMarcadores];
+                for (int i = 0; i < quantidadeMarcadores; i++) {
+                    codigosMarcadores[i] = entrada.readInt();
+                    posicoesMarcadores[i] = entrada.readLong();
+                }
+                FiltroBloom filtro = FiltroBloom.ler(entrada);
+                int entradasClientes = entrada.readInt();
+
+                File arquivo = arquivoSegmento(numero);
+                if (arquivo.length() != tamanhoBytes) {
+                    throw new IOException("segmento " + arquivo.getName() + " não confere com o índice.");
+                }
+                File clientes = arquivoClientes(numero);
+                if (clientes.length() != CABECALHO_CLIENTES + (long) entradasClientes * ENTRADA_CLIENTES) {
+                    throw new IOException(clientes.getName() + " não confere com o índice.");
+                }
+                lidos.add(new Segmento(numero, arquivo, registros, tamanhoBytes, codigoMaximo, filtro,
+                        codigosMarcadores, posicoesMarcadores, entradasClientes, charset, conversor));
+            }
+            return lidos;
+        } catch (EOFException e) {
+            throw new IOException("índice incompleto.", e);
+        }
+    }
+
+    private File arquivoSegmento(int numero) {
+        return new File(arquivoBase.getPath() + PREFIXO_SEGMENTO + String.format("%06d", numero));
+    }
+
+    private File arquivoClientes(int numero) {
+        return new File(arquivoSegmento(numero).getPath() + SUFIXO_CLIENTES);
+    }
+
+    /**
+     * Linha canônica do histórico pronta para ser selada.
+     *
+     * @param clienteId id do cliente, ou {@link RegistroAluguel#SEM_ID} numa
+     *                  linha antiga que não pôde ser migrada
+     */
+    record LinhaAluguel(int codFilme, long clienteId, String texto) {
+    }
+
+    /**
+     * Um segmento selado e o que o índice sabe dele. O arquivo é aberto na
+     * primeira consulta e fica aberto; leituras posicionais no mesmo canal
+     * podem rodar em paralelo.
+     */
+    static final class Segmento {
+        private final int numero;
+        private final File arquivo;
+        private final int registros;
+        private final long tamanhoBytes;
+        private final int codigoMaximo;
+        private final FiltroBloom filtro;
+        private final int[] codigosMarcadores;
+        private final long[] posicoesMarcadores;
+        private final int entradasClientes;
+        private final Charset charset;
+        private final Function<String[], RegistroAluguel> conversor;
+        private volatile FileChannel canal;
+        private volatile FileChannel canalClientes;
+
+        private Segmento(int numero, File arquivo, int registros, long tamanhoBytes, int codigoMaximo, FiltroBloom filtro,
+                int[] codigosMarcadores, long[] posicoesMarcadores, int entradasClientes, Charset charset,
+                Function<String[], RegistroAluguel> conversor) {
+            this.numero = numero;
+            this.arquivo = arquivo;
+            this.registros = registros;
+            this.tamanhoBytes = tamanhoBytes;
+            this.codigoMaximo = codigoMaximo;
+            this.filtro = filtro;
+            this.codigosMarcadores = codigosMarcadores;
+            this.posicoesMarcadores = posicoesMarcadores;
+            this.entradasClientes = entradasClientes;
+            this.charset = charset;
+            this.conversor = conversor;
+        }
+
+        int getRegistros() {
+            return registros;
+        }
+
+        boolean podeConter(int codFilme) {
+            return registros > 0
+                    && codFilme >= codigosMarcadores[0]
+                    && codFilme <= codigoMaximo
+                    && filtro.podeConter(codFilme);
+        }
+
+        void listar(int codFilme, List<RegistroAluguel> destino) throws IOException {
+            // Começa no último marcador com código menor (o filme pode começar
+            // no fim desse trecho) e para no primeiro marcador com código maior.
+            int primeiro = Math.max(0, primeiroMarcadorDesde(codFilme) - 1);
+            int depois = primeiroMarcadorDesde(codFilme + 1L);
+
+            long inicio = posicoesMarcadores[primeiro];
+            long fim = depois < posicoesMarcadores.length ? posicoesMarcadores[depois] : tamanhoBytes;
+            String trecho = ler(inicio, (int) (fim - inicio));
+
+            int inicioLinha = 0;
+            while (inicioLinha < trecho.length()) {
+                int fimLinha = trecho.indexOf('\n', inicioLinha);
+                if (fimLinha < 0) {
+                    fimLinha = trecho.length();
+                }
+                String linha = trecho.substring(inicioLinha, fimLinha).strip();
+                inicioLinha = fimLinha + 1;
+                if (linha.isEmpty()) {
+                    continue;
+                }
+
+                RegistroAluguel registro = conversor.apply(linha.split(";"));
+                if (registro == null) {
+                    continue;
+                }
+                if (registro.codFilme() == codFilme) {
+                    destino.add(registro);
+                } else if (registro.codFilme() > codFilme) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * @return a quantidade de linhas do cliente no segmento e a posição da
+         *         primeira no índice de clientes, como {@code {primeira, quantidade}}
+         */
+        int[] faixaCliente(long clienteId) throws IOException {
+            int primeira = primeiraEntradaDesde(clienteId);
+            int depois = clienteId == Long.MAX_VALUE ? entradasClientes : primeiraEntradaDesde(clienteId + 1);
+            return new int[] {primeira, depois - primeira};
+        }
+
+        /**
+         * Lê as linhas das entradas [primeira, primeira + quantidade) do índice
+         * de clientes, na ordem do índice.
+         */
+        void listarCliente(int primeira, int quantidade, List<RegistroAluguel> destino) throws IOException {
+            if (quantidade <= 0) {
+                return;
+            }
+            ByteBuffer entradas = lerClientes(CABECALHO_CLIENTES + (long) primeira * ENTRADA_CLIENTES,
+                    quantidade * ENTRADA_CLIENTES);
+            for (int i = 0; i < quantidade; i++) {
+                entradas.getLong();
+                long posicao = entradas.getLong();
+                int tamanho = entradas.getInt();
+                RegistroAluguel registro = conversor.apply(ler(posicao, tamanho).split(";"));
+                if (registro != null) {
+                    destino.add(registro);
+                }
+            }
+        }
+
+        private int primeiraEntradaDesde(long clienteId) throws IOException {
+            int baixo = 0;
+            int alto = entradasClientes;
+            while (baixo < alto) {
+                int meio = (baixo + alto) >>> 1;
+                if (lerClientes(CABECALHO_CLIENTES + (long) meio * ENTRADA_CLIENTES, Long.BYTES).getLong() < clienteId) {
+                    baixo = meio + 1;
+                } else {
+                    alto = meio;
+                }
+            }
+            return baixo;
+        }
+
+        private ByteBuffer lerClientes(long inicio, int tamanho) throws IOException {
+            FileChannel leitor = canalClientes;
+            if (leitor == null) {
+                synchronized (this) {
+                    leitor = canalClientes;
+                    if (leitor == null) {
+                        leitor = FileChannel.open(new File(arquivo.getPath() + SUFIXO_CLIENTES).toPath(),
+                                StandardOpenOption.READ);
+                        canalClientes = leitor;
+                    }
+                }
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+            while (buffer.hasRemaining()) {
+                if (leitor.read(buffer, inicio + buffer.position()) < 0) {
+                    throw new IOException(arquivo.getName() + SUFIXO_CLIENTES + " menor que o esperado.");
+                }
+            }
+            return buffer.flip();
+        }
+
+        /**
+         * @return o primeiro marcador com código maior ou igual ao limite, ou
+         *         a quantidade de marcadores se não houver
+         */
+        private int primeiroMarcadorDesde(long limite) {
+            int baixo = 0;
+            int alto = codigosMarcadores.length;
+            while (baixo < alto) {
+                int meio = (baixo + alto) >>> 1;
+                if (codigosMarcadores[meio] < limite) {
+                    baixo = meio + 1;
+                } else {
+                    alto = meio;
+                }
+            }
+            return baixo;
+        }
+
+        private String ler(long inicio, int tamanho) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(tamanho);
+            FileChannel leitor = abrir();
+            while (buffer.hasRemaining()) {
+                if (leitor.read(buffer, inicio + buffer.position()) < 0) {
+                    throw new IOException("segmento " + arquivo.getName() + " menor que o esperado.");
+                }
+            }
+            return new String(buffer.array(), charset);
+        }
+
+        private FileChannel abrir() throws IOException {
+            FileChannel aberto = canal;
+            if (aberto == null) {
+                synchronized (this) {
+                    aberto = canal;
+                    if (aberto == null) {
+                        aberto = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ);
+                        canal = aberto;
+                    }
+                }
+            }
+            return aberto;
+        }
+    }
+
+    /**
+     * Filtro de Bloom de códigos de filme, com cerca de 10 bits por código e
+     * 4 funções de espalhamento (≈1% de falsos positivos).
+     */
+    static final class FiltroBloom {
+        private static final int BITS_POR_ELEMENTO = 10;
+        private static final int FUNCOES = 4;
+
+        private final long[] palavras;
+        private final long quantidadeBits;
+
+        private FiltroBloom(long[] palavras) {
+            this.palavras = palavras;
+            this.quantidadeBits = (long) palavras.length * Long.SIZE;
+        }
+
+        static FiltroBloom para(int elementos) {
+            long bits = Math.max(Long.SIZE, (long) elementos * BITS_POR_ELEMENTO);
+            return new FiltroBloom(new long[(int) ((bits + Long.SIZE - 1) / Long.SIZE)]);
+        }
+
+        void adicionar(int codigo) {
+            long espalhado = espalhar(codigo);
+            int h1 = (int) espalhado;
+            int h2 = (int) (espalhado >>> 32) | 1;
+            for (int i = 0; i < FUNCOES; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % quantidadeBits;
+                palavras[(int) (bit >>> 6)] |= 1L << bit;
+            }
+        }
+
+        boolean podeConter(int codigo) {
+            long espalhado = espalhar(codigo);
+            int h1 = (int) espalhado;
+            int h2 = (int) (espalhado >>> 32) | 1;
+            for (int i = 0; i < FUNCOES; i++) {
+                long bit = Integer.toUnsignedLong(h1 + i * h2) % quantidadeBits;
+                if ((palavras[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void gravar(DataOutputStream saida) throws IOException {
+            saida.writeInt(palavras.length);
+            for (long palavra : palavras) {
+                saida.writeLong(palavra);
+            }
+        }
+
+        static FiltroBloom ler(DataInputStream entrada) throws IOException {
+            long[] palavras = new long[entrada.readInt()];
+            for (int i = 0; i < palavras.length; i++) {
+                palavras[i] = entrada.readLong();
+            }
+            return new FiltroBloom(palavras);
+        }
+
+        private static long espalhar(int codigo) {
+            long z = codigo * 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
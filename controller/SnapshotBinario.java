@@ -0,0 +1,240 @@
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import model.Cliente;
+import model.Filme;
+import model.Situacao;
+import model.Usuario;
+
+/**
+ * Fotografia binária do catálogo de filmes e da base de clientes, mais
+ * compacta e mais rápida de ler do que os arquivos texto.
+ *
+ * Formato (big-endian, via {@link DataOutputStream}):
+ * <pre>
+ * int   MAGICO ("LPOO")
+ * short versão
+ * byte  tipo (1 = filmes, 2 = usuários)
+ * int   quantidade de registros
+ * int   tamanho do dicionário, seguido das strings (writeUTF)
+ * registros de tamanho fixo nos campos numéricos
+ * long  CRC32 de todos os bytes anteriores
+ * </pre>
+ * Nos filmes, gênero e situação são gravados como índice no dicionário, pois
+ * se repetem em quase todas as linhas.
+ */
+public final class SnapshotBinario {
+    private static final int MAGICO = 0x4C504F4F;
+    private static final short VERSAO = 1;
+    private static final byte TIPO_FILMES = 1;
+    private static final byte TIPO_USUARIOS = 2;
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+
+    private SnapshotBinario() {
+    }
+
+    public static void gravarFilmes(Collection<Filme> filmes, File destino) throws IOException {
+        List<String> dicionario = new ArrayList<>();
+        Map<String, Integer> indices = new HashMap<>();
+        for (Filme filme : filmes) {
+            indexarTermo(filme.getGenero(), dicionario, indices);
+            indexarTermo(filme.getSituacao().getTexto(), dicionario, indices);
+        }
+
+        CRC32 crc = new CRC32();
+        try (DataOutputStream saida = abrirSaida(destino, crc)) {
+            gravarCabecalho(saida, TIPO_FILMES, filmes.size(), dicionario);
+
+            for (Filme filme : filmes) {
+                saida.writeInt(filme.getCodFilme());
+                saida.writeInt(filme.getClassificacao());
+                saida.writeShort(indices.get(valorSeguro(filme.getGenero())));
+                saida.writeShort(indices.get(filme.getSituacao().getTexto()));
+                saida.writeUTF(valorSeguro(filme.getTitulo()));
+            }
+
+            saida.flush();
+            saida.writeLong(crc.getValue());
+        }
+    }
+
+    public static List<Filme> lerFilmes(File origem) throws IOException {
+        conferirCrc(origem);
+        try (DataInputStream entrada = abrirEntrada(origem)) {
+            int quantidade = lerCabecalho(entrada, TIPO_FILMES, origem);
+            String[] dicionario = lerDicionario(entrada);
+
+            List<Filme> filmes = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                int codigo = entrada.readInt();
+                int classificacao = entrada.readInt();
+                String genero = dicionario[entrada.readUnsignedShort()];
+                Situacao situacao = Situacao.deTexto(dicionario[entrada.readUnsignedShort()]);
+                String titulo = entrada.readUTF();
+                filmes.add(new Filme(codigo, titulo, genero, classificacao, situacao));
+            }
+            return filmes;
+        }
+    }
+
+    public static void gravarUsuarios(Collection<? extends Usuario> usuarios, File destino) throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataOutputStream saida = abrirSaida(destino, crc)) {
+            gravarCabecalho(saida, TIPO_USUARIOS, usuarios.size(), List.of());
+
+            for (Usuario usuario : usuarios) {
+                saida.writeLong(usuario.getId());
+                saida.writeUTF(valorSeguro(usuario.getCpf()));
+                saida.writeUTF(valorSeguro(usuario.getNome()));
+                saida.writeUTF(valorSeguro(usuario.getTelefone()));
+                saida.writeUTF(valorSeguro(usuario.getEndereco()));
+            }
+
+            saida.flush();
+            saida.writeLong(crc.getValue());
+        }
+    }
+
+    public static List<Cliente> lerUsuarios(File origem) throws IOException {
+        conferirCrc(origem);
+        try (DataInputStream entrada = abrirEntrada(origem)) {
+            int quantidade = lerCabecalho(entrada, TIPO_USUARIOS, origem);
+            lerDicionario(entrada);
+
+            List<Cliente> clientes = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                long id = entrada.readLong();
+                String cpf = entrada.readUTF();
+                String nome = entrada.readUTF();
+                String telefone = entrada.readUTF();
+                String endereco = entrada.readUTF();
+                clientes.add(new Cliente(id, cpf, telefone, endereco, nome));
+            }
+            return clientes;
+        }
+    }
+
+    /**
+     * O buffer fica acima do {@link CheckedOutputStream}: o
+     * {@link DataOutputStream} escreve byte a byte, e assim o CRC é
+     * atualizado a cada bloco do buffer, não a cada byte.
+     */
+    private static DataOutputStream abrirSaida(File destino, CRC32 crc) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(
+                new CheckedOutputStream(new FileOutputStream(destino), crc), TAMANHO_BUFFER));
+    }
+
+    private static DataInputStream abrirEntrada(File origem) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(origem), TAMANHO_BUFFER));
+    }
+
+    /**
+     * Confere o CRC32 de tudo o que vem antes do CRC gravado no fim do
+     * arquivo, calculado em blocos de um {@link ByteBuffer}, antes de ler
+     * qualquer registro: uma quantidade ou um índice de dicionário
+     * corrompido não chega a ser interpretado. Na entrada o buffer lê
+     * adiante, então um {@link java.util.zip.CheckedInputStream} sob ele
+     * incluiria o próprio CRC.
+     *
+     * @throws IOException se o arquivo estiver truncado ou o CRC não conferir
+     */
+    private static void conferirCrc(File origem) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel canal = FileChannel.open(origem.toPath(), StandardOpenOption.READ)) {
+            long restantes = canal.size() - Long.BYTES;
+            if (restantes < 0) {
+                throw new IOException("Fotografia " + origem.getName() + " truncada.");
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+            while (restantes > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), restantes));
+                int lidos = canal.read(buffer);
+                if (lidos < 0) {
+                    throw new IOException("Fotografia " + origem.getName() + " truncada.");
+                }
+                buffer.flip();
+                crc.update(buffer);
+                restantes -= lidos;
+            }
+
+            buffer.clear().limit(Long.BYTES);
+            while (buffer.hasRemaining()) {
+                if (canal.read(buffer) < 0) {
+                    throw new IOException("Fotografia " + origem.getName() + " truncada.");
+                }
+            }
+            if (buffer.flip().getLong() != crc.getValue()) {
+                throw new IOException("Fotografia " + origem.getName() + " corrompida (CRC inválido).");
+            }
+        }
+    }
+
+    private static void gravarCabecalho(DataOutputStream saida, byte tipo, int quantidade, List<String> dicionario)
+            throws IOException {
+        saida.writeInt(MAGICO);
+        saida.writeShort(VERSAO);
+        saida.writeByte(tipo);
+        saida.writeInt(quantidade);
+        saida.writeInt(dicionario.size());
+        for (String termo : dicionario) {
+            saida.writeUTF(termo);
+        }
+    }
+
+    private static int lerCabecalho(DataInputStream entrada, byte tipoEsperado, File origem) throws IOException {
+        if (entrada.readInt() != MAGICO) {
+            throw new IOException("Arquivo " + origem.getName() + " não é uma fotografia binária.");
+        }
+
+        short versao = entrada.readShort();
+        if (versao != VERSAO) {
+            throw new IOException("Versão " + versao + " da fotografia não é suportada.");
+        }
+
+        if (entrada.readByte() != tipoEsperado) {
+            throw new IOException("Arquivo " + origem.getName() + " contém outro tipo de registro.");
+        }
+        return entrada.readInt();
+    }
+
+    private static String[] lerDicionario(DataInputStream entrada) throws IOException {
+        String[] dicionario = new String[entrada.readInt()];
+        for (int i = 0; i < dicionario.length; i++) {
+            dicionario[i] = entrada.readUTF();
+        }
+        return dicionario;
+    }
+
+    private static void indexarTermo(String termo, List<String> dicionario, Map<String, Integer> indices) {
+        String valor = valorSeguro(termo);
+        if (!indices.containsKey(valor)) {
+            if (dicionario.size() > 0xFFFF) {
+                throw new IllegalStateException("Dicionário da fotografia excedeu o limite de termos.");
+            }
+            indices.put(valor, dicionario.size());
+            dicionario.add(valor);
+        }
+    }
+
+    private static String valorSeguro(String valor) {
+        return valor == null ? "" : valor;
+    }
+}
@@ -1,81 +1,159 @@
 package controller;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Scanner;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import model.Cliente;
 import model.Usuario;
 
 /**
- * Serviço simples para centralizar o carregamento, cadastro e persistência de usuários
- * em "usuarios.txt". A instância é compartilhada pelas telas para manter o mesmo
- * estado em memória e evitar divergência de dados.
+ * Serviço simples para centralizar o carregamento, cadastro e persistência de usuários.
+ * A instância é compartilhada pelas telas para manter o mesmo estado em memória e
+ * evitar divergência de dados.
+ *
+ * Além da lista, mantém índices por CPF normalizado e por id, para que as
+ * buscas não precisem percorrer todos os usuários, e índices de prefixo
+ * ({@link IndicePrefixos}) sobre os dígitos do CPF e as palavras do nome.
+ * Assim como em {@link FilmeService}, a persistência é de um repositório
+ * escolhido por {@link Armazenamento}; no padrão, cada alteração vai para um
+ * {@link Diario} gravado em segundo plano, em vez de reescrever
+ * "usuarios.txt". As buscas usam mapas concorrentes e podem rodar em qualquer
+ * thread; as alterações são sincronizadas. As latências e contagens vão
+ * para as {@link Metricas} do grupo "usuarios".
  */
 public class UsuarioService {
     private static final UsuarioService INSTANCE = new UsuarioService();
 
     private final List<Usuario> usuarios;
-    private final File arquivoUsuarios;
+    private final Map<String, Usuario> usuariosPorCpf;
+    private final Map<Long, Usuario> usuariosPorId;
+    /** Dígitos do CPF, para a pesquisa por prefixo. */
+    private final IndicePrefixos<Usuario> indiceCpf;
+    /** Palavras do nome sem acentos, para a pesquisa por prefixo. */
+    private final IndicePrefixos<Usuario> indiceNomes;
+    private final RepositorioUsuarios repositorio;
     private long proximoId;
+    /** Latência de cada método público e da carga, publicada via JMX no grupo "usuarios". */
+    private final Metricas metricas;
     
     private UsuarioService() {
+        this.metricas = Metricas.grupo("usuarios");
         this.usuarios = new ArrayList<>();
-        this.arquivoUsuarios = new File("usuarios.txt");
+        this.usuariosPorCpf = new ConcurrentHashMap<>();
+        this.usuariosPorId = new ConcurrentHashMap<>();
+        this.indiceCpf = new IndicePrefixos<>();
+        this.indiceNomes = new IndicePrefixos<>();
+        this.repositorio = Armazenamento.usuarios(metricas);
         this.proximoId = 1L;
-        carregarUsuarios();
+        metricas.medir("carregarUsuarios", () -> repositorio.carregar(this::aplicarGravado));
+
+        metricas.medidor("usuarios", usuarios::size);
     }
 
     public static UsuarioService getInstance() {
         return INSTANCE;
     }
 
-    public List<Usuario> getUsuarios() {
-        return Collections.unmodifiableList(usuarios);
+    /**
+     * Cópia da lista na ordem de cadastro: quem a guarda (como a tabela da
+     * tela) não vê os cadastros feitos depois sem pedir a lista de novo.
+     */
+    public synchronized List<Usuario> getUsuarios() {
+        return metricas.medir("getUsuarios", () -> List.copyOf(usuarios));
     }
     
     public boolean existeUsuarioPorCpf(String cpf) {
-        String cpfNormalizado = normalizarDocumento(cpf);
-        return usuarios.stream()
-                .anyMatch(usuario -> normalizarDocumento(usuario.getCpf()).equals(cpfNormalizado));
+        return metricas.medir("existeUsuarioPorCpf", () -> usuariosPorCpf.containsKey(normalizarDocumento(cpf)));
     }
     
     public Cliente buscarClientePorCpf(String cpf) {
-        String cpfNormalizado = normalizarDocumento(cpf);
-
-        return usuarios.stream()
-                .filter(usuario -> normalizarDocumento(usuario.getCpf()).equals(cpfNormalizado))
-                .filter(Cliente.class::isInstance)
-                .map(Cliente.class::cast)
-                .findFirst()
-                .orElse(null);
+        return metricas.medir("buscarClientePorCpf", () -> {
+            Usuario usuario = usuariosPorCpf.get(normalizarDocumento(cpf));
+            return usuario instanceof Cliente cliente ? cliente : null;
+        });
     }
     
     public Cliente buscarClientePorId(long id) {
-        return usuarios.stream()
-                .filter(usuario -> usuario.getId() == id)
-                .filter(Cliente.class::isInstance)
-                .map(Cliente.class::cast)
-                .findFirst()
-                .orElse(null);
+        return metricas.medir("buscarClientePorId", () -> {
+            Usuario usuario = usuariosPorId.get(id);
+            return usuario instanceof Cliente cliente ? cliente : null;
+        });
     }
     
     public Usuario buscarUsuarioPorCpf(String cpf) {
-        String cpfNormalizado = normalizarDocumento(cpf);
+        return metricas.medir("buscarUsuarioPorCpf", () -> usuariosPorCpf.get(normalizarDocumento(cpf)));
+    }
+
+    /**
+     * Pesquisa usuários por prefixo: do CPF (só os dígitos, quando o termo não
+     * tem letras) ou das palavras do nome, sem diferenciar maiúsculas nem
+     * acentos. Com várias palavras no termo, cada uma precisa começar alguma
+     * palavra do nome. O resultado vem em ordem de id.
+     */
+    public List<Usuario> pesquisarUsuarios(String termo) {
+        return metricas.medir("pesquisarUsuarios", () -> {
+            Set<Usuario> encontrados = new LinkedHashSet<>();
+
+            String termoCpf = normalizarDocumento(termo);
+            if (!termoCpf.isEmpty() && !contemLetra(termo)) {
+                encontrados.addAll(indiceCpf.pesquisar(termoCpf));
+            }
+
+            List<String> palavras = IndicePrefixos.separarPalavras(termo);
+            if (!palavras.isEmpty()) {
+                // A palavra mais longa costuma ser a mais seletiva; as outras só filtram.
+                String principal = Collections.max(palavras, Comparator.comparingInt(String::length));
+                for (Usuario usuario : indiceNomes.pesquisar(principal)) {
+                    if (palavras.size() == 1 || nomeComecaComTodas(usuario, palavras)) {
+                        encontrados.add(usuario);
+                    }
+                }
+            }
 
-        return usuarios.stream()
-                .filter(usuario -> normalizarDocumento(usuario.getCpf()).equals(cpfNormalizado))
-                .findFirst()
-                .orElse(null);
+            List<Usuario> resultado = new ArrayList<>(encontrados);
+            resultado.sort(Comparator.comparingLong(Usuario::getId));
+            return resultado;
+        });
+    }
+
+    private static boolean nomeComecaComTodas(Usuario usuario, List<String> prefixos) {
+        List<String> palavrasNome = IndicePrefixos.separarPalavras(usuario.getNome());
+        for (String prefixo : prefixos) {
+            boolean casou = false;
+            for (String palavra : palavrasNome) {
+                if (palavra.startsWith(prefixo)) {
+                    casou = true;
+                    break;
+                }
+            }
+            if (!casou) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean contemLetra(String texto) {
+        for (int i = 0; i < texto.length(); i++) {
+            if (Character.isLetter(texto.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * Cadastra um novo usuário e persiste imediatamente no arquivo.
+     * Cadastra um novo usuário e persiste imediatamente no repositório.
      *
      * @param nome      nome do usuário
      * @param cpf       cpf já formatado (mantido como exibido para compatibilidade)
@@ -84,117 +162,280 @@ public class UsuarioService {
      * @param tipo      tipo do usuário (Cliente ou Funcionario)
      * @throws IllegalArgumentException se já existir alguém com o mesmo CPF
      */
-    public void cadastrarUsuario(String nome, String cpf, String telefone, String endereco) {
-        String cpfNormalizado = normalizarDocumento(cpf);
-        boolean existeCpf = usuarios.stream()
-                .anyMatch(usuario -> normalizarDocumento(usuario.getCpf()).equals(cpfNormalizado));
-
-        if (existeCpf) {
-            throw new IllegalArgumentException("Já existe um usuário cadastrado com este CPF.");
-        }
+    public synchronized void cadastrarUsuario(String nome, String cpf, String telefone, String endereco) {
+        metricas.medir("cadastrarUsuario", () -> {
+            if (existeUsuarioPorCpf(cpf)) {
+                throw new IllegalArgumentException("Já existe um usuário cadastrado com este CPF.");
+            }
 
-        Cliente novo = new Cliente(gerarProximoId(), cpf.trim(), telefone.trim(), endereco.trim(), nome.trim());
-        usuarios.add(novo);
-        salvarUsuarios();
+            Cliente novo = new Cliente(gerarProximoId(), cpf.trim(), telefone.trim(), endereco.trim(), nome.trim());
+            adicionarUsuario(novo);
+            salvarUsuario(novo);
+        });
     }
     
-    public void atualizarUsuario(String cpfOriginal, String nome, String cpf, String telefone, String endereco) {
-        String cpfOriginalNormalizado = normalizarDocumento(cpfOriginal);
+    public synchronized void atualizarUsuario(String cpfOriginal, String nome, String cpf, String telefone, String endereco) {
+        metricas.medir("atualizarUsuario", () -> {
+            String cpfOriginalNormalizado = normalizarDocumento(cpfOriginal);
+            Usuario existente = usuariosPorCpf.get(cpfOriginalNormalizado);
 
-        Usuario existente = usuarios.stream()
-                .filter(usuario -> normalizarDocumento(usuario.getCpf()).equals(cpfOriginalNormalizado))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado."));
+            if (existente == null) {
+                throw new IllegalArgumentException("Usuário não encontrado.");
+            }
 
-        String cpfNovoNormalizado = normalizarDocumento(cpf);
-        boolean cpfEmUso = usuarios.stream()
-                .filter(usuario -> usuario != existente)
-                .anyMatch(usuario -> normalizarDocumento(usuario.getCpf()).equals(cpfNovoNormalizado));
+            String cpfNovoNormalizado = normalizarDocumento(cpf);
+            Usuario donoDoCpf = usuariosPorCpf.get(cpfNovoNormalizado);
 
-        if (cpfEmUso) {
-            throw new IllegalArgumentException("Já existe um usuário cadastrado com este CPF.");
-        }
+            if (donoDoCpf != null && donoDoCpf != existente) {
+                throw new IllegalArgumentException("Já existe um usuário cadastrado com este CPF.");
+            }
 
-        existente.setCpf(cpf.trim());
-        existente.setTelefone(telefone.trim());
-        existente.setEndereco(endereco.trim());
+            aplicarDados(existente, nome.trim(), cpf.trim(), telefone.trim(), endereco.trim());
+            salvarUsuario(existente);
+        });
+    }
 
-        if (existente instanceof Cliente clienteExistente) {
-            clienteExistente.setNome(nome.trim());
-        }
+    /**
+     * @return futuro concluído quando todas as alterações feitas até agora
+     *         estiverem gravadas em disco
+     */
+    public CompletableFuture<Void> sincronizar() {
+        return metricas.medir("sincronizar", repositorio::sincronizar);
+    }
 
-        salvarUsuarios();
+    /**
+     * Grava os usuários atuais em uma fotografia binária ({@link SnapshotBinario}).
+     * A lista é copiada com o monitor do serviço e gravada fora dele, para
+     * que um cadastro no meio não mude a fotografia nem espere pelo disco.
+     */
+    public void exportarSnapshot(File destino) {
+        metricas.medir("exportarSnapshot", () -> {
+            List<Usuario> fotografia;
+            synchronized (this) {
+                fotografia = List.copyOf(usuarios);
+            }
+
+            try {
+                SnapshotBinario.gravarUsuarios(fotografia, destino);
+            } catch (IOException e) {
+                throw new IllegalStateException("Erro ao exportar usuários: " + e.getMessage(), e);
+            }
+        });
     }
 
-    private void salvarUsuarios() {
-        try (PrintWriter arquivo = new PrintWriter(new FileWriter(arquivoUsuarios))) {
-            for (Usuario u : usuarios) {
-                arquivo.println(u.getId() + ";" + u.getCpf() + ";" + u.getNome() + ";" + u.getTelefone() + ";" + u.getEndereco());
+    /**
+     * Substitui os usuários pelo conteúdo de uma fotografia binária e o
+     * conteúdo do repositório (em arquivos, regrava "usuarios.txt" no formato
+     * texto). O repositório é gravado primeiro; se falhar, os usuários em
+     * memória ficam como estavam.
+     */
+    public synchronized void importarSnapshot(File origem) {
+        metricas.medir("importarSnapshot", () -> {
+            List<Cliente> importados;
+            try {
+                importados = SnapshotBinario.lerUsuarios(origem);
+            } catch (IOException e) {
+                throw new IllegalStateException("Erro ao importar usuários: " + e.getMessage(), e);
+            }
 
+            repositorio.substituir(importados);
+            usuarios.clear();
+            usuariosPorCpf.clear();
+            usuariosPorId.clear();
+            indiceCpf.limpar();
+            indiceNomes.limpar();
+            proximoId = 1L;
+            for (Cliente cliente : importados) {
+                adicionarUsuario(cliente);
+                atualizarProximoId(cliente.getId());
             }
-        } catch (IOException e) {
-            throw new IllegalStateException("Erro ao salvar usuários: " + e.getMessage(), e);
-        }
+        });
     }
 
-    private void carregarUsuarios() {
-        if (!arquivoUsuarios.exists()) {
-            return;
-        }
+    /**
+     * Importa clientes de um CSV (nome, CPF, telefone, endereço), como
+     * {@link #cadastrarUsuario} faria com cada linha, mas gravando os novos no
+     * repositório uma única vez no fim. Eles só entram na memória depois de
+     * gravados; se a leitura ou a gravação falhar, nenhum é importado. CPFs
+     * repetidos no arquivo ou já cadastrados são recusados e relatados; as
+     * demais linhas são importadas.
+     */
+    public synchronized RelatorioImportacao importarUsuarios(File origem) {
+        return metricas.medir("importarUsuarios", () -> {
+            List<RelatorioImportacao.Rejeicao> rejeitadas = new ArrayList<>();
+            Set<String> cpfsDoArquivo = new HashSet<>();
+            List<Usuario> novos = new ArrayList<>();
+
+            try (LeitorCsv leitor = new LeitorCsv(origem)) {
+                while (true) {
+                    try {
+                        String[] campos = leitor.proximo();
+                        if (campos == null) {
+                            break;
+                        }
+
+                        validarUsuarioImportado(campos);
+                        String cpfNormalizado = normalizarDocumento(campos[1]);
+                        if (!cpfsDoArquivo.add(cpfNormalizado)) {
+                            throw new IllegalArgumentException("CPF " + campos[1] + " repetido no arquivo.");
+                        }
+                        if (usuariosPorCpf.containsKey(cpfNormalizado)) {
+                            throw new IllegalArgumentException("já existe um usuário cadastrado com o CPF " + campos[1] + ".");
+                        }
+
+                        novos.add(new Cliente(proximoId + novos.size(), campos[1], campos[2], campos[3], campos[0]));
+                    } catch (IllegalArgumentException e) {
+                        rejeitadas.add(new RelatorioImportacao.Rejeicao(leitor.getLinha(), e.getMessage()));
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Erro ao importar usuários: " + e.getMessage(), e);
+            }
 
-        try (Scanner leitor = new Scanner(arquivoUsuarios)) {
-            while (leitor.hasNextLine()) {
-                String linha = leitor.nextLine();
-                String[] partes = linha.split(";");
-                if (partes.length >= 5) {
-                    UsuarioDados usuarioDados = lerDadosUsuario(partes);
-                    
-                    Cliente c = new Cliente(usuarioDados.id(), usuarioDados.cpf(), usuarioDados.telefone(), usuarioDados.endereco(), usuarioDados.nome());
-                    usuarios.add(c);
-                    atualizarProximoId(usuarioDados.id());
+            if (!novos.isEmpty()) {
+                repositorio.acrescentar(novos, () -> {
+                    List<Usuario> todos = new ArrayList<>(usuarios);
+                    todos.addAll(novos);
+                    return todos;
+                });
+                for (Usuario novo : novos) {
+                    adicionarUsuario(novo);
+                    atualizarProximoId(novo.getId());
                 }
             }
-        } catch (Exception e) {
-            throw new IllegalStateException("Erro ao carregar usuários: " + e.getMessage(), e);
+
+            return new RelatorioImportacao(novos.size(), rejeitadas);
+        });
+    }
+
+    /**
+     * @throws IllegalArgumentException com o motivo, se a linha não puder ser
+     *                                  importada
+     */
+    private static void validarUsuarioImportado(String[] campos) {
+        if (campos.length < 4) {
+            throw new IllegalArgumentException("esperados 4 campos (nome, CPF, telefone, endereço), encontrados " + campos.length + ".");
+        }
+        String[] nomes = {"nome", "CPF", "telefone", "endereço"};
+        for (int i = 0; i < 4; i++) {
+            if (campos[i].isEmpty()) {
+                throw new IllegalArgumentException(nomes[i] + " vazio.");
+            }
+            if (campos[i].indexOf(';') >= 0) {
+                throw new IllegalArgumentException(nomes[i] + " com ';', que não cabe em \"usuarios.txt\".");
+            }
+        }
+
+        if (normalizarDocumento(campos[1]).length() != 11) {
+            throw new IllegalArgumentException("CPF \"" + campos[1] + "\" deve ter 11 dígitos.");
         }
     }
 
-    private String normalizarDocumento(String valor) {
-        return valor.replaceAll("[^0-9]", "");
+    private void salvarUsuario(Usuario usuario) {
+        repositorio.salvar(usuario);
+
+        if (repositorio.deveCompactar()) {
+            metricas.medir("compactar", () -> repositorio.compactar(new ArrayList<>(usuarios)));
+        }
     }
-    
-    private long gerarProximoId() {
-        return proximoId++;
+
+    /**
+     * Recebe cada usuário lido na carga: um id novo entra na lista, um id já
+     * carregado tem os dados trocados pelos mais recentes.
+     */
+    private void aplicarGravado(Cliente gravado) {
+        Usuario existente = usuariosPorId.get(gravado.getId());
+
+        if (existente == null) {
+            adicionarUsuario(gravado);
+            atualizarProximoId(gravado.getId());
+        } else {
+            aplicarDados(existente, gravado.getNome(), gravado.getCpf(), gravado.getTelefone(), gravado.getEndereco());
+        }
     }
 
-    private void atualizarProximoId(long idLido) {
-        if (idLido >= proximoId) {
-            proximoId = idLido + 1;
+    private void aplicarDados(Usuario usuario, String nome, String cpf, String telefone, String endereco) {
+        String cpfAnteriorNormalizado = normalizarDocumento(usuario.getCpf());
+        String cpfNovoNormalizado = normalizarDocumento(cpf);
+        String nomeAnterior = usuario.getNome();
+
+        // Troca a chave do índice junto com o CPF, sem janela em que o usuário fique sem entrada.
+        if (!cpfNovoNormalizado.equals(cpfAnteriorNormalizado)) {
+            usuariosPorCpf.put(cpfNovoNormalizado, usuario);
+            usuariosPorCpf.remove(cpfAnteriorNormalizado, usuario);
+        }
+        usuario.setCpf(cpf);
+        usuario.setTelefone(telefone);
+        usuario.setEndereco(endereco);
+
+        if (usuario instanceof Cliente cliente) {
+            cliente.setNome(nome);
         }
+        reindexar(usuario, cpfAnteriorNormalizado, nomeAnterior);
     }
 
-    private UsuarioDados lerDadosUsuario(String[] partes) {
-        if (partes.length >= 5) {
-            return lerDadosNovos(partes);
+    /**
+     * Atualiza os índices de prefixo depois de uma alteração: as chaves novas
+     * entram antes de as antigas saírem, como no índice por CPF.
+     */
+    private void reindexar(Usuario usuario, String cpfAnteriorNormalizado, String nomeAnterior) {
+        indexarPrefixos(usuario);
+
+        String cpfNovoNormalizado = normalizarDocumento(usuario.getCpf());
+        if (!cpfNovoNormalizado.equals(cpfAnteriorNormalizado)) {
+            indiceCpf.remover(cpfAnteriorNormalizado, usuario.getId());
         }
 
-        return lerDadosAntigos(partes);
+        List<String> palavrasNovas = IndicePrefixos.separarPalavras(usuario.getNome());
+        for (String palavra : IndicePrefixos.separarPalavras(nomeAnterior)) {
+            if (!palavrasNovas.contains(palavra)) {
+                indiceNomes.remover(palavra, usuario.getId());
+            }
+        }
     }
 
-    private UsuarioDados lerDadosNovos(String[] partes) {
-        try {
-            long id = Long.parseLong(partes[0]);
-            return new UsuarioDados(id, partes[1], partes[2], partes[3], partes[4]);
-        } catch (NumberFormatException e) {
-            return lerDadosAntigos(partes);
+    private void indexarPrefixos(Usuario usuario) {
+        indiceCpf.adicionar(normalizarDocumento(usuario.getCpf()), usuario.getId(), usuario);
+        for (String palavra : IndicePrefixos.separarPalavras(usuario.getNome())) {
+            indiceNomes.adicionar(palavra, usuario.getId(), usuario);
         }
     }
 
-    private UsuarioDados lerDadosAntigos(String[] partes) {
-        long idGerado = gerarProximoId();
-        return new UsuarioDados(idGerado, partes[0], partes[1], partes[2], partes[3]);
+    private void adicionarUsuario(Usuario usuario) {
+        usuarios.add(usuario);
+        // Em arquivos antigos com CPF repetido, o primeiro cadastro continua valendo.
+        usuariosPorCpf.putIfAbsent(normalizarDocumento(usuario.getCpf()), usuario);
+        usuariosPorId.putIfAbsent(usuario.getId(), usuario);
+        indexarPrefixos(usuario);
     }
 
-    private record UsuarioDados(long id, String cpf, String nome, String telefone, String endereco) {
+    /**
+     * Mantém só os dígitos do documento, sem usar expressão regular.
+     */
+    static String normalizarDocumento(String valor) {
+        StringBuilder digitos = null;
+
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            boolean digito = c >= '0' && c <= '9';
+
+            if (!digito && digitos == null) {
+                digitos = new StringBuilder(valor.length());
+                digitos.append(valor, 0, i);
+            } else if (digito && digitos != null) {
+                digitos.append(c);
+            }
+        }
+        return digitos == null ? valor : digitos.toString();
+    }
+    
+    private long gerarProximoId() {
+        return proximoId++;
+    }
+
+    private void atualizarProximoId(long idLido) {
+        if (idLido >= proximoId) {
+            proximoId = idLido + 1;
+        }
     }
 }
\ No newline at end of file
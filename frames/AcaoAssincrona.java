@@ -0,0 +1,105 @@
+package frames;
+
+import java.awt.Cursor;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.SwingWorker;
+
+/**
+ * Executa as chamadas aos serviços fora da EDT, para que a tela não congele
+ * enquanto os arquivos são lidos ou gravados.
+ *
+ * Cada tela tem uma instância, e só uma ação roda por vez: enquanto ela está
+ * em andamento o cursor fica de espera, a tela é avisada para desabilitar os
+ * botões e novos cliques são ignorados. O resultado (ou o erro) é entregue de
+ * volta na EDT.
+ */
+final class AcaoAssincrona {
+    private final JFrame janela;
+    private final Runnable aoMudarEstado;
+    private SwingWorker<?, ?> emAndamento;
+
+    /**
+     * @param janela        tela dona das ações
+     * @param aoMudarEstado chamado na EDT quando uma ação começa e termina,
+     *                      para a tela atualizar os botões
+     */
+    AcaoAssincrona(JFrame janela, Runnable aoMudarEstado) {
+        this.janela = janela;
+        this.aoMudarEstado = aoMudarEstado;
+    }
+
+    boolean isOcupada() {
+        return emAndamento != null;
+    }
+
+    /**
+     * Executa a tarefa em segundo plano; em caso de erro mostra a mensagem da
+     * exceção em um diálogo.
+     *
+     * @return {@code false} se outra ação ainda estava em andamento
+     */
+    <T> boolean executar(Supplier<T> tarefa, Consumer<T> aoConcluir) {
+        return executar(tarefa, aoConcluir, this::mostrarErro);
+    }
+
+    <T> boolean executar(Supplier<T> tarefa, Consumer<T> aoConcluir, Consumer<RuntimeException> aoFalhar) {
+        if (emAndamento != null) {
+            return false;
+        }
+
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() {
+                return tarefa.get();
+            }
+
+            @Override
+            protected void done() {
+                emAndamento = null;
+                janela.setCursor(null);
+                aoMudarEstado.run();
+
+                T resultado;
+                try {
+                    resultado = get();
+                } catch (ExecutionException e) {
+                    aoFalhar.accept(causaDe(e.getCause()));
+                    return;
+                } catch (InterruptedException | CancellationException e) {
+                    return;
+                }
+                aoConcluir.accept(resultado);
+            }
+        };
+
+        emAndamento = worker;
+        janela.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        aoMudarEstado.run();
+        worker.execute();
+        return true;
+    }
+
+    /**
+     * Tratamento padrão de erro, para telas que fazem algo mais ao falhar.
+     */
+    void mostrarErro(RuntimeException erro) {
+        JOptionPane.showMessageDialog(janela, erro.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * Desembrulha o erro da inicialização de um serviço (que chega como
+     * {@link ExceptionInInitializerError}) para mostrar a mensagem original.
+     */
+    private static RuntimeException causaDe(Throwable erro) {
+        Throwable causa = erro instanceof ExceptionInInitializerError && erro.getCause() != null ? erro.getCause() : erro;
+        if (causa instanceof RuntimeException excecao) {
+            return excecao;
+        }
+        return new IllegalStateException(causa.getMessage(), causa);
+    }
+}
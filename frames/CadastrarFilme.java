@@ -20,6 +20,7 @@ public class CadastrarFilme extends javax.swing.JFrame {
     }
     
     private final FilmeService filmeService = FilmeService.getInstance();
+    private final AcaoAssincrona acoes = new AcaoAssincrona(this, this::atualizarEstadoAcoes);
 
     /**
      * This method is called from within the constructor to initialize the form.
@@ -290,15 +291,20 @@ public class CadastrarFilme extends javax.swing.JFrame {
         String genero = caixaGenero.getSelectedItem().toString();
         int classificacao = obterClassificacaoSelecionada();
 
-        try {
-            filmeService.cadastrarFilme(codigo, caixaTituloFilme.getText().trim(), genero, classificacao);
+        String titulo = caixaTituloFilme.getText().trim();
+        acoes.executar(() -> {
+            filmeService.cadastrarFilme(codigo, titulo, genero, classificacao);
+            return codigo;
+        }, cadastrado -> {
             JOptionPane.showMessageDialog(this, "Filme cadastrado com sucesso!");
             limparCampos();
-        } catch (IllegalArgumentException | IllegalStateException e) {
-            JOptionPane.showMessageDialog(this, e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-        }
+        });
     }//GEN-LAST:event_botaoCadastrarActionPerformed
 
+    private void atualizarEstadoAcoes() {
+        botaoCadastrar.setEnabled(!acoes.isOcupada());
+    }
+
     private void botaoSel12anosActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_botaoSel12anosActionPerformed
         // TODO add your handling code here:
     }//GEN-LAST:event_botaoSel12anosActionPerformed
@@ -15,6 +15,7 @@ public class CadastrarUsuario extends javax.swing.JFrame {
     private final UsuarioService usuarioService;
     private boolean emModoEdicao = false;
     private Usuario usuarioEmEdicao;
+    private final AcaoAssincrona acoes = new AcaoAssincrona(this, this::atualizarEstadoAcoes);
     /**
      * Creates new form CadastrarUsuario1
      */
@@ -224,16 +225,13 @@ public class CadastrarUsuario extends javax.swing.JFrame {
         String telefone = caixaTel.getText().trim();
         String endereco = caixaEndereco.getText().trim();
 
-        try {
+        acoes.executar(() -> {
             usuarioService.cadastrarUsuario(nome, cpf, telefone, endereco);
+            return cpf;
+        }, cadastrado -> {
             JOptionPane.showMessageDialog(this, "Usuário cadastrado com sucesso!");
             limparCampos();
-        } catch (IllegalArgumentException e) {
-            JOptionPane.showMessageDialog(this, e.getMessage(), "CPF duplicado", JOptionPane.WARNING_MESSAGE);
-            caixaCpf.requestFocus();
-        } catch (IllegalStateException e) {
-            JOptionPane.showMessageDialog(this, "Erro ao salvar usuário: " + e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-        }
+        }, erro -> tratarErroAoSalvar(erro, "CPF duplicado"));
     }                                              
 
     private boolean validarCampos() {
@@ -300,17 +298,29 @@ public class CadastrarUsuario extends javax.swing.JFrame {
         String telefone = caixaTel.getText().trim();
         String endereco = caixaEndereco.getText().trim();
 
-        try {
-            usuarioService.atualizarUsuario(usuarioEmEdicao.getCpf(), nome, cpf, telefone, endereco);
+        String cpfOriginal = usuarioEmEdicao.getCpf();
+        acoes.executar(() -> {
+            usuarioService.atualizarUsuario(cpfOriginal, nome, cpf, telefone, endereco);
+            return cpf;
+        }, atualizado -> {
             JOptionPane.showMessageDialog(this, "Usuário atualizado com sucesso!");
             abrirListaUsuarios();
-        } catch (IllegalArgumentException e) {
-            JOptionPane.showMessageDialog(this, e.getMessage(), "Erro na atualização", JOptionPane.WARNING_MESSAGE);
+        }, erro -> tratarErroAoSalvar(erro, "Erro na atualização"));
+    }//GEN-LAST:event_botaoSalvarEdicaoActionPerformed
+
+    private void tratarErroAoSalvar(RuntimeException erro, String tituloValidacao) {
+        if (erro instanceof IllegalArgumentException) {
+            JOptionPane.showMessageDialog(this, erro.getMessage(), tituloValidacao, JOptionPane.WARNING_MESSAGE);
             caixaCpf.requestFocus();
-        } catch (IllegalStateException e) {
-            JOptionPane.showMessageDialog(this, "Erro ao salvar usuário: " + e.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Erro ao salvar usuário: " + erro.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
         }
-    }//GEN-LAST:event_botaoSalvarEdicaoActionPerformed
+    }
+
+    private void atualizarEstadoAcoes() {
+        botaoCadastrar.setEnabled(!acoes.isOcupada());
+        botaoSalvarEdicao.setEnabled(!acoes.isOcupada());
+    }
 
     private void preencherCampos(Usuario usuario) {
         caixaNome.setText(usuario.getNome());
@@ -0,0 +1,97 @@
+package frames;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+
+/**
+ * Filtro "enquanto digita" com espera e cancelamento.
+ *
+ * Cada tecla reinicia um {@link Timer}; só quando o usuário para de digitar
+ * pelo intervalo configurado a pesquisa é disparada, em um
+ * {@link SwingWorker}. Uma pesquisa nova cancela a anterior que ainda estiver
+ * rodando, e apenas o resultado da mais recente é publicado (na EDT). Todos os
+ * métodos devem ser chamados na EDT.
+ *
+ * @param <T> tipo do resultado da pesquisa
+ */
+final class FiltroDigitacao<T> {
+    private static final Logger LOG = Logger.getLogger(FiltroDigitacao.class.getName());
+
+    private final Timer temporizador;
+    private final Function<String, T> pesquisa;
+    private final Consumer<T> aoPublicar;
+    private String termoPendente = "";
+    private SwingWorker<T, Void> emAndamento;
+
+    /**
+     * @param esperaMs   tempo sem digitação antes de pesquisar
+     * @param pesquisa   executada fora da EDT com o termo digitado
+     * @param aoPublicar recebe, na EDT, o resultado da pesquisa mais recente
+     */
+    FiltroDigitacao(int esperaMs, Function<String, T> pesquisa, Consumer<T> aoPublicar) {
+        this.pesquisa = pesquisa;
+        this.aoPublicar = aoPublicar;
+        this.temporizador = new Timer(esperaMs, evento -> iniciarPesquisa());
+        this.temporizador.setRepeats(false);
+    }
+
+    void agendar(String termo) {
+        termoPendente = termo;
+        temporizador.restart();
+    }
+
+    /**
+     * Descarta a pesquisa agendada e a que estiver em andamento.
+     *
+     * @return {@code true} se alguma pesquisa foi descartada, ou seja, se a
+     *         tabela ainda não reflete o último termo digitado
+     */
+    boolean cancelar() {
+        boolean descartou = temporizador.isRunning() || emAndamento != null;
+        temporizador.stop();
+        if (emAndamento != null) {
+            emAndamento.cancel(true);
+            emAndamento = null;
+        }
+        return descartou;
+    }
+
+    private void iniciarPesquisa() {
+        if (emAndamento != null) {
+            emAndamento.cancel(true);
+        }
+
+        String termo = termoPendente;
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() {
+                return pesquisa.apply(termo);
+            }
+
+            @Override
+            protected void done() {
+                if (emAndamento != this || isCancelled()) {
+                    return;
+                }
+                emAndamento = null;
+
+                try {
+                    aoPublicar.accept(get());
+                } catch (ExecutionException e) {
+                    LOG.log(Level.WARNING, "Erro ao pesquisar \"" + termo + "\"", e.getCause());
+                } catch (InterruptedException | CancellationException e) {
+                    // Uma pesquisa mais nova já tomou o lugar desta.
+                }
+            }
+        };
+
+        emAndamento = worker;
+        worker.execute();
+    }
+}
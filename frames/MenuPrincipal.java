@@ -4,6 +4,9 @@
  */
 package frames;
 
+import controller.FilmeService;
+import controller.UsuarioService;
+
 /**
  *
  * @author rjpsilva
@@ -16,8 +19,13 @@ public class MenuPrincipal extends javax.swing.JFrame {
     public MenuPrincipal() {
         initComponents();
         this.setLocationRelativeTo(null);
+        this.acoes = new AcaoAssincrona(this, this::atualizarEstadoAcoes);
+        // Carrega os arquivos em segundo plano enquanto o menu já aparece.
+        acoes.executar(MenuPrincipal::carregarServicos, pronto -> { });
     }
 
+    private final AcaoAssincrona acoes;
+
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
@@ -99,25 +107,46 @@ public class MenuPrincipal extends javax.swing.JFrame {
     }// </editor-fold>//GEN-END:initComponents
 
     private void mostrarFilmesActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_mostrarFilmesActionPerformed
-        // 1. Instancia a nova tela (Cria o objeto da janela de destino)
-        MostrarFilmes proximaTela = new MostrarFilmes();
+        // Os serviços precisam estar carregados antes de a tela ser criada na EDT.
+        acoes.executar(MenuPrincipal::carregarServicos, pronto -> {
+            // 1. Instancia a nova tela (Cria o objeto da janela de destino)
+            MostrarFilmes proximaTela = new MostrarFilmes();
 
-        // 2. Faz a nova tela aparecer
-        proximaTela.setVisible(true);
+            // 2. Faz a nova tela aparecer
+            proximaTela.setVisible(true);
 
-        // 3. Fecha a tela atual (libera memória)
-        this.dispose();
+            // 3. Fecha a tela atual (libera memória)
+            this.dispose();
+        });
     }//GEN-LAST:event_mostrarFilmesActionPerformed
 
     private void mostrarUsuariosActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_mostrarUsuariosActionPerformed
-        // 1. Instancia a nova tela (Cria o objeto da janela de destino)
-        MostrarUsuarios proximaTela = new MostrarUsuarios();
+        acoes.executar(MenuPrincipal::carregarServicos, pronto -> {
+            // 1. Instancia a nova tela (Cria o objeto da janela de destino)
+            MostrarUsuarios proximaTela = new MostrarUsuarios();
+
+            // 2. Faz a nova tela aparecer
+            proximaTela.setVisible(true);
+
+            // 3. Fecha a tela atual (libera memória)
+            this.dispose();
+        });
+    }//GEN-LAST:event_mostrarUsuariosActionPerformed
 
-        // 2. Faz a nova tela aparecer
-        proximaTela.setVisible(true);
+    /**
+     * Força a inicialização dos serviços, que lê os arquivos de dados. Roda
+     * fora da EDT; depois disso {@code getInstance()} volta na hora.
+     */
+    private static Boolean carregarServicos() {
+        FilmeService.getInstance();
+        UsuarioService.getInstance();
+        return Boolean.TRUE;
+    }
 
-        // 3. Fecha a tela atual (libera memória)
-        this.dispose();    }//GEN-LAST:event_mostrarUsuariosActionPerformed
+    private void atualizarEstadoAcoes() {
+        mostrarFilmes.setEnabled(!acoes.isOcupada());
+        mostrarUsuarios.setEnabled(!acoes.isOcupada());
+    }
 
     private void sairActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_sairActionPerformed
         // Exibe a caixa de diálogo perguntando Sim ou Não
@@ -0,0 +1,81 @@
+package frames;
+
+import java.util.List;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Modelo de tabela que lê direto de uma lista dos serviços, sem copiar as
+ * linhas para um {@code DefaultTableModel}. As células são montadas só quando
+ * a tabela pede, ou seja, para as linhas visíveis; trocar a lista ou alterar
+ * uma linha custa O(1) em vez de O(linhas).
+ *
+ * @param <T> tipo do item de cada linha
+ */
+abstract class ModeloTabelaLista<T> extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] colunas;
+    private List<T> linhas;
+
+    ModeloTabelaLista(String... colunas) {
+        this.colunas = colunas;
+        this.linhas = List.of();
+    }
+
+    /**
+     * Passa a mostrar a lista informada. A lista não é copiada, então não
+     * deve ser alterada depois sem avisar o modelo.
+     */
+    void mostrar(List<T> novasLinhas) {
+        this.linhas = novasLinhas;
+        fireTableDataChanged();
+    }
+
+    T getLinha(int linha) {
+        return linhas.get(linha);
+    }
+
+    /**
+     * Avisa que o item da linha mudou (por exemplo, a situação do filme).
+     */
+    void atualizarLinha(int linha) {
+        fireTableRowsUpdated(linha, linha);
+    }
+
+    /**
+     * Troca a lista por outra igual à atual sem o item da linha removida.
+     * Se os tamanhos não baterem, a tabela é redesenhada por inteiro.
+     */
+    void removerLinha(int linha, List<T> linhasAtuais) {
+        boolean soUmaLinha = linhasAtuais.size() == linhas.size() - 1;
+        this.linhas = linhasAtuais;
+
+        if (soUmaLinha) {
+            fireTableRowsDeleted(linha, linha);
+        } else {
+            fireTableDataChanged();
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return linhas.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return colunas.length;
+    }
+
+    @Override
+    public String getColumnName(int coluna) {
+        return colunas[coluna];
+    }
+
+    @Override
+    public Object getValueAt(int linha, int coluna) {
+        return valorDaColuna(linhas.get(linha), coluna);
+    }
+
+    protected abstract Object valorDaColuna(T item, int coluna);
+}
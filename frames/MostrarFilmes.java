@@ -3,21 +3,29 @@
  * Click nbfs://nbhost/SystemFileSystem/Templates/GUIForms/JFrame.java to edit this template
  */
 package frames;
+import controller.ContagemFacetas;
+import controller.EventoAluguel;
 import controller.FilmeService;
 import controller.UsuarioService;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.function.Consumer;
 import javax.swing.JOptionPane;
 import javax.swing.JList;
 import javax.swing.JScrollPane;
+import javax.swing.JTable;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
-import javax.swing.table.DefaultTableModel;
 import model.Cliente;
 import model.Filme;
 /**
@@ -25,6 +33,10 @@ import model.Filme;
  * @author rjpsilva
  */
 public class MostrarFilmes extends javax.swing.JFrame {
+    /** Pausa na digitação antes de filtrar a tabela. */
+    private static final int ESPERA_PESQUISA_MS = 200;
+    private static final DateTimeFormatter FORMATO_PRAZO =
+            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm").withZone(ZoneId.systemDefault());
 
     /**
      * Creates new form MostrarFilmes
@@ -34,13 +46,39 @@ public class MostrarFilmes extends javax.swing.JFrame {
         this.setLocationRelativeTo(null);
         configurarTabela();
         configurarListeners();
-        carregarFilmesNaTabela(filmeService.getFilmes());
+        mostrarResultado(filtrar(""));
         atualizarEstadoAcoes();
     }
     
     private final FilmeService filmeService = FilmeService.getInstance();
     private final UsuarioService usuarioService = UsuarioService.getInstance();
-    private DefaultTableModel modeloTabela;
+    private final AcaoAssincrona acoes = new AcaoAssincrona(this, this::atualizarEstadoAcoes);
+    private final FiltroDigitacao<ResultadoFiltro> filtroPesquisa =
+            new FiltroDigitacao<>(ESPERA_PESQUISA_MS, this::filtrar, this::mostrarResultado);
+    private ModeloTabelaLista<Filme> modeloTabela;
+    /** Gênero de cada item de {@link #comboGenero}; o primeiro, {@code null}, é "todos". */
+    private final List<String> generosDoCombo = new ArrayList<>();
+    /** Classificação máxima de cada item de {@link #comboClassificacao}. */
+    private final List<Integer> classificacoesDoCombo = new ArrayList<>();
+    /** Filtros escolhidos na tela, lidos também pela pesquisa fora da EDT. */
+    private volatile Facetas facetasEscolhidas = new Facetas(null, Integer.MAX_VALUE, false);
+    /** Ignora os eventos dos filtros enquanto os rótulos são remontados. */
+    private boolean atualizandoFacetas;
+
+    private record Facetas(String genero, int classificacaoMaxima, boolean somenteDisponiveis) {
+        boolean livres() {
+            return genero == null && classificacaoMaxima == Integer.MAX_VALUE && !somenteDisponiveis;
+        }
+
+        boolean aceita(Filme filme) {
+            return (genero == null || genero.equals(filme.getGenero()))
+                    && filme.getClassificacao() <= classificacaoMaxima
+                    && (!somenteDisponiveis || filme.isDisponivel());
+        }
+    }
+
+    private record ResultadoFiltro(List<Filme> filmes, ContagemFacetas contagem) {
+    }
 
     /**
      * This method is called from within the constructor to initialize the form.
@@ -64,6 +102,10 @@ public class MostrarFilmes extends javax.swing.JFrame {
         scrollFilmes = new javax.swing.JScrollPane();
         tabelaFilmes = new javax.swing.JTable();
         botaoInfo = new javax.swing.JButton();
+        comboGenero = new javax.swing.JComboBox<>();
+        comboClassificacao = new javax.swing.JComboBox<>();
+        checkDisponiveis = new javax.swing.JCheckBox();
+        botaoAtrasados = new javax.swing.JButton();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
 
@@ -146,6 +188,21 @@ public class MostrarFilmes extends javax.swing.JFrame {
             }
         });
 
+        comboGenero.setFont(new java.awt.Font("sansserif", 0, 14)); // NOI18N
+
+        comboClassificacao.setFont(new java.awt.Font("sansserif", 0, 14)); // NOI18N
+
+        checkDisponiveis.setFont(new java.awt.Font("sansserif", 0, 14)); // NOI18N
+        checkDisponiveis.setText("Somente disponíveis");
+
+        botaoAtrasados.setFont(new java.awt.Font("sansserif", 0, 14)); // NOI18N
+        botaoAtrasados.setText("Atrasados");
+        botaoAtrasados.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                botaoAtrasadosActionPerformed(evt);
+            }
+        });
+
         javax.swing.GroupLayout layout = new javax.swing.GroupLayout(getContentPane());
         getContentPane().setLayout(layout);
         layout.setHorizontalGroup(
@@ -167,7 +224,9 @@ public class MostrarFilmes extends javax.swing.JFrame {
                         .addGap(17, 17, 17))
                     .addGroup(layout.createSequentialGroup()
                         .addGap(18, 18, 18)
-                        .addComponent(caixaPesquisar, javax.swing.GroupLayout.PREFERRED_SIZE, 473, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addComponent(caixaPesquisar, javax.swing.GroupLayout.PREFERRED_SIZE, 345, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addGap(18, 18, 18)
+                        .addComponent(botaoAtrasados, javax.swing.GroupLayout.PREFERRED_SIZE, 110, javax.swing.GroupLayout.PREFERRED_SIZE)
                         .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE))))
             .addGroup(layout.createSequentialGroup()
                 .addGap(76, 76, 76)
@@ -180,6 +239,12 @@ public class MostrarFilmes extends javax.swing.JFrame {
                         .addGap(50, 50, 50)
                         .addComponent(botaoInfo, javax.swing.GroupLayout.PREFERRED_SIZE, 122, javax.swing.GroupLayout.PREFERRED_SIZE))
                     .addComponent(scrollFilmes, javax.swing.GroupLayout.Alignment.LEADING, javax.swing.GroupLayout.DEFAULT_SIZE, 586, Short.MAX_VALUE)
+                    .addGroup(javax.swing.GroupLayout.Alignment.LEADING, layout.createSequentialGroup()
+                        .addComponent(comboGenero, javax.swing.GroupLayout.PREFERRED_SIZE, 230, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
+                        .addComponent(comboClassificacao, javax.swing.GroupLayout.PREFERRED_SIZE, 170, javax.swing.GroupLayout.PREFERRED_SIZE)
+                        .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
+                        .addComponent(checkDisponiveis))
                     .addGroup(layout.createSequentialGroup()
                         .addComponent(botaoAlugar)
                         .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
@@ -201,8 +266,14 @@ public class MostrarFilmes extends javax.swing.JFrame {
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED, 25, Short.MAX_VALUE)
                 .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
                     .addComponent(caixaPesquisar, javax.swing.GroupLayout.PREFERRED_SIZE, 33, javax.swing.GroupLayout.PREFERRED_SIZE)
-                    .addComponent(botaoPesquisar, javax.swing.GroupLayout.PREFERRED_SIZE, 34, javax.swing.GroupLayout.PREFERRED_SIZE))
+                    .addComponent(botaoPesquisar, javax.swing.GroupLayout.PREFERRED_SIZE, 34, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(botaoAtrasados, javax.swing.GroupLayout.PREFERRED_SIZE, 34, javax.swing.GroupLayout.PREFERRED_SIZE))
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.UNRELATED)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(comboGenero, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(comboClassificacao, javax.swing.GroupLayout.PREFERRED_SIZE, javax.swing.GroupLayout.DEFAULT_SIZE, javax.swing.GroupLayout.PREFERRED_SIZE)
+                    .addComponent(checkDisponiveis))
+                .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(scrollFilmes, javax.swing.GroupLayout.PREFERRED_SIZE, 256, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addPreferredGap(javax.swing.LayoutStyle.ComponentPlacement.RELATED)
                 .addComponent(labelCpf)
@@ -259,16 +330,30 @@ public class MostrarFilmes extends javax.swing.JFrame {
         // TODO add your handling code here:
     }//GEN-LAST:event_botaoDevolverActionPerformed
 
+    private void botaoAtrasadosActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_botaoAtrasadosActionPerformed
+        mostrarAtrasados();
+    }//GEN-LAST:event_botaoAtrasadosActionPerformed
+
     private void configurarTabela() {
-        modeloTabela = new DefaultTableModel(
-            new Object[]{"Código", "Título", "Gênero", "Class. Ind.", "Situação"}, 0
-        ) {
+        modeloTabela = new ModeloTabelaLista<Filme>("Código", "Título", "Gênero", "Class. Ind.", "Situação") {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+            protected Object valorDaColuna(Filme filme, int coluna) {
+                switch (coluna) {
+                    case 0:
+                        return filme.getCodFilme();
+                    case 1:
+                        return filme.getTitulo();
+                    case 2:
+                        return filme.getGenero();
+                    case 3:
+                        return filme.getClassificacao() == 0 ? "Livre" : String.valueOf(filme.getClassificacao());
+                    default:
+                        return filme.getSituacao().getTexto();
+                }
             }
         };
         tabelaFilmes.setModel(modeloTabela);
+        tabelaFilmes.setSelectionMode(javax.swing.ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
 
         tabelaFilmes.setAutoResizeMode(javax.swing.JTable.AUTO_RESIZE_OFF);
 
@@ -314,17 +399,17 @@ public class MostrarFilmes extends javax.swing.JFrame {
         caixaPesquisar.getDocument().addDocumentListener(new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
-                atualizarEstadoAcoes();
+                tratarAlteracaoPesquisa();
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
-                atualizarEstadoAcoes();
+                tratarAlteracaoPesquisa();
             }
 
             @Override
             public void changedUpdate(DocumentEvent e) {
-                atualizarEstadoAcoes();
+                tratarAlteracaoPesquisa();
             }
         });
 
@@ -345,6 +430,18 @@ public class MostrarFilmes extends javax.swing.JFrame {
             }
         });
 
+        ActionListener alteracaoFacetas = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!atualizandoFacetas) {
+                    tratarAlteracaoFacetas();
+                }
+            }
+        };
+        comboGenero.addActionListener(alteracaoFacetas);
+        comboClassificacao.addActionListener(alteracaoFacetas);
+        checkDisponiveis.addActionListener(alteracaoFacetas);
+
         tabelaFilmes.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
             @Override
             public void valueChanged(ListSelectionEvent e) {
@@ -355,64 +452,107 @@ public class MostrarFilmes extends javax.swing.JFrame {
         });
     }
 
-private void carregarFilmesNaTabela(List<Filme> filmes) {
-    modeloTabela.setRowCount(0);
+    private void carregarFilmesNaTabela(List<Filme> filmes) {
+        modeloTabela.mostrar(filmes);
+    }
+
+    private void mostrarResultado(ResultadoFiltro resultado) {
+        carregarFilmesNaTabela(resultado.filmes());
+        mostrarContagem(resultado.contagem());
+    }
 
-    for (Filme filme : filmes) {
-        String classificacaoFormatada = (filme.getClassificacao() == 0)
-                ? "Livre"
-                : String.valueOf(filme.getClassificacao());
+    /**
+     * Remonta os rótulos dos filtros com as quantidades atuais, mantendo as
+     * escolhas. Um valor escolhido que ficou sem filmes continua na lista,
+     * para que o filtro não mude sozinho.
+     */
+    private void mostrarContagem(ContagemFacetas contagem) {
+        Facetas facetas = facetasEscolhidas;
+        atualizandoFacetas = true;
+        try {
+            comboGenero.removeAllItems();
+            generosDoCombo.clear();
+            comboGenero.addItem("Todos os gêneros");
+            generosDoCombo.add(null);
+            for (Map.Entry<String, Integer> genero : contagem.porGenero().entrySet()) {
+                comboGenero.addItem(genero.getKey() + " (" + genero.getValue() + ")");
+                generosDoCombo.add(genero.getKey());
+            }
+            if (!generosDoCombo.contains(facetas.genero())) {
+                comboGenero.addItem(facetas.genero() + " (0)");
+                generosDoCombo.add(facetas.genero());
+            }
+            comboGenero.setSelectedIndex(generosDoCombo.indexOf(facetas.genero()));
+
+            comboClassificacao.removeAllItems();
+            classificacoesDoCombo.clear();
+            comboClassificacao.addItem("Todas as idades");
+            classificacoesDoCombo.add(Integer.MAX_VALUE);
+            int acumulado = 0;
+            for (Map.Entry<Integer, Integer> classificacao : contagem.porClassificacao().entrySet()) {
+                acumulado += classificacao.getValue();
+                comboClassificacao.addItem(rotuloClassificacao(classificacao.getKey()) + " (" + acumulado + ")");
+                classificacoesDoCombo.add(classificacao.getKey());
+            }
+            if (!classificacoesDoCombo.contains(facetas.classificacaoMaxima())) {
+                comboClassificacao.addItem(rotuloClassificacao(facetas.classificacaoMaxima()));
+                classificacoesDoCombo.add(facetas.classificacaoMaxima());
+            }
+            comboClassificacao.setSelectedIndex(classificacoesDoCombo.indexOf(facetas.classificacaoMaxima()));
 
-        modeloTabela.addRow(new Object[]{
-            filme.getCodFilme(),
-            filme.getTitulo(),
-            filme.getGenero(),
-            classificacaoFormatada,
-            filme.getSituacao()
-        });
+            checkDisponiveis.setText("Somente disponíveis (" + contagem.disponiveis() + ")");
+        } finally {
+            atualizandoFacetas = false;
+        }
+    }
+
+    private static String rotuloClassificacao(int classificacao) {
+        return classificacao == 0 ? "Livre" : "Até " + classificacao + " anos";
+    }
+
+    private void tratarAlteracaoFacetas() {
+        facetasEscolhidas = new Facetas(
+                generosDoCombo.get(Math.max(comboGenero.getSelectedIndex(), 0)),
+                classificacoesDoCombo.get(Math.max(comboClassificacao.getSelectedIndex(), 0)),
+                checkDisponiveis.isSelected());
+        filtroPesquisa.agendar(caixaPesquisar.getText().trim());
     }
-}
 
+    /**
+     * Filtra a tabela enquanto o usuário digita; a pesquisa roda fora da EDT
+     * depois de uma pausa na digitação.
+     */
+    private void tratarAlteracaoPesquisa() {
+        filtroPesquisa.agendar(caixaPesquisar.getText().trim());
+        atualizarEstadoAcoes();
+    }
 
     private void pesquisarFilmes() {
         String termo = caixaPesquisar.getText().trim();
+        filtroPesquisa.cancelar();
 
         if (termo.isEmpty()) {
             JOptionPane.showMessageDialog(this, "Informe um título ou código para pesquisar.", "Aviso", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        List<Filme> encontrados = filmeService.getFilmes().stream()
-                .filter(filme -> correspondePesquisa(filme, termo))
-                .collect(Collectors.toList());
+        ResultadoFiltro resultado = filtrar(termo);
 
-        if (encontrados.isEmpty()) {
+        if (resultado.filmes().isEmpty()) {
             JOptionPane.showMessageDialog(this, "Nenhum filme encontrado.", "Pesquisa", JOptionPane.INFORMATION_MESSAGE);
         }
 
-        carregarFilmesNaTabela(encontrados);
-    }
-
-    private boolean correspondePesquisa(Filme filme, String termo) {
-        String termoMinusculo = termo.toLowerCase();
-
-        boolean tituloCorresponde = filme.getTitulo().toLowerCase().contains(termoMinusculo);
-        boolean codigoCorresponde;
-
-        try {
-            int codigo = Integer.parseInt(termo);
-            codigoCorresponde = filme.getCodFilme() == codigo;
-        } catch (NumberFormatException e) {
-            codigoCorresponde = false;
-        }
-
-        return tituloCorresponde || codigoCorresponde;
+        mostrarResultado(resultado);
     }
 
+    /**
+     * Aluga de uma vez todos os filmes selecionados: se algum não puder ser
+     * alugado, nenhum é.
+     */
     private void alugarFilmeSelecionado() {
-        int linhaSelecionada = tabelaFilmes.getSelectedRow();
-        if (linhaSelecionada < 0) {
-            JOptionPane.showMessageDialog(this, "Selecione um filme para alugar.", "Aviso", JOptionPane.WARNING_MESSAGE);
+        int[] linhasSelecionadas = tabelaFilmes.getSelectedRows();
+        if (linhasSelecionadas.length == 0) {
+            JOptionPane.showMessageDialog(this, "Selecione ao menos um filme para alugar.", "Aviso", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
@@ -425,7 +565,9 @@ private void carregarFilmesNaTabela(List<Filme> filmes) {
         Cliente cliente = usuarioService.buscarClientePorCpf(cpf);
 
         int confirmacao = JOptionPane.showConfirmDialog(this,
-                "Deseja alugar o filme selecionado?",
+                linhasSelecionadas.length == 1
+                        ? "Deseja alugar o filme selecionado?"
+                        : "Deseja alugar os " + linhasSelecionadas.length + " filmes selecionados?",
                 "Confirmação",
                 JOptionPane.YES_NO_OPTION);
 
@@ -438,29 +580,37 @@ private void carregarFilmesNaTabela(List<Filme> filmes) {
             return;
         }
 
-        int codigo = (int) modeloTabela.getValueAt(linhaSelecionada, 0);
-
-        try {
-            filmeService.alugarFilme(codigo, cliente);
-            JOptionPane.showMessageDialog(this, "Filme alugado com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-            limparFiltro();
-            carregarFilmesNaTabela(filmeService.getFilmes());
-        } catch (IllegalArgumentException | IllegalStateException ex) {
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-        }
+        List<Integer> codigos = codigosDasLinhas(linhasSelecionadas);
+
+        boolean filtroDescartado = filtroPesquisa.cancelar();
+        acoes.executar(() -> {
+            filmeService.alugarFilmes(codigos, cliente);
+            return contarFacetas();
+        }, contagem -> {
+            atualizarLinhas(linhasSelecionadas);
+            mostrarContagem(contagem);
+            // Com "somente disponíveis", os filmes alugados saem da tabela.
+            retomarFiltro(filtroDescartado || facetasEscolhidas.somenteDisponiveis());
+            JOptionPane.showMessageDialog(this,
+                    codigos.size() == 1 ? "Filme alugado com sucesso!" : codigos.size() + " filmes alugados com sucesso!",
+                    "Sucesso", JOptionPane.INFORMATION_MESSAGE);
+            limparSelecao();
+        }, aoFalhar(filtroDescartado));
     }
 
     private void devolverFilmeSelecionado() {
-        int linhaSelecionada = tabelaFilmes.getSelectedRow();
-        if (linhaSelecionada < 0) {
-            JOptionPane.showMessageDialog(this, "Selecione um filme para devolver.", "Aviso", JOptionPane.WARNING_MESSAGE);
+        int[] linhasSelecionadas = tabelaFilmes.getSelectedRows();
+        if (linhasSelecionadas.length == 0) {
+            JOptionPane.showMessageDialog(this, "Selecione ao menos um filme para devolver.", "Aviso", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        int codigo = (int) modeloTabela.getValueAt(linhaSelecionada, 0);
+        List<Integer> codigos = codigosDasLinhas(linhasSelecionadas);
 
         int confirmacao = JOptionPane.showConfirmDialog(this,
-                "Deseja devolver o filme selecionado?",
+                codigos.size() == 1
+                        ? "Deseja devolver o filme selecionado?"
+                        : "Deseja devolver os " + codigos.size() + " filmes selecionados?",
                 "Confirmação",
                 JOptionPane.YES_NO_OPTION);
 
@@ -468,13 +618,32 @@ private void carregarFilmesNaTabela(List<Filme> filmes) {
             return;
         }
         
-        try {
-            filmeService.devolverFilme(codigo);
-            JOptionPane.showMessageDialog(this, "Filme devolvido com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-            limparFiltro();
-            carregarFilmesNaTabela(filmeService.getFilmes());
-        } catch (IllegalArgumentException ex) {
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
+        boolean filtroDescartado = filtroPesquisa.cancelar();
+        acoes.executar(() -> {
+            filmeService.devolverFilmes(codigos);
+            return contarFacetas();
+        }, contagem -> {
+            atualizarLinhas(linhasSelecionadas);
+            mostrarContagem(contagem);
+            retomarFiltro(filtroDescartado);
+            JOptionPane.showMessageDialog(this,
+                    codigos.size() == 1 ? "Filme devolvido com sucesso!" : codigos.size() + " filmes devolvidos com sucesso!",
+                    "Sucesso", JOptionPane.INFORMATION_MESSAGE);
+            limparSelecao();
+        }, aoFalhar(filtroDescartado));
+    }
+
+    private List<Integer> codigosDasLinhas(int[] linhas) {
+        List<Integer> codigos = new ArrayList<>(linhas.length);
+        for (int linha : linhas) {
+            codigos.add(modeloTabela.getLinha(linha).getCodFilme());
+        }
+        return codigos;
+    }
+
+    private void atualizarLinhas(int[] linhas) {
+        for (int linha : linhas) {
+            modeloTabela.atualizarLinha(linha);
         }
     }
 
@@ -485,7 +654,7 @@ private void carregarFilmesNaTabela(List<Filme> filmes) {
             return;
         }
 
-        int codigo = (int) modeloTabela.getValueAt(linhaSelecionada, 0);
+        int codigo = modeloTabela.getLinha(linhaSelecionada).getCodFilme();
 
         int confirmacao = JOptionPane.showConfirmDialog(this,
                 "Deseja realmente excluir o filme selecionado?",
@@ -496,33 +665,97 @@ private void carregarFilmesNaTabela(List<Filme> filmes) {
             return;
         }
         
-        try {
+        String termo = caixaPesquisar.getText().trim();
+        boolean filtroDescartado = filtroPesquisa.cancelar();
+        acoes.executar(() -> {
             filmeService.excluirFilme(codigo);
+            return filtrar(termo);
+        }, restante -> {
+            modeloTabela.removerLinha(linhaSelecionada, restante.filmes());
+            mostrarContagem(restante.contagem());
             JOptionPane.showMessageDialog(this, "Filme excluído com sucesso!", "Sucesso", JOptionPane.INFORMATION_MESSAGE);
-            limparFiltro();
-            carregarFilmesNaTabela(filmeService.getFilmes());
-        } catch (IllegalArgumentException ex) {
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Erro", JOptionPane.ERROR_MESSAGE);
-        }
+            limparSelecao();
+        }, aoFalhar(filtroDescartado));
     }
 
-    private void limparFiltro() {
-        caixaPesquisar.setText("");
+    /**
+     * Depois de alugar, devolver ou excluir, a tabela já reflete a mudança na
+     * própria linha; o filtro digitado continua valendo.
+     */
+    private void limparSelecao() {
         tabelaFilmes.clearSelection();
         atualizarEstadoAcoes();
     }
 
+    /**
+     * Durante uma ação a pesquisa digitada fica suspensa, para que a linha
+     * selecionada continue valendo; se havia uma pendente, roda agora.
+     */
+    private void retomarFiltro(boolean filtroDescartado) {
+        if (filtroDescartado) {
+            filtroPesquisa.agendar(caixaPesquisar.getText().trim());
+        }
+    }
+
+    /**
+     * Se a ação falhar, mostra o erro e roda a pesquisa que ela suspendeu.
+     */
+    private Consumer<RuntimeException> aoFalhar(boolean filtroDescartado) {
+        return erro -> {
+            acoes.mostrarErro(erro);
+            retomarFiltro(filtroDescartado);
+        };
+    }
+
+    /**
+     * Aplica o termo digitado e os filtros escolhidos. Sem termo, o filtro sai
+     * inteiro do índice de facetas; com termo, a pesquisa por título já
+     * devolve poucos filmes e os filtros são aplicados sobre ela. As
+     * quantidades dos filtros se referem ao catálogo, sem o termo.
+     */
+    private ResultadoFiltro filtrar(String termo) {
+        Facetas facetas = facetasEscolhidas;
+        return new ResultadoFiltro(filmesDoFiltro(termo, facetas), contarFacetas(facetas));
+    }
+
+    private List<Filme> filmesDoFiltro(String termo, Facetas facetas) {
+        if (!termo.isEmpty()) {
+            List<Filme> encontrados = filmeService.pesquisarFilmes(termo);
+            encontrados.removeIf(filme -> !facetas.aceita(filme));
+            return encontrados;
+        }
+        if (facetas.livres()) {
+            return filmeService.getFilmes();
+        }
+        return filmeService.filtrarFilmes(facetas.genero(), facetas.classificacaoMaxima(), facetas.somenteDisponiveis());
+    }
+
+    private ContagemFacetas contarFacetas() {
+        return contarFacetas(facetasEscolhidas);
+    }
+
+    private ContagemFacetas contarFacetas(Facetas facetas) {
+        return filmeService.contarFacetas(facetas.genero(), facetas.classificacaoMaxima(), facetas.somenteDisponiveis());
+    }
+
     private void atualizarEstadoAcoes() {
-        boolean possuiSelecao = tabelaFilmes.getSelectedRow() >= 0;
+        int selecionados = acoes.isOcupada() ? 0 : tabelaFilmes.getSelectedRowCount();
+        boolean possuiSelecao = selecionados > 0;
+        // Excluir e ver o histórico valem para um filme por vez.
+        boolean selecaoUnica = selecionados == 1;
         boolean possuiCpf = !obterCpfDigitado().isEmpty();
         boolean possuiPesquisa = !caixaPesquisar.getText().trim().isEmpty();
 
         botaoPesquisar.setEnabled(possuiPesquisa);
         botaoAlugar.setEnabled(possuiSelecao && possuiCpf);
         botaoDevolver.setEnabled(possuiSelecao);
-        botaoExcluir.setEnabled(possuiSelecao);
-        botaoInfo.setEnabled(possuiSelecao);
-
+        botaoExcluir.setEnabled(selecaoUnica);
+        botaoInfo.setEnabled(selecaoUnica);
+        caixaPesquisar.setEditable(!acoes.isOcupada());
+        comboGenero.setEnabled(!acoes.isOcupada());
+        comboClassificacao.setEnabled(!acoes.isOcupada());
+        checkDisponiveis.setEnabled(!acoes.isOcupada());
+        botaoAtrasados.setEnabled(!acoes.isOcupada());
     }
 
     private String obterCpfDigitado() {
@@ -537,7 +770,7 @@ private void carregarFilmesNaTabela(List<Filme> filmes) {
             return;
         }
 
-        int codigo = (int) modeloTabela.getValueAt(linhaSelecionada, 0);
+        int codigo = modeloTabela.getLinha(linhaSelecionada).getCodFilme();
         List<String> historico = filmeService.listarHistoricoAlugueisPorFilme(codigo, usuarioService);
 
         if (historico.isEmpty()) {
@@ -557,8 +790,57 @@ private void carregarFilmesNaTabela(List<Filme> filmes) {
         );
     }
 
+    /**
+     * Mostra os aluguéis vencidos na ordem em que venceram. A lista vem
+     * pronta da agenda de prazos; título e cliente são buscados só para as
+     * linhas visíveis.
+     */
+    private void mostrarAtrasados() {
+        List<EventoAluguel> atrasados = filmeService.listarAtrasados();
+
+        if (atrasados.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Nenhum aluguel atrasado.", "Informação", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        Instant agora = Instant.now();
+        ModeloTabelaLista<EventoAluguel> modelo = new ModeloTabelaLista<EventoAluguel>(
+                "Código", "Título", "Cliente", "Prazo", "Dias de atraso") {
+            @Override
+            protected Object valorDaColuna(EventoAluguel aluguel, int coluna) {
+                switch (coluna) {
+                    case 0:
+                        return aluguel.codFilme();
+                    case 1:
+                        Filme filme = filmeService.buscarFilmePorCodigo(aluguel.codFilme());
+                        return filme != null ? filme.getTitulo() : "Filme excluído";
+                    case 2:
+                        Cliente cliente = usuarioService.buscarClientePorId(aluguel.clienteId());
+                        return cliente != null ? cliente.getNome() + " (" + cliente.getCpf() + ")" : "Cliente não encontrado";
+                    case 3:
+                        return FORMATO_PRAZO.format(aluguel.prazo());
+                    default:
+                        return Duration.between(aluguel.prazo(), agora).toDays();
+                }
+            }
+        };
+        modelo.mostrar(atrasados);
+
+        JTable tabela = new JTable(modelo);
+        JScrollPane scroll = new JScrollPane(tabela);
+        scroll.setPreferredSize(new Dimension(650, 250));
+
+        JOptionPane.showMessageDialog(
+                this,
+                scroll,
+                "Aluguéis Atrasados (" + atrasados.size() + ")",
+                JOptionPane.INFORMATION_MESSAGE
+        );
+    }
+
     // Variables declaration - do not modify//GEN-BEGIN:variables
     private javax.swing.JButton botaoAlugar;
+    private javax.swing.JButton botaoAtrasados;
     private javax.swing.JButton botaoCadastrar;
     private javax.swing.JButton botaoDevolver;
     private javax.swing.JButton botaoExcluir;
@@ -566,6 +848,9 @@ private void carregarFilmesNaTabela(List<Filme> filmes) {
     private javax.swing.JButton botaoPesquisar;
     private javax.swing.JButton botaoVoltar;
     private javax.swing.JTextField caixaPesquisar;
+    private javax.swing.JCheckBox checkDisponiveis;
+    private javax.swing.JComboBox<String> comboClassificacao;
+    private javax.swing.JComboBox<String> comboGenero;
     private javax.swing.JFormattedTextField jFormattedTextField1;
     private javax.swing.JLabel labelCpf;
     private javax.swing.JScrollPane scrollFilmes;
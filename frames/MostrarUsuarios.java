@@ -4,17 +4,27 @@
  */
 package frames;
 
+import controller.FilmeService;
+import controller.PaginaHistorico;
 import controller.UsuarioService;
+import java.awt.BorderLayout;
+import java.awt.Dimension;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.SwingConstants;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
-import javax.swing.table.DefaultTableModel;
 import model.Usuario;
 
 /**
@@ -36,7 +46,9 @@ public class MostrarUsuarios extends javax.swing.JFrame {
     }
     
     private final UsuarioService usuarioService = UsuarioService.getInstance();
-    private DefaultTableModel modeloTabela;
+    private final FilmeService filmeService = FilmeService.getInstance();
+    private final AcaoAssincrona acoes = new AcaoAssincrona(this, this::atualizarEstadoAcoes);
+    private ModeloTabelaLista<Usuario> modeloTabela;
 
     /**
      * This method is called from within the constructor to initialize the form.
@@ -53,6 +65,7 @@ public class MostrarUsuarios extends javax.swing.JFrame {
         botaoCadastrar = new javax.swing.JButton();
         botaoVoltar = new javax.swing.JButton();
         botaoEditar = new javax.swing.JButton();
+        botaoHistorico = new javax.swing.JButton();
         scrollUsuarios = new javax.swing.JScrollPane();
         tabelaUsuarios = new javax.swing.JTable();
 
@@ -95,6 +108,14 @@ public class MostrarUsuarios extends javax.swing.JFrame {
             }
         });
 
+        botaoHistorico.setFont(new java.awt.Font("sansserif", 0, 18)); // NOI18N
+        botaoHistorico.setText("Histórico");
+        botaoHistorico.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                botaoHistoricoActionPerformed(evt);
+            }
+        });
+
         scrollUsuarios.setToolTipText("");
         scrollUsuarios.setCursor(new java.awt.Cursor(java.awt.Cursor.DEFAULT_CURSOR));
 
@@ -136,7 +157,9 @@ public class MostrarUsuarios extends javax.swing.JFrame {
             .addGroup(javax.swing.GroupLayout.Alignment.TRAILING, layout.createSequentialGroup()
                 .addContainerGap(javax.swing.GroupLayout.DEFAULT_SIZE, Short.MAX_VALUE)
                 .addComponent(botaoEditar)
-                .addGap(303, 303, 303))
+                .addGap(50, 50, 50)
+                .addComponent(botaoHistorico)
+                .addGap(214, 214, 214))
         );
         layout.setVerticalGroup(
             layout.createParallelGroup(javax.swing.GroupLayout.Alignment.LEADING)
@@ -153,7 +176,9 @@ public class MostrarUsuarios extends javax.swing.JFrame {
                 .addGap(13, 13, 13)
                 .addComponent(scrollUsuarios, javax.swing.GroupLayout.PREFERRED_SIZE, 305, javax.swing.GroupLayout.PREFERRED_SIZE)
                 .addGap(18, 18, 18)
-                .addComponent(botaoEditar)
+                .addGroup(layout.createParallelGroup(javax.swing.GroupLayout.Alignment.BASELINE)
+                    .addComponent(botaoEditar)
+                    .addComponent(botaoHistorico))
                 .addContainerGap(25, Short.MAX_VALUE))
         );
 
@@ -190,13 +215,24 @@ public class MostrarUsuarios extends javax.swing.JFrame {
         // TODO add your handling code here:
     }//GEN-LAST:event_botaoEditarActionPerformed
 
+    private void botaoHistoricoActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_botaoHistoricoActionPerformed
+        mostrarHistoricoAlugueis();
+    }//GEN-LAST:event_botaoHistoricoActionPerformed
+
     private void configurarTabela() {
-        modeloTabela = new DefaultTableModel(
-                new Object[]{"CPF", "Nome", "Telefone", "Endereço"}, 0
-        ) {
+        modeloTabela = new ModeloTabelaLista<Usuario>("CPF", "Nome", "Telefone", "Endereço") {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+            protected Object valorDaColuna(Usuario usuario, int coluna) {
+                switch (coluna) {
+                    case 0:
+                        return normalizarCpfParaExibicao(usuario.getCpf());
+                    case 1:
+                        return valorSeguro(usuario.getNome());
+                    case 2:
+                        return valorSeguro(usuario.getTelefone());
+                    default:
+                        return valorSeguro(usuario.getEndereco());
+                }
             }
         };
 
@@ -255,24 +291,23 @@ public class MostrarUsuarios extends javax.swing.JFrame {
         });
     }
 
+    /**
+     * Filtra a tabela a cada tecla: a pesquisa por prefixo do serviço é
+     * indexada, então não precisa esperar o botão.
+     */
     private void tratarAlteracaoPesquisa() {
-        if (barraPesquisa.getText().trim().isEmpty()) {
+        String termo = barraPesquisa.getText().trim();
+
+        if (termo.isEmpty()) {
             carregarUsuariosNaTabela(usuarioService.getUsuarios());
+        } else {
+            carregarUsuariosNaTabela(usuarioService.pesquisarUsuarios(termo));
         }
         atualizarEstadoAcoes();
     }
 
     private void carregarUsuariosNaTabela(List<Usuario> usuarios) {
-        modeloTabela.setRowCount(0);
-
-        for (Usuario usuario : usuarios) {
-            modeloTabela.addRow(new Object[]{
-                normalizarCpfParaExibicao(usuario.getCpf()),
-                valorSeguro(usuario.getNome()),
-                valorSeguro(usuario.getTelefone()),
-                valorSeguro(usuario.getEndereco())
-            });
-        }
+        modeloTabela.mostrar(usuarios);
     }
 
     private void pesquisarUsuarios() {
@@ -283,12 +318,7 @@ public class MostrarUsuarios extends javax.swing.JFrame {
             return;
         }
 
-        String termoMinusculo = termo.toLowerCase();
-        String termoCpf = normalizarDocumento(termo);
-
-        List<Usuario> encontrados = usuarioService.getUsuarios().stream()
-                .filter(usuario -> correspondePesquisa(usuario, termoMinusculo, termoCpf))
-                .collect(Collectors.toList());
+        List<Usuario> encontrados = usuarioService.pesquisarUsuarios(termo);
 
         if (encontrados.isEmpty()) {
             JOptionPane.showMessageDialog(this, "Nenhum usuário encontrado.", "Pesquisa", JOptionPane.INFORMATION_MESSAGE);
@@ -297,13 +327,6 @@ public class MostrarUsuarios extends javax.swing.JFrame {
         carregarUsuariosNaTabela(encontrados);
     }
 
-    private boolean correspondePesquisa(Usuario usuario, String termoMinusculo, String termoCpf) {
-        boolean nomeCorresponde = usuario.getNome() != null && usuario.getNome().toLowerCase().contains(termoMinusculo);
-        boolean cpfCorresponde = !termoCpf.isEmpty() && normalizarDocumento(usuario.getCpf()).contains(termoCpf);
-
-        return nomeCorresponde || cpfCorresponde;
-    }
-
     private void editarUsuarioSelecionado() {
         int linhaSelecionada = tabelaUsuarios.getSelectedRow();
 
@@ -312,7 +335,7 @@ public class MostrarUsuarios extends javax.swing.JFrame {
             return;
         }
 
-        String cpf = (String) modeloTabela.getValueAt(linhaSelecionada, 0);
+        String cpf = modeloTabela.getLinha(linhaSelecionada).getCpf();
 
         Usuario usuarioSelecionado = usuarioService.buscarUsuarioPorCpf(cpf);
 
@@ -326,6 +349,77 @@ public class MostrarUsuarios extends javax.swing.JFrame {
         this.dispose();
     }
 
+    /**
+     * Mostra os filmes alugados pelo usuário selecionado, uma página por vez.
+     * As páginas vêm prontas do serviço, que guarda as dos clientes
+     * consultados há pouco; as que ele ainda precisa ler do histórico são
+     * pedidas fora da EDT, com a navegação desabilitada até chegarem.
+     */
+    private void mostrarHistoricoAlugueis() {
+        int linhaSelecionada = tabelaUsuarios.getSelectedRow();
+
+        if (linhaSelecionada < 0) {
+            JOptionPane.showMessageDialog(this, "Selecione um usuário para ver o histórico.", "Aviso", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        Usuario usuario = modeloTabela.getLinha(linhaSelecionada);
+        acoes.executar(() -> filmeService.listarHistoricoAlugueisPorCliente(usuario.getId(), 0),
+                primeira -> mostrarHistoricoAlugueis(usuario, primeira));
+    }
+
+    private void mostrarHistoricoAlugueis(Usuario usuario, PaginaHistorico primeira) {
+        if (primeira.totalAlugueis() == 0) {
+            JOptionPane.showMessageDialog(this, "Nenhum aluguel registrado para este usuário.", "Informação", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        JList<String> lista = new JList<>();
+        JLabel rotuloPagina = new JLabel("", SwingConstants.CENTER);
+        JButton botaoAnterior = new JButton("Anterior");
+        JButton botaoProxima = new JButton("Próxima");
+        PaginaHistorico[] paginaAtual = {primeira};
+
+        Consumer<PaginaHistorico> mostrarPagina = pagina -> {
+            paginaAtual[0] = pagina;
+            lista.setListData(pagina.linhas().toArray(new String[0]));
+            rotuloPagina.setText("Página " + (pagina.pagina() + 1) + " de " + pagina.totalPaginas()
+                    + " (" + pagina.totalAlugueis() + " aluguéis)");
+            botaoAnterior.setEnabled(pagina.pagina() > 0);
+            botaoProxima.setEnabled(pagina.pagina() + 1 < pagina.totalPaginas());
+        };
+        IntConsumer irParaPagina = numero -> {
+            botaoAnterior.setEnabled(false);
+            botaoProxima.setEnabled(false);
+            acoes.executar(() -> filmeService.listarHistoricoAlugueisPorCliente(usuario.getId(), numero),
+                    mostrarPagina,
+                    erro -> {
+                        acoes.mostrarErro(erro);
+                        mostrarPagina.accept(paginaAtual[0]);
+                    });
+        };
+        botaoAnterior.addActionListener(e -> irParaPagina.accept(paginaAtual[0].pagina() - 1));
+        botaoProxima.addActionListener(e -> irParaPagina.accept(paginaAtual[0].pagina() + 1));
+        mostrarPagina.accept(primeira);
+
+        JScrollPane scroll = new JScrollPane(lista);
+        scroll.setPreferredSize(new Dimension(550, 250));
+        JPanel navegacao = new JPanel(new BorderLayout());
+        navegacao.add(botaoAnterior, BorderLayout.WEST);
+        navegacao.add(rotuloPagina, BorderLayout.CENTER);
+        navegacao.add(botaoProxima, BorderLayout.EAST);
+        JPanel painel = new JPanel(new BorderLayout(0, 8));
+        painel.add(scroll, BorderLayout.CENTER);
+        painel.add(navegacao, BorderLayout.SOUTH);
+
+        JOptionPane.showMessageDialog(
+                this,
+                painel,
+                "Histórico de Aluguéis - " + valorSeguro(usuario.getNome()),
+                JOptionPane.INFORMATION_MESSAGE
+        );
+    }
+
     private void limparFiltro() {
         barraPesquisa.setText("");
         tabelaUsuarios.clearSelection();
@@ -336,6 +430,7 @@ public class MostrarUsuarios extends javax.swing.JFrame {
         boolean temTextoPesquisa = !barraPesquisa.getText().trim().isEmpty();
 
         botaoEditar.setEnabled(temSelecao);
+        botaoHistorico.setEnabled(temSelecao && !acoes.isOcupada());
         botaoPesquisar.setEnabled(temTextoPesquisa);
     }
 
@@ -343,10 +438,6 @@ public class MostrarUsuarios extends javax.swing.JFrame {
         return valor == null ? "" : valor.trim();
     }
 
-    private String normalizarDocumento(String valor) {
-        return valor.replaceAll("[^0-9]", "");
-    }
-
     private String normalizarCpfParaExibicao(String cpf) {
         return valorSeguro(cpf);
     }
@@ -355,6 +446,7 @@ public class MostrarUsuarios extends javax.swing.JFrame {
     private javax.swing.JTextField barraPesquisa;
     private javax.swing.JButton botaoCadastrar;
     private javax.swing.JButton botaoEditar;
+    private javax.swing.JButton botaoHistorico;
     private javax.swing.JButton botaoPesquisar;
     private javax.swing.JButton botaoVoltar;
     private javax.swing.JScrollPane scrollUsuarios;
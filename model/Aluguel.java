@@ -1,12 +1,18 @@
 package model;
 
+import java.time.Instant;
+
 public class Aluguel {
 	private Cliente cliente;
 	private Filme filme;
+	private Instant dataAluguel;
+	private Instant prazoDevolucao;
 
-	public Aluguel(Cliente cliente, Filme filme) {
+	public Aluguel(Cliente cliente, Filme filme, Instant dataAluguel, Instant prazoDevolucao) {
 		this.cliente = cliente;
 		this.filme = filme;
+		this.dataAluguel = dataAluguel;
+		this.prazoDevolucao = prazoDevolucao;
 	}
 
 	public Cliente getCliente() {
@@ -17,6 +23,14 @@ public class Aluguel {
 		return filme;
 	}
 
+	public Instant getDataAluguel() {
+		return dataAluguel;
+	}
+
+	public Instant getPrazoDevolucao() {
+		return prazoDevolucao;
+	}
+
         // Formato para salvar no arquivo alugueis.txt (IdUsuario;CodFilme;TituloFilme)
         public String toArquivo() {
                 return cliente.getId() + ";" + filme.getCodFilme() + ";" + filme.getTitulo();
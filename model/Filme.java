@@ -5,10 +5,10 @@ public class Filme {
 	private String titulo;
 	private String genero;
 	private int classificacao;
-	private String situacao;
-	private String cpfClienteAlugou;
+	private volatile Situacao situacao;
+	private volatile String cpfClienteAlugou;
 
-	public Filme(int cod, String titulo, String genero, int classificacao, String situacao) {
+	public Filme(int cod, String titulo, String genero, int classificacao, Situacao situacao) {
 		this.codFilme = cod;
 		this.titulo = titulo;
 		this.genero = genero;
@@ -27,18 +27,22 @@ public class Filme {
 
 	}
 
-	public String getSituacao() {
+	public Situacao getSituacao() {
 		return situacao;
 
 	}
 
-	public void setSituacao(String situacao) {
+	public void setSituacao(Situacao situacao) {
 		this.situacao = situacao;
-		if ("disponível".equalsIgnoreCase(situacao)) {
+		if (situacao == Situacao.DISPONIVEL) {
 			this.cpfClienteAlugou = null;
 		}
 	}
 
+	public boolean isDisponivel() {
+		return getSituacao() == Situacao.DISPONIVEL;
+	}
+
 	public int getCodFilme() {
 		return codFilme;
 
@@ -80,10 +84,11 @@ public class Filme {
 	}
 
 	public String toString() {
-		String info = "Código do filme: " + codFilme + "\n" + "Título: " + titulo + "\n" + "Gênero: " + genero + "\n"
-				+ "Classificação: " + classificacao + "\n" + "Situação: " + situacao;
-		if ("indisponível".equalsIgnoreCase(situacao) && cpfClienteAlugou != null) {
-			info += "\nAlugado por CPF: " + cpfClienteAlugou;
+		String info = "Código do filme: " + getCodFilme() + "\n" + "Título: " + getTitulo() + "\n" + "Gênero: " + getGenero() + "\n"
+				+ "Classificação: " + getClassificacao() + "\n" + "Situação: " + getSituacao();
+		String cpf = getCpfClienteAlugou();
+		if (!isDisponivel() && cpf != null) {
+			info += "\nAlugado por CPF: " + cpf;
 		}
 		return info;
 	}
@@ -0,0 +1,37 @@
+package model;
+
+/**
+ * Situação de um filme no acervo. O texto é o mesmo gravado em "filmes.txt".
+ */
+public enum Situacao {
+	DISPONIVEL("disponível"),
+	INDISPONIVEL("indisponível");
+
+	private final String texto;
+
+	Situacao(String texto) {
+		this.texto = texto;
+	}
+
+	public String getTexto() {
+		return texto;
+	}
+
+	/**
+	 * Lê o texto gravado nos arquivos sem diferenciar maiúsculas nem o acento
+	 * ("disponível", "Disponivel"...). Qualquer outro valor conta como
+	 * indisponível, como acontecia com a comparação de texto.
+	 */
+	public static Situacao deTexto(String texto) {
+		if (texto == null) {
+			return INDISPONIVEL;
+		}
+		String normalizado = texto.trim().toLowerCase().replace('í', 'i');
+		return normalizado.equals("disponivel") ? DISPONIVEL : INDISPONIVEL;
+	}
+
+	@Override
+	public String toString() {
+		return texto;
+	}
+}